@@ -0,0 +1,288 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates admission control for the server.
+ * Requests are split into three classes: reads (status, verify,
+ * view), corruptions, and mining work (add, repair, batch add). Each class
+ * has a bounded number of requests waiting or running, and a
+ * request arriving when its class is full is rejected at once
+ * with a hint of when to retry, instead of queueing without limit.
+ * Each client also has a token bucket, where every request takes
+ * a token, and a second bucket of hashes for the mining: a block
+ * of difficulty d is expected to take 16^d hashes, which it takes
+ * from the bucket, so the cost grows with the work rather than
+ * with the difficulty. The difficulty of a block is capped, and a
+ * request costing more than a full bucket is rejected outright. When
+ * the server retargets the blocks, the difficulty asked for is not
+ * used: it is not capped, and a block costs the hashes the target
+ * time takes at the measured rate.
+ * The full buckets are dropped whenever their number doubles, so
+ * the cost of the sweep is spread over the clients added.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to bound the work accepted by the server
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+/** decides whether the server accepts a request */
+public class AdmissionController {
+
+    // the class of the operations reading the chain
+    static final int READ_CLASS = 0;
+    // the class of the operations changing the chain without mining
+    static final int WRITE_CLASS = 1;
+    // the class of the operations mining blocks
+    static final int MINE_CLASS = 2;
+
+    // the number of token buckets kept before the full ones are first dropped
+    private static final int MAX_TOKEN_BUCKETS = 10000;
+    // each hex zero of the difficulty multiplies the expected hashes by 16
+    private static final int BITS_PER_DIFFICULTY = 4;
+
+    // the slots of each class of operations, waiting or running
+    private final Semaphore[] slots;
+    // the suggested wait before retrying each class of operations, in milliseconds
+    private final long[] retryAfterMillis;
+    // the highest difficulty accepted for a block
+    private final int maxDifficulty;
+    // the tokens added to each client's bucket per second
+    private final double tokensPerSecond;
+    // the most tokens a client's bucket holds
+    private final double burstTokens;
+    // the hashes added to each client's bucket of hashes per second
+    private final double hashesPerSecond;
+    // the most hashes a client's bucket of hashes holds
+    private final double burstHashes;
+    // picks the target of the blocks instead of the client, null if the blocks are mined at the difficulty asked for
+    private volatile DifficultyRetargeter retargeter;
+    // the token bucket of each client, keyed by client ID
+    private final ConcurrentMap<String, TokenBucket> tokenBuckets = new ConcurrentHashMap<String, TokenBucket>();
+    // the number of buckets at which the full ones are next dropped
+    private int sweepAtBuckets = MAX_TOKEN_BUCKETS;
+
+    /** AdmissionController constructor */
+    public AdmissionController(int readSlots, int writeSlots, int mineSlots, int maxDifficulty, double tokensPerSecond, double burstTokens,
+                               double hashesPerSecond, double burstHashes) {
+
+        // the bounded slots of each class
+        slots = new Semaphore[] { new Semaphore(readSlots), new Semaphore(writeSlots), new Semaphore(mineSlots) };
+        // reads and corruptions finish quickly, mining takes much longer
+        retryAfterMillis = new long[] { 100, 100, 1000 };
+        // the limits of the clients
+        this.maxDifficulty = maxDifficulty;
+        this.tokensPerSecond = tokensPerSecond;
+        this.burstTokens = burstTokens;
+        this.hashesPerSecond = hashesPerSecond;
+        this.burstHashes = burstHashes;
+    }
+
+    /** determines the hashes a block of the given difficulty is expected to take, at most Long.MAX_VALUE */
+    public static long workOf(int difficulty) {
+        // 16 to the power of the difficulty, which no longer fits in a long above difficulty 15
+        int bits = BITS_PER_DIFFICULTY * Math.max(0, difficulty);
+        return bits >= Long.SIZE - 1 ? Long.MAX_VALUE : 1L << bits;
+    }
+
+    /** setter method for the retargeting of the blocks, which then sets what a block costs */
+    public void setRetargeter(DifficultyRetargeter blockRetargeter) {
+        // sets the retargeting, used from the next request admitted
+        retargeter = blockRetargeter;
+    }
+
+    /** determines the hashes a block asked for at the given difficulty is expected to take */
+    private long blockWorkOf(int difficulty) {
+        // a retargeted block takes the hashes of its target, whatever the difficulty asked for
+        DifficultyRetargeter blockRetargeter = retargeter;
+        return blockRetargeter != null ? blockRetargeter.getTargetHashes() : workOf(difficulty);
+    }
+
+    /** determines the class of the operation */
+    static int classOf(int operation) {
+        // add, repair and batch add mine blocks
+        if (operation == 1 || operation == 5 || operation == TransactionBatch.BATCH_OPERATION) {
+            return MINE_CLASS;
+            // corrupt changes a block without mining
+        } else if (operation == 4) {
+            return WRITE_CLASS;
+        }
+        // every other operation reads the chain
+        return READ_CLASS;
+    }
+
+    /** determines if the difficulty of the request is within the limits */
+    public boolean difficultyAllowed(int operation, int difficulty) {
+        // only an add carries a difficulty, which may not be negative, and is capped unless the blocks are retargeted
+        return operation != 1 || (difficulty >= 0 && (difficulty <= maxDifficulty || retargeter != null));
+    }
+
+    /** determines the hashes the request is expected to take */
+    public long workOf(int operation, int difficulty) {
+        // an add takes the hashes of its block
+        if (operation == 1) {
+            return blockWorkOf(difficulty);
+            // a repair may mine every block again, it costs as much as the hardest add
+        } else if (operation == 5) {
+            return workOf(maxDifficulty);
+        }
+        // every other request mines nothing
+        return 0;
+    }
+
+    /** determines the hashes the items of a batch are expected to take, at most Long.MAX_VALUE */
+    public long workOf(List<TransactionBatch.Item> items) {
+        // captures the sum, an item outside the difficulty limits is not mined and costs nothing
+        long total = 0;
+        try {
+            for (TransactionBatch.Item item : items) {
+                if (difficultyAllowed(1, item.getDifficulty())) {
+                    total = Math.addExact(total, blockWorkOf(item.getDifficulty()));
+                }
+            }
+            // a sum above the largest long is more than any bucket holds
+        } catch (ArithmeticException ae) {
+            return Long.MAX_VALUE;
+        }
+        return total;
+    }
+
+    /** determines if the request costs no more than a full bucket, a request costing more could never be admitted */
+    public boolean workAllowed(long work) {
+        // returns true if a full bucket of hashes pays for the request
+        return work <= burstHashes;
+    }
+
+    /** getter method for the most hashes a bucket holds */
+    public long getBurstHashes() {
+        // returns the hashes of a full bucket
+        return (long) burstHashes;
+    }
+
+    /** getter method for the highest difficulty */
+    public int getMaxDifficulty() {
+        // returns the highest difficulty accepted for a block
+        return maxDifficulty;
+    }
+
+    /** tries to admit the request expected to take the given hashes, returning 0 if admitted, or else the suggested
+     * wait before retrying in milliseconds. An admitted request must be released once it is done. */
+    public long tryAcquire(String clientID, int operation, long work) {
+
+        // the client's bucket is checked first, so a client over its rate does not hold a slot
+        TokenBucket bucket;
+        long tokenWaitMillis;
+        // a bucket dropped by a sweep after it was looked up is looked up again
+        do {
+            bucket = bucketOf(clientID);
+            tokenWaitMillis = bucket.tryTake(work);
+        } while (tokenWaitMillis < 0);
+        if (tokenWaitMillis > 0) {
+            return tokenWaitMillis;
+        }
+
+        // the class of the request
+        int operationClass = classOf(operation);
+        // if the class has no free slot, reject at once, giving back what the request took
+        if (!slots[operationClass].tryAcquire()) {
+            bucket.refund(work);
+            return retryAfterMillis[operationClass];
+        }
+        // the request is admitted
+        return 0;
+    }
+
+    /** frees the slot of an admitted request */
+    public void release(int operation) {
+        // the slot may be used by another request of the class
+        slots[classOf(operation)].release();
+    }
+
+    /** determines the token bucket of the client, creating a full one the first time */
+    private TokenBucket bucketOf(String clientID) {
+        // a returning client finds its bucket without a sweep
+        TokenBucket bucket = tokenBuckets.get(clientID);
+        if (bucket != null) {
+            return bucket;
+        }
+        // full buckets hold no state worth keeping, they are dropped when the number of buckets doubles
+        if (tokenBuckets.size() >= sweepAtBuckets) {
+            sweepFullBuckets();
+        }
+        // returns the bucket of the client
+        return tokenBuckets.computeIfAbsent(clientID, id -> new TokenBucket());
+    }
+
+    /** drops the full buckets, and sets the number of buckets of the next sweep to twice the buckets left */
+    private synchronized void sweepFullBuckets() {
+        // another request may have swept while this one waited
+        if (tokenBuckets.size() < sweepAtBuckets) {
+            return;
+        }
+        for (Map.Entry<String, TokenBucket> entry : tokenBuckets.entrySet()) {
+            // a bucket is dropped only if it is still full once no request can take from it
+            if (entry.getValue().dropIfFull()) {
+                tokenBuckets.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        sweepAtBuckets = Math.max(MAX_TOKEN_BUCKETS, 2 * tokenBuckets.size());
+    }
+
+    /** the tokens and the hashes of one client */
+    private class TokenBucket {
+        // the tokens left in the bucket
+        private double tokens = burstTokens;
+        // the hashes left in the bucket
+        private double hashes = burstHashes;
+        // the time the bucket was last refilled, in nanoseconds
+        private long lastRefillNanos = System.nanoTime();
+        // whether the bucket was dropped by a sweep
+        private boolean dropped;
+
+        /** takes a token and the hashes if the bucket holds them, returning 0, or else the wait until it will in
+         * milliseconds, or -1 if the bucket was dropped */
+        synchronized long tryTake(long work) {
+            // the request takes from the client's new bucket instead
+            if (dropped) {
+                return -1;
+            }
+            refill();
+            // if enough tokens and hashes are left
+            if (tokens >= 1 && hashes >= work) {
+                tokens -= 1;
+                hashes -= work;
+                return 0;
+            }
+            // the time until the missing tokens and hashes are added, the work is at most a full bucket
+            double tokenWaitSeconds = Math.max(0, 1 - tokens) / tokensPerSecond;
+            double hashWaitSeconds = Math.max(0, work - hashes) / hashesPerSecond;
+            return (long) Math.ceil(Math.max(tokenWaitSeconds, hashWaitSeconds) * 1000);
+        }
+
+        /** gives back the token and the hashes of a request that was not admitted */
+        synchronized void refund(long work) {
+            tokens = Math.min(burstTokens, tokens + 1);
+            hashes = Math.min(burstHashes, hashes + work);
+        }
+
+        /** marks the bucket dropped if it is full, returning true if it was */
+        synchronized boolean dropIfFull() {
+            refill();
+            dropped = tokens >= burstTokens && hashes >= burstHashes;
+            return dropped;
+        }
+
+        /** adds the tokens and the hashes earned since the last refill */
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(burstTokens, tokens + (now - lastRefillNanos) * tokensPerSecond / 1e9);
+            hashes = Math.min(burstHashes, hashes + (now - lastRefillNanos) * hashesPerSecond / 1e9);
+            lastRefillNanos = now;
+        }
+    }
+}
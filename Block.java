@@ -12,6 +12,9 @@
  * nonce - determined by a proof of work routine.
  * difficulty - exact number of left most hex digits
  * needed by a proper hash
+ * target - the largest proper hash, set when the server retargets
+ * the blocks, otherwise the hashes with difficulty leading hex zeroes
+ * header version - the layout of the bytes hashed, see BlockHeader
  */
 
 package com.spentyal.andrew;
@@ -20,14 +23,15 @@ package com.spentyal.andrew;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.sql.Timestamp;
+import java.util.function.LongConsumer;
 
 /**  represents a simple Block */
 public class Block {
 
     // captures the position of the block on the chain
     private int index;
-    // captures the SHA256 hash of a block's parent
-    private String previousHash;
+    // captures the SHA256 hash of a block's parent, null for the genesis block
+    private Hash256 previousHash;
     // captures the block's single transaction details
     private String data;
     // a Java Timestamp object, it holds the time of the block's creation.
@@ -36,6 +40,10 @@ public class Block {
     private BigInteger nonce = new BigInteger("0");
     // captures the exact number of left most hex digits needed by a proper hash
     private int difficulty;
+    // captures the largest hash meeting the proof of work, null when the difficulty alone determines it
+    private Hash256 target;
+    // captures the layout of the bytes hashed, the canonical header unless the block was hashed before it existed
+    private int headerVersion = BlockHeader.CANONICAL_VERSION;
 
     /** Block Constructor */
     public Block(int index, Timestamp timestamp, String data, int difficulty) {
@@ -50,6 +58,27 @@ public class Block {
         this.difficulty = difficulty;
     }
 
+    /** Block copy constructor, a published block is copied before it is modified */
+    public Block(Block block) {
+
+        // copies the position within the chain
+        this.index = block.index;
+        // copies the hashpointer to the block's parent
+        this.previousHash = block.previousHash;
+        // copies the transaction of the block
+        this.data = block.data;
+        // copies the time the block was added
+        this.timeStamp = block.timeStamp;
+        // copies the nonce found by the proof of work
+        this.nonce = block.nonce;
+        // copies the number of leftmost nibbles that need to be 0
+        this.difficulty = block.difficulty;
+        // copies the largest proper hash
+        this.target = block.target;
+        // copies the layout of the bytes hashed
+        this.headerVersion = block.headerVersion;
+    }
+
     /** getter method for index */
     public int getIndex() {
         // returns the index of this block in the chain
@@ -63,13 +92,13 @@ public class Block {
     }
 
     /** getter method for previous hash */
-    public String getPreviousHash() {
+    public Hash256 getPreviousHash() {
         // returns a hashpointer to this block's parent
         return previousHash;
     }
 
     /** setter method for previous hash */
-    public void setPreviousHash(String previousHash) {
+    public void setPreviousHash(Hash256 previousHash) {
         // sets s hashpointer to this block's parent
         this.previousHash = previousHash;
     }
@@ -122,12 +151,60 @@ public class Block {
         this.difficulty = difficulty;
     }
 
-    /** computes SHA 256 hash value for the text string **/
-    public String calculateHash() {
+    /** getter method for target, null when the difficulty alone determines the proper hashes */
+    public Hash256 getTarget() {
+        // returns the target set on the block
+        return target;
+    }
+
+    /** setter method for target */
+    public void setTarget(Hash256 target) {
+        // sets the largest proper hash
+        this.target = target;
+    }
+
+    /** determines the largest hash meeting the proof of work of the block */
+    public Hash256 getHashTarget() {
+        // the target set on the block, or the largest hash with the requisite leading hex zeroes
+        return target != null ? target : Hash256.targetOf(difficulty);
+    }
+
+    /** determines if the given hash meets the proof of work of the block */
+    public boolean meetsTarget(Hash256 hash) {
+        // the hash must not be above the target
+        return hash.meetsTarget(getHashTarget());
+    }
+
+    /** getter method for header version */
+    public int getHeaderVersion() {
+        // returns the layout of the bytes hashed
+        return headerVersion;
+    }
+
+    /** setter method for header version */
+    public void setHeaderVersion(int headerVersion) {
+        // sets the layout of the bytes hashed
+        this.headerVersion = headerVersion;
+    }
+
+    /** computes SHA 256 hash value of the header of the block **/
+    public Hash256 calculateHash() {
+
+        // a block hashed before the canonical header existed keeps its hash
+        if (headerVersion == BlockHeader.LEGACY_VERSION) {
+            return calculateLegacyHash();
+        }
+        // the hash of the canonical header, encoded into the buffer of this thread
+        return BlockHeader.forThread().encode(this).hash();
+    }
+
+    /** computes SHA 256 hash value of the strings of the fields concatenated, as the first blocks were hashed.
+     * Only the first input.length() bytes of the UTF-8 encoding are hashed, which the hashes of those blocks depend on **/
+    private Hash256 calculateLegacyHash() {
 
         try {
             // hash of the concatenation of index, timestamp, data, previoushash, nonce and difficulty
-            String input = String.valueOf(index).concat(timeStamp.toString()).concat(data).concat(previousHash).concat(String.valueOf(nonce)).concat(String.valueOf(difficulty));
+            String input = String.valueOf(index).concat(timeStamp.toString()).concat(data).concat(Hash256.hexOf(previousHash)).concat(String.valueOf(nonce)).concat(String.valueOf(difficulty));
             // Create a SHA256 digest
             MessageDigest digest;
             digest = MessageDigest.getInstance("SHA-256");
@@ -137,8 +214,8 @@ public class Block {
             digest.update(input.getBytes("UTF-8"), 0, input.length());
             // collect result
             hashBytes = digest.digest();
-            // convert to Hex string
-            return convertToHex(hashBytes);
+            // the hash as a value, its hex string is only built if it is printed
+            return Hash256.of(hashBytes);
             // handles the exception
         } catch(Exception e) {
             e.printStackTrace();
@@ -148,26 +225,6 @@ public class Block {
     }
 
 
-    // code from Stack overflow
-    // converts a byte array to a string.
-    // each nibble (4 bits) of the byte array is represented
-    // by a hex characer (0,1,2,3,...,9,a,b,c,d,e,f)
-    private static String convertToHex(byte[] data) {
-        StringBuffer buf = new StringBuffer();
-        for (int i = 0; i < data.length; i++) {
-            int halfbyte = (data[i] >>> 4) & 0x0F;
-            int two_halfs = 0;
-            do {
-                if ((0 <= halfbyte) && (halfbyte <= 9))
-                    buf.append((char) ('0' + halfbyte));
-                else
-                    buf.append((char) ('a' + (halfbyte - 10)));
-                halfbyte = data[i] & 0x0F;
-            } while(two_halfs++ < 1);
-        }
-        return buf.toString();
-    }
-
     /** A JSON representation of all of this block's data is returned. */
     @Override
     public String toString() {
@@ -175,34 +232,77 @@ public class Block {
         // returns the JSON representation of the block
         return "Block{" +
                 "index=" + index +
-                ", previousHash='" + previousHash + '\'' +
+                ", previousHash='" + Hash256.hexOf(previousHash) + '\'' +
                 ", data='" + data + '\'' +
                 ", timeStamp=" + timeStamp +
                 ", nonce=" + nonce +
                 ", difficulty=" + difficulty +
+                (target == null ? "" : ", target=" + target) +
                 '}';
     }
 
 
     /** method to find a good hash */
-    public String proofOfWork() {
+    public Hash256 proofOfWork() {
+        // searched on this thread, in a single range
+        return proofOfWork(Miner.LOCAL, Long.MAX_VALUE, null);
+    }
+
+    /** method to find a good hash with the given miner, searching the given number of nonces at a time and telling the
+     * listener, if any, the last nonce searched after each range without a good hash. Throws IllegalStateException if
+     * no nonce up to the largest long gives a good hash. */
+    public Hash256 proofOfWork(Miner miner, long rangeNonces, LongConsumer searchedThrough) {
 
-        // compute a hash of the concatenation of the index, timestamp, data, previousHash, nonce, and difficulty
-        String blockHash  = calculateHash();
+        // the flight recorder event of the search, left empty when no recording wants it
+        ChainEvents.MiningEvent event = new ChainEvents.MiningEvent();
+        event.begin();
+        // captures the number of nonces tried
+        long nonces = 1;
+        long startNonce = nonce.longValue();
 
-        // hash that has the requisite number of leftmost 0's (proof of work) as specified in the difficulty field
-        String target = new String(new char[difficulty]).replace('\0', '0');
-        // until the hash of the block has the appropriate number of leading hex zeroes
-        while(!blockHash.substring( 0, difficulty).equals(target)) {
-            // increment the nonce by 1
-            nonce = nonce.add(new BigInteger("1"));
+        // compute a hash of the header of the block
+        Hash256 blockHash  = calculateHash();
+
+        // a block that needs a new nonce is mined with the canonical header, whatever its layout was
+        Hash256 hashTarget = getHashTarget();
+        if (!blockHash.meetsTarget(hashTarget)) {
+            headerVersion = BlockHeader.CANONICAL_VERSION;
+            // the header is encoded once, only its nonce changes
+            byte[] header = BlockHeader.forThread().encode(this).toBytes();
+            long candidate = startNonce;
+            // until a range holds a nonce giving a hash at or below the target
+            while (true) {
+                long count = Math.min(rangeNonces, Long.MAX_VALUE - candidate);
+                // every nonce is searched, the block can not be mined
+                if (count <= 0) {
+                    throw new IllegalStateException("No nonce of block " + index + " from " + startNonce + " meets its target");
+                }
+                long found = miner.search(header, hashTarget, candidate, count);
+                if (found != Miner.NOT_FOUND) {
+                    candidate = found;
+                    break;
+                }
+                candidate += count;
+                if (searchedThrough != null) {
+                    searchedThrough.accept(candidate - 1);
+                }
+            }
             // set the nonce
-            setNonce(nonce);
-            // compute a hash of the concatenation of the index, timestamp, data, previousHash, nonce, and difficulty
+            setNonce(BigInteger.valueOf(candidate));
+            nonces = candidate - startNonce + 1;
             blockHash = calculateHash();
         }
 
-        // return the hash that has the appropriate number of leading hex zeroes
+        // records the search if a recording wants it
+        event.end();
+        if (event.shouldCommit()) {
+            event.index = index;
+            event.difficulty = difficulty;
+            event.nonces = nonces;
+            event.commit();
+        }
+
+        // return the hash at or below the target
         return blockHash;
     }
 
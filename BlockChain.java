@@ -10,6 +10,8 @@
  * It is menu driven and will continously provide the user
  * with seven options. Based on the option selected by
  * the user the corresponding action is performed.
+ * Every mutation publishes a new immutable version of the chain,
+ * so readers work on a consistent snapshot without taking locks.
  */
 package com.spentyal.andrew;
 
@@ -19,63 +21,303 @@ import java.security.MessageDigest;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /** This class represents a simple BlockChain.*/
 public class BlockChain {
 
-    // an ArrayList to hold Blocks
-    List<Block> chain;
-    // chain hash to hold a SHA256 hash of the most recently added Block
-    String chainHash;
-    // index of the invalid block
-    static int invalidBlockIndex;
+    // the most recently published version of the chain, read without locking
+    private volatile ChainSnapshot current;
+    // serializes the writers, readers never take this lock
+    private final Object writeLock = new Object();
+    // the responses of the read operations, valid until the next version is published
+    private final ResponseCache responseCache = new ResponseCache();
+    // told of every version published, such as the replication to the followers
+    private volatile Consumer<ChainSnapshot> publishListener;
+    // searches the nonces of the blocks of every chain, the threads of the server unless set otherwise
+    private static volatile Miner miner = Miner.LOCAL;
+    // the checkpoints of the blocks being appended to every chain, null if none are kept
+    private static volatile MiningCheckpoints checkpoints;
+    // picks the target of the blocks added to every chain, null to mine them at the difficulty of the client
+    private static volatile DifficultyRetargeter retargeter;
+    // the key of this chain in the registry, null for a chain outside any registry
+    private volatile String chainKey;
+    // index of the invalid block, kept per thread as readers run concurrently
+    private static final ThreadLocal<Integer> invalidBlockIndex = ThreadLocal.withInitial(() -> 0);
     // string that represents the number of leftmost hex digits to be present for the invali block
-    static String hashTargetforInvalidBlock;
+    private static final ThreadLocal<String> hashTargetforInvalidBlock = new ThreadLocal<String>();
 
     // Blockchain constructor
     public BlockChain() {
-        // an empty ArrayList for Block storage
-        chain = new ArrayList<Block>();
-        // sets the chain hash to the empty string
-        chainHash = "";
+        // an empty chain, without a chain hash
+        current = ChainSnapshot.EMPTY;
+    }
+
+    // Blockchain constructor, restores a chain whose blocks were already mined
+    BlockChain(ChainSnapshot snapshot) {
+        // the restored chain is published as is, without any proof of work
+        current = snapshot;
+    }
+
+    /** takes a consistent snapshot of the chain without waiting for writers */
+    public ChainSnapshot snapshot() {
+        // returns the most recently published version
+        return current;
+    }
+
+    /** getter method for the response cache of this chain */
+    public ResponseCache getResponseCache() {
+        // returns the cache of the read responses
+        return responseCache;
+    }
+
+    /** setter method for the listener told of every version published */
+    public void setPublishListener(Consumer<ChainSnapshot> publishListener) {
+        // sets the listener, replacing any earlier one
+        this.publishListener = publishListener;
+    }
+
+    /** setter method for the miner of the blocks of every chain */
+    public static void setMiner(Miner blockMiner) {
+        // sets the miner, used from the next block mined
+        miner = blockMiner;
+    }
+
+    /** setter method for the checkpoints of the blocks being appended to every chain */
+    public static void setCheckpoints(MiningCheckpoints miningCheckpoints) {
+        // sets the checkpoints, used from the next block mined
+        checkpoints = miningCheckpoints;
+    }
+
+    /** setter method for the retargeting of the blocks added to every chain */
+    public static void setRetargeter(DifficultyRetargeter blockRetargeter) {
+        // sets the retargeting, used from the next block added
+        retargeter = blockRetargeter;
+    }
+
+    /** setter method for the key of this chain in the registry */
+    void setChainKey(String chainKey) {
+        // sets the key, written with the checkpoints of its blocks
+        this.chainKey = chainKey;
+    }
+
+    /** publishes a new version of the chain, must be called holding the write lock */
+    private void publish(List<Block> blocks, Hash256 chainHash) {
+        // a single volatile write makes the blocks and the chain hash visible together
+        current = current.next(blocks, chainHash);
+        notifyPublished();
+    }
+
+    /** tells the listener of the version just published, in the order the versions are published */
+    private void notifyPublished() {
+        Consumer<ChainSnapshot> listener = publishListener;
+        if (listener != null) {
+            listener.accept(current);
+        }
+    }
+
+    /** publishes the version of the chain sent by the leader: the blocks from the given index on are replaced by the
+     * given blocks, each with the version in which it was last changed. The blocks were mined by the leader, so they
+     * are published as is. Returns false if this chain does not hold the blocks before the given index. */
+    public boolean replicate(int from, List<Block> blocks, long[] blocksModifiedAt, Hash256 chainHash, long version) {
+
+        synchronized (writeLock) {
+            // the version the blocks are applied to
+            ChainSnapshot base = current;
+            if (from > base.size()) {
+                return false;
+            }
+            // the blocks before the index are kept, along with their versions
+            List<Block> chain = new ArrayList<Block>(base.getBlocks().subList(0, from));
+            chain.addAll(blocks);
+            long[] modifiedAt = new long[chain.size()];
+            for (int i = 0; i < chain.size(); i++) {
+                modifiedAt[i] = i < from ? base.getModifiedAt(i) : blocksModifiedAt[i - from];
+            }
+            // a new leader may send a lower version than this replica held, whose cached responses would never be replaced
+            if (version < base.getVersion()) {
+                responseCache.clear();
+            }
+            // readers see the whole version at once
+            current = new ChainSnapshot(chain, chainHash, version, modifiedAt);
+            notifyPublished();
+            return true;
+        }
+    }
+
+    /** publishes the given branch, from its genesis block, or from a block of this chain, to its tip, in place of the
+     * blocks of this chain from its first block on. The blocks were validated in the block tree, so they are published
+     * as is. Returns false if the chain is no longer at the expected tip, as a block was mined or changed in the
+     * meantime, or does not hold the block the branch starts on. */
+    public boolean reorganize(List<Block> branch, Hash256 tipHash, Hash256 expectedChainHash) {
+
+        synchronized (writeLock) {
+            // the fork choice was made against the expected tip
+            Hash256 chainHash = current.getChainHash();
+            if (chainHash == null ? expectedChainHash != null : !chainHash.equals(expectedChainHash)) {
+                return false;
+            }
+            // the blocks before the branch are kept, if the branch starts on the last of them
+            int from = branch.get(0).getIndex();
+            if (!holdsParent(current, branch.get(0))) {
+                return false;
+            }
+            List<Block> chain = new ArrayList<Block>(current.getBlocks().subList(0, from));
+            chain.addAll(branch);
+            // the blocks shared with this chain keep their versions
+            publish(chain, tipHash);
+            return true;
+        }
+    }
+
+    /** determines if the given version holds the parent of the block, always true for a genesis block */
+    public static boolean holdsParent(ChainSnapshot snapshot, Block block) {
+        // the block before it is the parent if it has the previous hash of the block
+        int index = block.getIndex();
+        return index == 0 || (index <= snapshot.size()
+                && snapshot.getBlocks().get(index - 1).calculateHash().equals(block.getPreviousHash()));
     }
 
     /** repairs the blockchain */
     public void repairChain() {
 
-        // for every block in the blockchain
-        for(int i=0; i<getChainSize(); i++) {
-            // each block in the blockchain
-            Block currentBlock = chain.get(i);
-            // hash that has the requisite number of leftmost 0's (proof of work) as specified in the difficulty field
-            String hashTarget = new String(new char[currentBlock.getDifficulty()]).replace('\0', '0');
-
-            // if the block is invalid
-            if(!currentBlock.calculateHash().substring( 0, currentBlock.getDifficulty()).equals(hashTarget)) {
-                // determine the actual hash by computing the proof of work
-                String actualHash = currentBlock.proofOfWork();
-                // if a block next to the current block exists
-                if(i < getChainSize()-1 && chain.get(i+1) != null) {
-                    // set the computed hash as the previous hash to the next block
-                    chain.get(i+1).setPreviousHash(actualHash);
-                    // if its the last block in the blockchain
+        // the flight recorder event of the repair
+        ChainEvents.RepairEvent event = new ChainEvents.RepairEvent();
+        event.begin();
+        // captures the number of blocks mined again
+        int repairedBlocks = 0;
+
+        synchronized (writeLock) {
+            // the version being repaired
+            ChainSnapshot base = current;
+            // the blocks of the next version
+            List<Block> chain = base.copyBlocks();
+            // the chain hash of the next version
+            Hash256 chainHash = base.getChainHash();
+
+            // for every block in the blockchain
+            for(int i=0; i<chain.size(); i++) {
+                // each block in the blockchain
+                Block currentBlock = chain.get(i);
+
+                // if the hash of the block is above its target (proof of work)
+                if(!currentBlock.meetsTarget(currentBlock.calculateHash())) {
+                    // the published block is copied before the proof of work changes its nonce
+                    currentBlock = new Block(currentBlock);
+                    chain.set(i, currentBlock);
+                    // determine the actual hash by computing the proof of work
+                    Hash256 actualHash = mine(currentBlock);
+                    repairedBlocks++;
+                    // if a block next to the current block exists
+                    if(i < chain.size()-1 && chain.get(i+1) != null) {
+                        // copy the next block and set the computed hash as its previous hash
+                        Block nextBlock = new Block(chain.get(i+1));
+                        nextBlock.setPreviousHash(actualHash);
+                        chain.set(i+1, nextBlock);
+                        // if its the last block in the blockchain
+                    } else {
+                        // set the computed hash as the chainhash
+                        chainHash = actualHash;
+                    }
+                }
+            }
+
+            // readers see the repaired chain only once every block is repaired
+            publish(chain, chainHash);
+        }
+
+        // records the repair if a recording wants it
+        event.end();
+        if (event.shouldCommit()) {
+            event.blocks = current.size();
+            event.repairedBlocks = repairedBlocks;
+            event.commit();
+        }
+    }
+
+    /** moves every block still hashed with the legacy layout to the canonical header, see BlockHeader.
+     * A block's hash changes with its layout, so each such block is mined again and the blocks after it are
+     * linked to the new hash, mined again too when they no longer have the requisite leading zeroes.
+     * Returns the number of blocks mined again. */
+    public int migrateHeaders() {
+
+        synchronized (writeLock) {
+            // the version being migrated
+            ChainSnapshot base = current;
+            // the blocks of the next version
+            List<Block> chain = base.copyBlocks();
+            // captures the number of blocks mined again
+            int migratedBlocks = 0;
+            // the hash of the previous block of the next version
+            Hash256 previousBlockHash = null;
+
+            // for every block in the blockchain
+            for (int i = 0; i < chain.size(); i++) {
+                Block currentBlock = chain.get(i);
+                // a legacy block, or a block whose parent was mined again
+                if (currentBlock.getHeaderVersion() == BlockHeader.LEGACY_VERSION
+                        || (i > 0 && !previousBlockHash.equals(currentBlock.getPreviousHash()))) {
+                    // the published block is copied before its header and nonce change
+                    currentBlock = new Block(currentBlock);
+                    chain.set(i, currentBlock);
+                    if (i > 0) {
+                        currentBlock.setPreviousHash(previousBlockHash);
+                    }
+                    currentBlock.setHeaderVersion(BlockHeader.CANONICAL_VERSION);
+                    previousBlockHash = mine(currentBlock);
+                    migratedBlocks++;
                 } else {
-                    // set the computed hash as the chainhash
-                    chainHash = actualHash;
+                    previousBlockHash = currentBlock.calculateHash();
                 }
             }
+
+            // readers see the migrated chain only once every block is migrated
+            if (migratedBlocks > 0) {
+                publish(chain, previousBlockHash);
+            }
+            return migratedBlocks;
         }
     }
 
+    /** determines if a block of the most recently published version is still hashed with the legacy layout */
+    public boolean hasLegacyHeaders() {
+        // looks at each block of the current version
+        for (Block block : current.getBlocks()) {
+            if (block.getHeaderVersion() == BlockHeader.LEGACY_VERSION) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /** changes the transaction data for the existing block */
     public void corruptBlockChain(int blockID, String blockData) {
 
-        // corrupt the block by modifying its transaction data
-        chain.get(blockID).setData(blockData);
+        synchronized (writeLock) {
+            // the version being corrupted
+            ChainSnapshot base = current;
+            // the blocks of the next version
+            List<Block> chain = base.copyBlocks();
+            // corrupt a copy of the block by modifying its transaction data
+            Block corruptedBlock = new Block(chain.get(blockID));
+            corruptedBlock.setData(blockData);
+            chain.set(blockID, corruptedBlock);
+            // publish the corrupted chain
+            publish(chain, base.getChainHash());
+        }
     }
 
     /** display the entire Blockchain contents as a correctly formed JSON document */
     public String viewBlockChain() {
+        // views the most recently published version
+        return viewBlockChain(current);
+    }
+
+    /** display the given version of the Blockchain as a correctly formed JSON document */
+    public String viewBlockChain(ChainSnapshot snapshot) {
 
         // JSON string for each block in the chain
         String blockchainJson = "";
@@ -83,20 +325,9 @@ public class BlockChain {
         String finalBlockchainJson = "";
 
         // for each block in the block chain
-        for(Block eachBlock : chain) {
-            // captures the index of the block
-            blockchainJson = blockchainJson.concat("{\"index\" : ");
-            // captures the timestamp of the block
-            blockchainJson = blockchainJson.concat(String.valueOf(eachBlock.getIndex())).concat(",\"time stamp \" : \"");
-            // captures the TX of the block
-            blockchainJson = blockchainJson.concat(eachBlock.getTimeStamp().toString()).concat("\",\"Tx \": \"");
-            // captures the prevhash of the block
-            blockchainJson = blockchainJson.concat(eachBlock.getData()).concat("\",\"PrevHash\" : \"");
-            // captures the nonce of the block
-            blockchainJson = blockchainJson.concat(eachBlock.getPreviousHash()).concat("\",\"nonce\" : ");
-            // captures the difficulty of the block
-            blockchainJson = blockchainJson.concat(String.valueOf(eachBlock.getNonce())).concat(",\"difficulty\": ");
-            blockchainJson = blockchainJson.concat(String.valueOf(eachBlock.getDifficulty())).concat("},");
+        for(Block eachBlock : snapshot.getBlocks()) {
+            // captures the JSON string of the block
+            blockchainJson = blockchainJson.concat(blockJSONString(eachBlock)).concat(",");
         }
 
         // to omit the last comma
@@ -107,31 +338,170 @@ public class BlockChain {
         // contents of each block in the blockchain
         finalBlockchainJson = finalBlockchainJson.concat(blockchainJson);
         // captures the chainhash of the block chain
-        finalBlockchainJson = finalBlockchainJson.concat(" ], \"chainHash\":\"" + chainHash + "\"}");
+        finalBlockchainJson = finalBlockchainJson.concat(" ], \"chainHash\":\"" + Hash256.hexOf(snapshot.getChainHash()) + "\"}");
 
         // returns the JSON representation of the block chain
         return finalBlockchainJson;
 
     }
 
+    /** determines the JSON string representation of a block */
+    private static String blockJSONString(Block eachBlock) {
+
+        // JSON string for the block
+        String blockJson = "";
+        // captures the index of the block
+        blockJson = blockJson.concat("{\"index\" : ");
+        // captures the timestamp of the block
+        blockJson = blockJson.concat(String.valueOf(eachBlock.getIndex())).concat(",\"time stamp \" : \"");
+        // captures the TX of the block
+        blockJson = blockJson.concat(eachBlock.getTimeStamp().toString()).concat("\",\"Tx \": \"");
+        // captures the prevhash of the block
+        blockJson = blockJson.concat(eachBlock.getData()).concat("\",\"PrevHash\" : \"");
+        // captures the nonce of the block
+        blockJson = blockJson.concat(Hash256.hexOf(eachBlock.getPreviousHash())).concat("\",\"nonce\" : ");
+        // captures the difficulty of the block
+        blockJson = blockJson.concat(String.valueOf(eachBlock.getNonce())).concat(",\"difficulty\": ");
+        blockJson = blockJson.concat(String.valueOf(eachBlock.getDifficulty()));
+        // captures the target of a retargeted block
+        if (eachBlock.getTarget() != null) {
+            blockJson = blockJson.concat(",\"target\": \"").concat(eachBlock.getTarget().toString()).concat("\"");
+        }
+        blockJson = blockJson.concat("}");
+
+        // returns the JSON representation of the block
+        return blockJson;
+    }
+
+    /** determines the blocks a client holding the first height blocks of the given version must fetch, as a JSON document.
+     * The client sends the hash of the last block it holds. If a block below its height was changed since its version,
+     * by a repair or a corruption, the chain diverged there and the blocks are sent from that index on. */
+    public String syncBlockChain(ChainSnapshot snapshot, int height, Hash256 tipHash, long sinceVersion) {
+
+        // the first block the client must fetch, at most the whole chain
+        int from = Math.max(0, Math.min(height, snapshot.size()));
+
+        // a client that knows a version this chain never reached, or a different last block, has a different chain
+        if (sinceVersion > snapshot.getVersion() || height > snapshot.size()
+                || (from > 0 && !snapshot.getBlocks().get(from - 1).calculateHash().equals(tipHash))) {
+            from = 0;
+        } else {
+            // the lowest block the client holds that changed since its version
+            for (int i = 0; i < from; i++) {
+                if (snapshot.getModifiedAt(i) > sinceVersion) {
+                    from = i;
+                    break;
+                }
+            }
+        }
+
+        // the JSON string of each block to fetch
+        StringJoiner blocksJson = new StringJoiner(",");
+        for (Block eachBlock : snapshot.getBlocks().subList(from, snapshot.size())) {
+            blocksJson.add(blockJSONString(eachBlock));
+        }
+        // the hash of the last block, which the client sends back on its next sync
+        String lastHash = snapshot.size() == 0 ? "" : snapshot.getLatestBlock().calculateHash().toString();
+
+        // captures the response JSON string
+        String blockChainString = "";
+        blockChainString = blockChainString.concat("{");
+        // captures the operation
+        blockChainString = blockChainString.concat("\"Operation\" : ").concat("9");
+        // captures the version the client is now synced to
+        blockChainString = blockChainString.concat(",\"version\" : ").concat(String.valueOf(snapshot.getVersion()));
+        // captures the size of the chain
+        blockChainString = blockChainString.concat(",\"height\" : ").concat(String.valueOf(snapshot.size()));
+        // captures the hash of the last block, quoted like the hashes of the blocks and empty for an empty chain
+        blockChainString = blockChainString.concat(",\"tipHash\" : \"").concat(lastHash).concat("\"");
+        // captures the index of the first block sent, below the client's height if the chain diverged
+        blockChainString = blockChainString.concat(",\"from\" : ").concat(String.valueOf(from));
+        blockChainString = blockChainString.concat(",\"diverged\" : ").concat(String.valueOf(from < height));
+        // captures the blocks to fetch
+        blockChainString = blockChainString.concat(",\"blocks\" : [ ").concat(blocksJson.toString()).concat(" ]");
+        blockChainString = blockChainString.concat("}");
+
+        // returns the JSON representation of the blocks to fetch
+        return blockChainString;
+    }
+
     /** A new Block is being added to the BlockChain */
     public void addBlock(Block newBlock) {
 
+        synchronized (writeLock) {
+            // the blocks of the next version
+            List<Block> chain = current.copyBlocks();
+            // chainHash contains the hash of the most recently added block
+            publish(chain, appendBlock(chain, newBlock));
+        }
+
+    }
+
+    /** adds a block whose search was checkpointed before a restart, see MiningCheckpoints, if it still extends this
+     * chain. Returns false if the chain has moved on. */
+    public boolean resumeBlock(Block block) {
+
+        synchronized (writeLock) {
+            // the block must follow the tip the search started on
+            if (block.getIndex() == 0 || block.getIndex() != current.size() || !block.getPreviousHash().equals(current.getChainHash())) {
+                return false;
+            }
+            // the search resumes from its checkpoint
+            addBlock(block);
+            return true;
+        }
+    }
+
+    /** appends a block to the blocks of the next version and returns its hash */
+    private Hash256 appendBlock(List<Block> chain, Block newBlock) {
+
         // if genesis block to be added
         if(chain.size() == 0) {
-            // previous hash for the genesis block is set as empty string
-            newBlock.setPreviousHash("");
+            // the genesis block has no previous hash, hashed as the empty string
+            newBlock.setPreviousHash(null);
             // if genesis block already exists
         } else {
+            // the published block is copied, as the proof of work may change its nonce
+            Block latestBlock = new Block(chain.get(chain.size() - 1));
+            chain.set(chain.size() - 1, latestBlock);
             // This new block's previous hash must hold the hash of the most recently added block
-            newBlock.setPreviousHash(chain.get(getChainSize() - 1).proofOfWork());
+            newBlock.setPreviousHash(latestBlock.proofOfWork());
         }
 
         // adding the block to the chain
         chain.add(newBlock);
-        // chainHash contains the hash of the most recently added block
-        chainHash = newBlock.proofOfWork();
+        // returns the hash of the added block
+        return mine(newBlock, chain.subList(0, chain.size() - 1));
+    }
+
+    /** computes the proof of work of the block, counting the nonces tried and the time taken */
+    private Hash256 mine(Block block) {
+        // a block of the chain mined again is not checkpointed
+        return mine(block, null);
+    }
 
+    /** computes the proof of work of the block appended to the given blocks, checkpointed if checkpoints are kept */
+    private Hash256 mine(Block block, List<Block> parentBlocks) {
+        // the nonce the search starts from
+        BigInteger startNonce = block.getNonce();
+        long startNanos = System.nanoTime();
+        // the hash with the appropriate number of leading hex zeroes
+        MiningCheckpoints blockCheckpoints = checkpoints;
+        Hash256 blockHash;
+        if (blockCheckpoints == null || parentBlocks == null || chainKey == null) {
+            blockHash = block.proofOfWork(miner, Long.MAX_VALUE, null);
+        } else {
+            blockHash = blockCheckpoints.mine(chainKey, parentBlocks, current, block, miner);
+        }
+        long nonces = block.getNonce().subtract(startNonce).longValue() + 1;
+        long nanos = System.nanoTime() - startNanos;
+        ServerMetrics.getInstance().recordMining(nonces, nanos);
+        // the hash rate of the blocks mined sets the targets of the next ones
+        DifficultyRetargeter blockRetargeter = retargeter;
+        if (blockRetargeter != null) {
+            blockRetargeter.recordMining(nonces, nanos);
+        }
+        return blockHash;
     }
 
 
@@ -139,83 +509,119 @@ public class BlockChain {
      * the block and checks that the hash has the requisite number of leftmost 0's (proof of work) as specified in the difficulty field.
      */
     public boolean isChainValid() {
+        // validates the most recently published version
+        return isChainValid(current);
+    }
+
+    /** validates the given version of the chain, see isChainValid() */
+    public boolean isChainValid(ChainSnapshot snapshot) {
+
+        // the flight recorder event of the validation
+        ChainEvents.ValidationEvent event = new ChainEvents.ValidationEvent();
+        event.begin();
+        boolean valid = validate(snapshot);
+        // records the validation if a recording wants it
+        event.end();
+        if (event.shouldCommit()) {
+            event.blocks = snapshot.size();
+            event.valid = valid;
+            event.commit();
+        }
+        return valid;
+    }
+
+    /** validates the given version of the chain, see isChainValid() */
+    private boolean validate(ChainSnapshot snapshot) {
+
+        // the invalid block of an earlier validation is forgotten
+        invalidBlockIndex.set(0);
+        hashTargetforInvalidBlock.remove();
+        // the blocks of this version
+        List<Block> chain = snapshot.getBlocks();
+        // the chain hash of this version
+        Hash256 chainHash = snapshot.getChainHash();
 
         // If the chain only contains one block
-        if(getChainSize() == 1) {
+        if(chain.size() == 1) {
 
             // genesis block at the position 0
             Block genesisBlock = chain.get(0);
+            // the hash of the genesis block, computed once
+            Hash256 genesisHash = genesisBlock.calculateHash();
             // hash that has the requisite number of leftmost 0's (proof of work) as specified in the difficulty field
-            String hashTarget = new String(new char[genesisBlock.getDifficulty()]).replace('\0', '0');
+            String hashTarget = hashTargetOf(genesisBlock);
 
-            /** if  hash of the block has the requisite number of leftmost 0's (proof of work) as specified in the difficulty field,
+            /** if  hash of the block is at most its target (proof of work),
              * and, if chain hash is equal to this computed hash, return true. Else return false
              */
-            if(genesisBlock.calculateHash().substring(0, genesisBlock.getDifficulty()).equals(hashTarget) && chainHash != null && chainHash.equalsIgnoreCase(genesisBlock.calculateHash())) {
+            if(genesisBlock.meetsTarget(genesisHash) && genesisHash.equals(chainHash)) {
                 return true;
             } else {
                 // captures the index of the invalid block
-                invalidBlockIndex = 0;
+                invalidBlockIndex.set(0);
                 // captures the hash target of the invalid block
-                hashTargetforInvalidBlock = hashTarget;
+                hashTargetforInvalidBlock.set(hashTarget);
                 return false;
             }
 
             // if the chain has more than one block
-        } else if(getChainSize() > 1) {
+        } else if(chain.size() > 1) {
 
             // genesis block at the position 0
             Block genesisBlock = chain.get(0);
+            // the hash of the previous block, each block is hashed once
+            Hash256 previousBlockHash = genesisBlock.calculateHash();
             // hash that has the requisite number of leftmost 0's (proof of work) as specified in the difficulty field
-            String hashTarget = new String(new char[genesisBlock.getDifficulty()]).replace('\0', '0');
+            String hashTarget = hashTargetOf(genesisBlock);
 
-            /** if  hash of the block has the requisite number of leftmost 0's (proof of work) as specified in the difficulty field,
+            /** if  hash of the block is at most its target (proof of work),
              * and, if chain hash is equal to this computed hash, return true. Else return false
              */
-            if(genesisBlock.calculateHash().substring(0, genesisBlock.getDifficulty()).equals(hashTarget)) {
+            if(genesisBlock.meetsTarget(previousBlockHash)) {
                 //nothing
             } else {
                 // captures the index of the invalid block
-                invalidBlockIndex = 0;
+                invalidBlockIndex.set(0);
                 // captures the hash target of the invalid block
-                hashTargetforInvalidBlock = hashTarget;
+                hashTargetforInvalidBlock.set(hashTarget);
                 return false;
             }
 
             // for each block till the end of the chain
-            for(int i=1; i < getChainSize(); i++) {
+            for(int i=1; i < chain.size(); i++) {
                 // current block
                 Block currentBlock = chain.get(i);
-                // block previous to the current block
-                Block previousBlock = chain.get(i-1);
                 // hash that has the requisite number of leftmost 0's (proof of work) as specified in the difficulty field
-                hashTarget = new String(new char[currentBlock.getDifficulty()]).replace('\0', '0');
+                hashTarget = hashTargetOf(currentBlock);
 
                 /** The first check will involve a computation of a hash in Block 0 and a comparison with the hash pointer in Block 1.
                  * If not same return false */
-                if(!previousBlock.calculateHash().equals(currentBlock.getPreviousHash())){
+                if(!previousBlockHash.equals(currentBlock.getPreviousHash())){
                     // captures the index of the invalid block
-                    invalidBlockIndex = currentBlock.getIndex();
+                    invalidBlockIndex.set(currentBlock.getIndex());
                     // captures the hash target of the invalid block
-                    hashTargetforInvalidBlock = hashTarget;
+                    hashTargetforInvalidBlock.set(hashTarget);
                     return false;
                 }
 
-                /** if  hash of the block has the requisite number of leftmost 0's (proof of work) as specified in the difficulty field,
+                /** if  hash of the block is at most its target (proof of work),
                  *  If not, return false
                  */
-                if(!currentBlock.calculateHash().substring( 0, currentBlock.getDifficulty()).equals(hashTarget)) {
+                Hash256 currentBlockHash = currentBlock.calculateHash();
+                if(!currentBlock.meetsTarget(currentBlockHash)) {
                     // captures the index of the invalid block
-                    invalidBlockIndex = currentBlock.getIndex();
+                    invalidBlockIndex.set(currentBlock.getIndex());
                     // captures the hash target of the invalid block
-                    hashTargetforInvalidBlock = hashTarget;
+                    hashTargetforInvalidBlock.set(hashTarget);
                     return false;
                 }
+                // the current block is the previous block of the next one
+                previousBlockHash = currentBlockHash;
             }
 
 
             //  if chain hash is equal to the computed hash of the last block in the chain. If not return false;
-            if(!chainHash.equals(chain.get(getChainSize() - 1).calculateHash())) {
+            if(!previousBlockHash.equals(chainHash)) {
                 return false;
             }
         }
@@ -225,22 +631,99 @@ public class BlockChain {
     }
 
 
+    /** determines the hash target reported for an invalid block: the leading zeroes of its difficulty, or the hex digits
+     * of its target if it was retargeted */
+    private static String hashTargetOf(Block block) {
+        // returns the target the hash of the block is compared with
+        if (block.getTarget() != null) {
+            return block.getTarget().toString();
+        }
+        return new String(new char[block.getDifficulty()]).replace('\0', '0');
+    }
+
     /** add transaction to the block chain */
     public String addTransactionToBlockChain(int difficulty, String transaction) {
 
-        // captures the start time of the process
-        long startTime = System.currentTimeMillis();
+        // a batch of a single transaction
+        List<Integer> difficulties = new ArrayList<Integer>();
+        difficulties.add(difficulty);
+        List<String> transactions = new ArrayList<String>();
+        transactions.add(transaction);
 
-        // create a block containing that transaction
-        Block newBlock = new Block(getChainSize(), getTime(), transaction, difficulty);
-        // add the block to the block chain
-        addBlock(newBlock);
+        try {
+            // returns the JSON representation of the JSON string
+            return addTransactionsToBlockChain(difficulties, transactions).get(0).join();
+            // handles the exception thrown while adding the transaction
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
 
-        // captures the end time of the process
-        long endTime = System.currentTimeMillis();
+    /** adds a batch of transactions as consecutive blocks, publishing a single new version of the chain. A transaction
+     * that fails completes its own response exceptionally, and the blocks mined before and after it are still added. */
+    public List<CompletableFuture<String>> addTransactionsToBlockChain(List<Integer> difficulties, List<String> transactions) {
+
+        // captures the response JSON string of each transaction
+        List<CompletableFuture<String>> responses = new ArrayList<CompletableFuture<String>>();
+
+        synchronized (writeLock) {
+            // the blocks of the next version, copied once for the whole batch
+            List<Block> chain = current.copyBlocks();
+            // the chain hash of the next version
+            Hash256 chainHash = current.getChainHash();
+            // the number of blocks mined by the batch
+            int added = 0;
+
+            // for each transaction in the batch
+            for(int i=0; i<transactions.size(); i++) {
+                // captures the start time of the process
+                long startTime = System.currentTimeMillis();
+                // the chain as it was before this transaction, restored if the transaction fails
+                int size = chain.size();
+                Block latestBlock = size == 0 ? null : chain.get(size - 1);
+
+                try {
+                    // create a block containing that transaction, positioned after the previous block of the batch
+                    Block newBlock = new Block(chain.size(), getTime(), transactions.get(i), difficulties.get(i));
+                    // the server picks the target instead of the client, if it retargets the blocks
+                    DifficultyRetargeter blockRetargeter = retargeter;
+                    if (blockRetargeter != null) {
+                        blockRetargeter.retarget(newBlock, latestBlock);
+                    }
+                    // add the block to the next version of the block chain
+                    chainHash = appendBlock(chain, newBlock);
+                    added++;
+
+                    // captures the end time of the process
+                    long endTime = System.currentTimeMillis();
+                    // captures the response JSON string
+                    responses.add(CompletableFuture.completedFuture(addTransactionResponse(endTime - startTime)));
+                    // handles the exception, failing only this transaction
+                } catch (RuntimeException e) {
+                    while (chain.size() > size) {
+                        chain.remove(chain.size() - 1);
+                    }
+                    if (latestBlock != null) {
+                        chain.set(size - 1, latestBlock);
+                    }
+                    CompletableFuture<String> response = new CompletableFuture<String>();
+                    response.completeExceptionally(e);
+                    responses.add(response);
+                }
+            }
 
-        // captures the total time of the process
-        long executionTime =  endTime - startTime;
+            // readers see the whole batch at once
+            if (added > 0) {
+                publish(chain, chainHash);
+            }
+        }
+
+        // returns the JSON representation of each transaction
+        return responses;
+    }
+
+    /** builds the response for a transaction added in the given time */
+    private static String addTransactionResponse(long executionTime) {
 
         // captures the response JSON string
         String blockChainString = "";
@@ -258,15 +741,21 @@ public class BlockChain {
 
     /** view the basic block chain status */
     public String viewBasicBlockChainStatus() {
+        // views the status of the most recently published version
+        return viewBasicBlockChainStatus(current);
+    }
+
+    /** view the basic status of the given version of the block chain */
+    public String viewBasicBlockChainStatus(ChainSnapshot snapshot) {
 
         // captures the number of blocks in the chain
-        int noOfBlocksOnChain = getChainSize();
+        int noOfBlocksOnChain = snapshot.size();
         // captures the number of hashes per second
         int currentHashesPerSecond = hashesPerSecond();
         // captures the difficulty of the most recently added block
-        int difficultOfMostRecentBlock = getLatestBlock().getDifficulty();
+        int difficultOfMostRecentBlock = snapshot.getLatestBlock().getDifficulty();
         // captures the nonce of the most recently added block
-        BigInteger nonceOfMostRecentBlock = getLatestBlock().getNonce();
+        BigInteger nonceOfMostRecentBlock = snapshot.getLatestBlock().getNonce();
 
         // captures the response JSON representation
         String blockChainString = "";
@@ -283,7 +772,7 @@ public class BlockChain {
         // captures the Nonce for most recent block
         blockChainString = blockChainString.concat(String.valueOf(difficultOfMostRecentBlock)).concat(",\"Nonce for most recent block\" : ");
         // captures the Chain Hash
-        blockChainString = blockChainString.concat(String.valueOf(nonceOfMostRecentBlock)).concat(",\"Chain hash\" : ").concat(chainHash);
+        blockChainString = blockChainString.concat(String.valueOf(nonceOfMostRecentBlock)).concat(",\"Chain hash\" : ").concat(Hash256.hexOf(snapshot.getChainHash()));
         blockChainString = blockChainString.concat("}");
 
         // returns the response JSON representation
@@ -293,7 +782,7 @@ public class BlockChain {
     /** determines a reference to the most recently added Block */
     public Block getLatestBlock() {
         // returns the reference to the most recently added Block
-        return chain.get(getChainSize() - 1);
+        return current.getLatestBlock();
     }
 
     /** determines hashes per second of the computer holding this chain */
@@ -304,10 +793,13 @@ public class BlockChain {
         long endTime = 0;
         // captures the number of hashes per second
         int noOfHashesPerSecond  = 0;
+        // the header of a block, hashed for each nonce as the proof of work does
+        BlockHeader header = BlockHeader.forThread().encode(new Block(0, getTime(), "00000000", 0));
         // within a second
         while((endTime - startTime)/1000 < 1) {
-            // determines the hash of the "00000000"
-            calculateHash("00000000");
+            // determines the hash of the header with the next nonce
+            header.setNonce(noOfHashesPerSecond);
+            header.digestHeader();
             // determines the end time of the process
             endTime = System.currentTimeMillis();
             // increments the number of hashes till a second
@@ -340,30 +832,32 @@ public class BlockChain {
     /** determines the size of the chain in blocks */
     public int getChainSize() {
         // returns the size of the chain
-        return chain.size();
+        return current.size();
     }
 
     /** String representation of the entire chain is returned */
     @Override
     public String toString() {
 
+        // a consistent version of the chain
+        ChainSnapshot snapshot = current;
         //  String representation of the entire chain is returned
         return "BlockChain{" +
-                "chain=" + chain +
-                ", chainHash='" + chainHash + '\'' +
+                "chain=" + snapshot.getBlocks() +
+                ", chainHash='" + Hash256.hexOf(snapshot.getChainHash()) + '\'' +
                 '}';
     }
 
-    /** determines the index of the invalid block */
+    /** determines the index of the invalid block found by this thread's last validation */
     public static int getInvalidBlockIndex() {
         // returns the index of the invalid block
-        return invalidBlockIndex;
+        return invalidBlockIndex.get();
     }
 
-    /** determines the number of leftmost 0s to be present on the invalid block */
+    /** determines the number of leftmost 0s to be present on the invalid block found by this thread's last validation */
     public static String getHashTargetforInvalidBlock() {
         // returns the number of leftmost 0s to be present on the invalid block
-        return hashTargetforInvalidBlock;
+        return hashTargetforInvalidBlock.get();
     }
 
     /** getter method for timestamp */
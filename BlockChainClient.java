@@ -0,0 +1,305 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates a client of the blockchain server that
+ * is called from code instead of a console menu. Each operation
+ * (status, add, verify, view, corrupt, repair, sync, stats) returns a future
+ * that completes with the response JSON of the server. The requests
+ * are signed with the client's key and sent on a pool of connections
+ * kept open to the server, as the server serves any number of
+ * requests on one connection. A connection idle for longer than the
+ * idle time is closed instead of reused, as the server drops idle
+ * connections once its read deadline passes. A response holding an
+ * error completes its future with a ServerError.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to call the server asynchronously
+import java.io.*;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.interfaces.RSAPublicKey;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/** an asynchronous client of the blockchain server, with a pool of connections */
+public class BlockChainClient implements Closeable {
+
+    // the address of the server
+    private final InetSocketAddress serverAddress;
+    // the time allowed to connect to the server, in milliseconds
+    private final int connectTimeoutMillis;
+    // the time allowed for a response, in milliseconds
+    private final int responseTimeoutMillis;
+    // the longest a pooled connection may stay idle before it is closed, in milliseconds
+    private final long maxIdleMillis;
+
+    // captures the client ID, by hashing the combined public key
+    private final String clientID;
+    // part of public key
+    private final BigInteger e;
+    // modulus
+    private final BigInteger n;
+    // signs the requests, reusing the digest of the client ID and public key
+    private final RequestSigner requestSigner;
+
+    // the connections waiting for a request
+    private final BlockingQueue<Connection> idleConnections;
+    // the threads sending the requests, one per connection of the pool
+    private final ExecutorService requestPool;
+
+    /** BlockChainClient constructor, for the server at the given address */
+    public BlockChainClient(String host, int port, KeyPair keyPair, int poolSize, int connectTimeoutMillis,
+                            int responseTimeoutMillis, long maxIdleMillis) throws GeneralSecurityException {
+
+        // where and how long to wait for the server
+        this.serverAddress = new InetSocketAddress(host, port);
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.responseTimeoutMillis = responseTimeoutMillis;
+        this.maxIdleMillis = maxIdleMillis;
+
+        // (e,n) is the RSA public key, whose hash is the client ID
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        this.e = publicKey.getPublicExponent();
+        this.n = publicKey.getModulus();
+        String combinedPublicKey = String.valueOf(e).concat(String.valueOf(n));
+        this.clientID = BlockChainTCPClient.ComputeSHA_256_as_Hex_String(combinedPublicKey);
+        this.requestSigner = new RequestSigner(clientID, combinedPublicKey, keyPair.getPrivate());
+
+        // at most one idle connection per thread of the pool
+        this.idleConnections = new LinkedBlockingQueue<Connection>(poolSize);
+        this.requestPool = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "blockchain-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** BlockChainClient constructor, for the local server, configured from the system properties */
+    public BlockChainClient(KeyPair keyPair) throws GeneralSecurityException {
+        this(System.getProperty("blockchain.host", "localhost"), Integer.getInteger("blockchain.port", 7777), keyPair,
+                Integer.getInteger("blockchain.clientPoolSize", 8),
+                Integer.getInteger("blockchain.connectTimeoutMillis", 5000),
+                Integer.getInteger("blockchain.responseTimeoutMillis", 600000),
+                Long.getLong("blockchain.clientMaxIdleMillis", 5000));
+    }
+
+    /** getter method for the client ID */
+    public String getClientID() {
+        // returns the hash of the combined public key
+        return clientID;
+    }
+
+    /** views the basic blockchain status (operation 0) */
+    public CompletableFuture<String> status() {
+        return call(0, String.valueOf(0), -1, "", -1, "");
+    }
+
+    /** adds a transaction to the blockchain at the given difficulty (operation 1) */
+    public CompletableFuture<String> add(int difficulty, String transaction) {
+        return call(1, String.valueOf(1).concat(String.valueOf(difficulty)).concat(transaction), difficulty, transaction, -1, "");
+    }
+
+    /** verifies the blockchain (operation 2) */
+    public CompletableFuture<String> verify() {
+        return call(2, String.valueOf(2), -1, "", -1, "");
+    }
+
+    /** views the blockchain (operation 3) */
+    public CompletableFuture<String> view() {
+        return call(3, String.valueOf(3), -1, "", -1, "");
+    }
+
+    /** corrupts the block with the given index (operation 4) */
+    public CompletableFuture<String> corrupt(int blockID, String blockData) {
+        return call(4, String.valueOf(4).concat(String.valueOf(blockID)).concat(blockData), -1, "", blockID, blockData);
+    }
+
+    /** repairs the blockchain (operation 5) */
+    public CompletableFuture<String> repair() {
+        return call(5, String.valueOf(5), -1, "", -1, "");
+    }
+
+    /** reads the metrics of the server (operation 10) */
+    public CompletableFuture<String> stats() {
+        return call(ServerMetrics.STATS_OPERATION, String.valueOf(ServerMetrics.STATS_OPERATION), -1, "", -1, "");
+    }
+
+    /** fetches the blocks after the first height blocks, held since the given version (operation 9).
+     * The tip hash is the hash of the last block held, as returned by the previous sync; a first sync sends 0, "" and 0. */
+    public CompletableFuture<String> sync(int height, String tipHash, long sinceVersion) {
+
+        // the request is signed and sent on a thread of the pool
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                // the height, the tip hash and the version are signed along with the operation
+                String sign = requestSigner.sign(String.valueOf(BlockChainTCPServer.SYNC_OPERATION)
+                        .concat(String.valueOf(height)).concat(tipHash).concat(String.valueOf(sinceVersion)));
+                return checked(send(BlockChainTCPClient.designSyncJSONString(clientID, e, n, sign, height, tipHash, sinceVersion)));
+                // the future completes with the cause of the failure
+            } catch (IOException | GeneralSecurityException ex) {
+                throw new CompletionException(ex);
+            }
+        }, requestPool);
+    }
+
+    /** signs and sends the request on a pooled connection, the future holds the response */
+    private CompletableFuture<String> call(int operation, String restOfRequest, int difficulty, String transaction, int blockID, String blockData) {
+
+        // the request is signed and sent on a thread of the pool
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                // the request, signed the way the console client signs it
+                String sign = requestSigner.sign(restOfRequest);
+                String request = BlockChainTCPClient.designJSONString(clientID, operation, e, n, sign, difficulty, transaction, blockID, blockData);
+
+                // the response of the server
+                return checked(send(request));
+                // the future completes with the cause of the failure
+            } catch (IOException | GeneralSecurityException ex) {
+                throw new CompletionException(ex);
+            }
+        }, requestPool);
+    }
+
+    /** returns the response, or throws a ServerError if it holds an error */
+    private static String checked(String response) throws ServerError {
+        // the server reports errors in place of the response
+        if (response.startsWith("{\"Error\" :")) {
+            throw new ServerError(response);
+        }
+        return response;
+    }
+
+    /** sends the request line on an idle connection, or a new one, and reads the response line */
+    private String send(String request) throws IOException {
+
+        // an idle connection, if one is still fresh
+        Connection connection = idleConnections.poll();
+        while (connection != null && connection.idleMillis() > maxIdleMillis) {
+            connection.close();
+            connection = idleConnections.poll();
+        }
+        if (connection == null) {
+            connection = new Connection();
+        }
+
+        // captures the response from the server
+        String response;
+        try {
+            connection.out.println(request);
+            connection.out.flush();
+            response = connection.in.readLine();
+            // a failed connection is not reused
+        } catch (IOException ex) {
+            connection.close();
+            throw ex;
+        }
+        // if the server closed the connection
+        if (response == null) {
+            connection.close();
+            throw new EOFException("Connection closed by the server");
+        }
+
+        // the connection is kept for the next request, unless the pool is full
+        connection.lastUsedMillis = System.currentTimeMillis();
+        if (!idleConnections.offer(connection)) {
+            connection.close();
+        }
+        return response;
+    }
+
+    /** closes the pooled connections and stops the threads of the pool */
+    @Override
+    public void close() {
+        // no more requests are sent
+        requestPool.shutdown();
+        // for each idle connection
+        Connection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    /** one connection to the server */
+    private class Connection {
+        // the socket to the server
+        private final Socket socket;
+        // reads the responses
+        private final BufferedReader in;
+        // sends the requests
+        private final PrintWriter out;
+        // the time the last response was read, in milliseconds
+        private long lastUsedMillis = System.currentTimeMillis();
+
+        Connection() throws IOException {
+            // the connection must be made within the connect deadline
+            socket = new Socket();
+            try {
+                socket.connect(serverAddress, connectTimeoutMillis);
+                // mining can take minutes, so the response has a long read deadline
+                socket.setSoTimeout(responseTimeoutMillis);
+                socket.setTcpNoDelay(true);
+                in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream())));
+                // the socket is closed if it can not be used
+            } catch (IOException ex) {
+                socket.close();
+                throw ex;
+            }
+        }
+
+        /** determines how long the connection has been idle, in milliseconds */
+        long idleMillis() {
+            return System.currentTimeMillis() - lastUsedMillis;
+        }
+
+        /** closes the socket */
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                // ignore exception on close
+            }
+        }
+    }
+
+    /** an error returned by the server, such as a rejected sign or a busy server */
+    public static class ServerError extends IOException {
+        // the version of the serialized form
+        private static final long serialVersionUID = 1L;
+        // the response holding the error
+        private final String response;
+
+        ServerError(String response) {
+            super(response);
+            this.response = response;
+        }
+
+        /** getter method for the response */
+        public String getResponse() {
+            // returns the response JSON of the server
+            return response;
+        }
+
+        /** determines the wait the server asked for before retrying, in milliseconds, or 0 if it did not */
+        public long getRetryAfterMillis() {
+            // if the server is busy
+            if (!response.contains("\"Retry-After\" :")) {
+                return 0;
+            }
+            String retryAfter = response.substring(response.indexOf("\"Retry-After\" :") + "\"Retry-After\" :".length());
+            return Long.parseLong(retryAfter.substring(0, retryAfter.indexOf("}")).trim());
+        }
+    }
+}
@@ -13,6 +13,12 @@
  * the reply is displayed (based on the operation chosen)
  * If the client chooses exit option the menu is no longer
  * shown to the client and the client stops running.
+ * In session mode (-Dblockchain.session=true) the client keeps
+ * one connection open, authenticates once with its RSA key and
+ * tags each later request with the session key instead of
+ * signing it.
+ * The RSA keys are generated on the first run and kept in a key
+ * file (-Dblockchain.keyFile), so the client ID stays the same.
  */
 
 package com.spentyal.andrew;
@@ -21,14 +27,40 @@ package com.spentyal.andrew;
 import java.io.*;
 import java.math.BigInteger;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.KeyPair;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
 import java.util.*;
+import java.util.stream.Collectors;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
 
 // marks the client in client server architecture
 public class BlockChainTCPClient {
 
+    // the algorithm signing the requests
+    static final String SIGNATURE_ALGORITHM = BlockChainTCPServer.SIGNATURE_ALGORITHM;
+
+    // the connection kept open in session mode
+    private static Socket sessionSocket;
+    // reads the responses of the session
+    private static BufferedReader sessionIn;
+    // sends the requests of the session
+    private static PrintWriter sessionOut;
+    // tags the requests with the session key
+    private static Mac sessionMac;
+    // the sequence number of the next request of the session
+    private static long sessionSequence;
+
     public static void main(String args[]) {
 
         try {
@@ -40,39 +72,39 @@ public class BlockChainTCPClient {
             // Each public and private key consists of an exponent and a modulus
             BigInteger n; // n is the modulus for both the private and public keys
             BigInteger e; // e is the exponent of the public key
-            BigInteger d; // d is the exponent of the private key
-
-            Random rnd = new Random();
-
-            // Step 1: Generate two large random primes.
-            // We use 400 bits here, but best practice for security is 2048 bits.
-            // Change 400 to 2048, recompile, and run the program again and you will
-            // notice it takes much longer to do the math with that many bits.
-            BigInteger p = new BigInteger(400, 100, rnd);
-            BigInteger q = new BigInteger(400, 100, rnd);
-
-            // Step 2: Compute n by the equation n = p * q.
-            n = p.multiply(q);
-
-            // Step 3: Compute phi(n) = (p-1) * (q-1)
-            BigInteger phi = (p.subtract(BigInteger.ONE)).multiply(q.subtract(BigInteger.ONE));
 
-            // Step 4: Select a small odd integer e that is relatively prime to phi(n).
+            // The RSA key pair generator picks two large random primes p and q,
+            // computes n = p * q and d as the inverse of e modulo (p-1) * (q-1).
             // By convention the prime 65537 is used as the public exponent.
-            e = new BigInteger("65537");
-
-            // Step 5: Compute d as the multiplicative inverse of e modulo phi(n).
-            d = e.modInverse(phi);
-
-            //System.out.println(" RSA Public Key = " + e);  // Step 6: (e,n) is the RSA public key
-            //System.out.println(" RSA Private Key = " + d);  // Step 7: (d,n) is the RSA private key
-            //System.out.println(" Modulus for both the RSA keys = " + n);  // Modulus for both keys
+            // We use 800 bits here, but best practice for security is 2048 bits,
+            // which -Dblockchain.keyBits=2048 gives for a new key file.
+            // Searching for the primes takes most of the startup time, so the keys are
+            // generated on the first run only and kept in the key file, which also keeps
+            // the client ID the same across runs. A pool of keys may be generated at once,
+            // and the key index picks the one used by this client.
+            List<KeyPair> keys = ClientKeyStore.loadOrGenerate(Paths.get(System.getProperty("blockchain.keyFile", "client.key")),
+                    Integer.getInteger("blockchain.keyPoolSize", 1), Integer.getInteger("blockchain.keyBits", ClientKeyStore.DEFAULT_KEY_BITS));
+            KeyPair keyPair = keys.get(Integer.getInteger("blockchain.keyIndex", 0) % keys.size());
+
+            // (e,n) is the RSA public key
+            RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+            n = publicKey.getModulus();
+            e = publicKey.getPublicExponent();
+            // the private key keeps p, q and the CRT exponents along with d, so signing
+            // works modulo p and q separately (Chinese Remainder Theorem) instead of modulo n
+            RSAPrivateCrtKey privateKey = (RSAPrivateCrtKey) keyPair.getPrivate();
 
             // captures the combined public key, e and n
             String combinedPublicKey = String.valueOf(e).concat(String.valueOf(n));
             // captures the client ID by hashing the combined public key
             String clientID = ComputeSHA_256_as_Hex_String(combinedPublicKey);
 
+            // in session mode the client authenticates once with its RSA key
+            boolean sessionMode = Boolean.getBoolean("blockchain.session");
+            if (sessionMode) {
+                startSession(clientID, combinedPublicKey, e, n, privateKey);
+            }
+
             // forever, until exited by the user
             // menu is provided to the user to choose
             /** On the whole the process time it takes to add a block and repair the chain (1000-18000ms) is comparatively
@@ -88,6 +120,7 @@ public class BlockChainTCPClient {
                 System.out.println("4. Corrupt the chain.");
                 System.out.println("5. Hide the corruption by repairing the chain.");
                 System.out.println("6. Exit.");
+                System.out.println("8. Add a batch of transactions from a file.");
                 System.out.println();
 
                 // read the input from the client
@@ -187,7 +220,19 @@ public class BlockChainTCPClient {
                         exitFlag = true;
                         break;
 
-                    // the user has to enter only a number from 0 to 6
+                    // indicates that the user wants to add every transaction of a file
+                    /** The transactions are sent in batches, each item signed on its own,
+                     *  so the server verifies the signatures of a batch in parallel.
+                     */
+                    case 8:
+                        // prompt for and then read the difficulty level for the blocks
+                        difficulty = getDifficultyFromUser();
+                        // the batches are sent and their responses shown one after another
+                        addTransactionsFromFile(clientID, combinedPublicKey, e, n, privateKey, sessionMode, difficulty, getFileOfTransactions());
+                        System.out.println();
+                        continue;
+
+                    // the user has to enter only a number from 0 to 8
                     default:
                         System.out.println("Please select only one of the below options");
                         System.out.println();
@@ -197,20 +242,31 @@ public class BlockChainTCPClient {
 
                 // if user chose exit option
                 if (exitFlag) {
+                    // the session ends with the client
+                    if (sessionSocket != null) {
+                        sessionSocket.close();
+                    }
                     break;
                 }
 
-                //the combined request is signed using d and n
-                String signedVal = sign(combinedRequest, d, n);
-
-                // once the user enters all the input values, the server is called to pass the inputs as a request
-                String result = callServerToPerformOperation(clientID, operation, e, n, signedVal, difficulty, transaction, blockID, blockData);
+                // captures the response from the server
+                String result;
+                // in session mode the request is tagged with the session key
+                if (sessionMode) {
+                    result = callServerInSession(clientID, operation, combinedRequest, difficulty, transaction, blockID, blockData);
+                } else {
+                    //the combined request is signed using the private key
+                    String signedVal = sign(combinedRequest, privateKey);
+
+                    // once the user enters all the input values, the server is called to pass the inputs as a request
+                    result = callServerToPerformOperation(clientID, operation, e, n, signedVal, difficulty, transaction, blockID, blockData);
+                }
 
                 // if the response is returned from the client
                 if(result != null && !result.isEmpty()) {
-                    // if the sign is not verified, throw the below error
+                    // if the sign is not verified, or the server turned the request away, show the error
                     if(result.contains("\"Error\" :")) {
-                        System.out.println("Error In Request");
+                        displayTheErrorToTheClient(result);
                         // if the operation is 3 or 4
                     } else if(operation == 3 || operation == 4) {
                         // display the JSON representation of the blockchain to the client
@@ -281,6 +337,75 @@ public class BlockChainTCPClient {
 
     }
 
+    /** prompt for and then read the name of the file holding the transactions, one per line */
+    public static String getFileOfTransactions() {
+
+        // ask the user to enter the file
+        System.out.println("Enter the file of transactions, one per line");
+        // read the input from the client
+        Scanner sc = new Scanner(System.in);
+        //return the name of the file
+        return sc.nextLine();
+    }
+
+    /** adds every line of the file as a transaction, sending them in batches */
+    private static void addTransactionsFromFile(String clientID, String combinedPublicKey, BigInteger e, BigInteger n, PrivateKey privateKey,
+                                                boolean sessionMode, int difficulty, String fileName) throws Exception {
+
+        // the transactions of the file
+        List<String> transactions = Files.readAllLines(Paths.get(fileName), StandardCharsets.UTF_8);
+        // the most transactions sent in one request, which must stay within the server's request size
+        // and cost no more than the tokens of a full bucket
+        int batchSize = Integer.getInteger("blockchain.batchSize", 32);
+
+        // captures the number of transactions added and the total time of the process
+        int added = 0;
+        long startTime = System.currentTimeMillis();
+
+        // for each batch of the file
+        for (int from = 0; from < transactions.size(); from += batchSize) {
+            List<String> batch = transactions.subList(from, Math.min(from + batchSize, transactions.size()));
+
+            // each item is signed as the add of its transaction alone, on every core
+            List<String> encodedItems = batch.parallelStream().map(transaction -> {
+                try {
+                    String combinedRequest = clientID.concat(combinedPublicKey).concat("1").concat(String.valueOf(difficulty).concat(transaction));
+                    return TransactionBatch.encodeItem(difficulty, transaction, sign(combinedRequest, privateKey));
+                    // handle exception
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }).collect(Collectors.toList());
+            String items = TransactionBatch.encode(encodedItems);
+
+            // client ID, combinedPublicKey, operation and the items concatenated as the combined request to be signed
+            int operation = TransactionBatch.BATCH_OPERATION;
+            String combinedRequest = clientID.concat(combinedPublicKey).concat(String.valueOf(operation)).concat(items);
+
+            // the items are sent in the transaction field
+            String result = sessionMode
+                    ? callServerInSession(clientID, operation, combinedRequest, -1, items, -1, "")
+                    : callServerToPerformOperation(clientID, operation, e, n, sign(combinedRequest, privateKey), -1, items, -1, "");
+
+            // if the whole batch was turned away, show the error and stop
+            if (result == null || result.isEmpty() || result.startsWith("{\"Error\" :")) {
+                if (result != null && !result.isEmpty()) {
+                    displayTheErrorToTheClient(result);
+                }
+                break;
+            }
+
+            // the number of items of the batch added to the chain
+            String addedText = result.substring(result.indexOf("\"Added\" :") + "\"Added\" :".length());
+            added += Integer.parseInt(addedText.substring(0, addedText.indexOf(",")).trim());
+        }
+
+        // shows how many transactions were added
+        System.out.println("Added " + added + " of " + transactions.size() + " transactions");
+        // captures the total time of the process
+        System.out.println("Total execution time to add these blocks was " + (System.currentTimeMillis() - startTime) + " milliseconds");
+    }
+
     /** prompt for and then read the difficulty level for the block */
     public static int getDifficultyFromUser() {
 
@@ -294,6 +419,22 @@ public class BlockChainTCPClient {
     }
 
 
+    /** display the error returned by the server to the client */
+    private static void displayTheErrorToTheClient(String result) {
+
+        // the text of the error
+        String error = result.substring(result.indexOf("\"Error\" :") + "\"Error\" :".length());
+        error = error.substring(0, error.indexOf(error.contains(",") ? "," : "}")).trim();
+        System.out.println(error);
+
+        // if the server is busy, show how long to wait
+        if(result.contains("\"Retry-After\" :")) {
+            String retryAfter = result.substring(result.indexOf("\"Retry-After\" :") + "\"Retry-After\" :".length());
+            retryAfter = retryAfter.substring(0, retryAfter.indexOf("}")).trim();
+            System.out.println("Please retry after " + retryAfter + " milliseconds");
+        }
+    }
+
     /** display the response to the client */
     private static void displayTheResponseToTheClient(String result) {
 
@@ -429,7 +570,12 @@ public class BlockChainTCPClient {
                 // if the chain is invalid
                 if(isValid != null && isValid.equals("false")) {
                     // show the node which is invalid
-                    System.out.println("..Improper hash on node " + invalidBlockIndex + " Does not begin with " + hashTarget);
+                    // a retargeted block is sent with the 64 hex digits of its target
+                    if (hashTarget.length() == 64) {
+                        System.out.println("..Improper hash on node " + invalidBlockIndex + " Is above the target " + hashTarget);
+                    } else {
+                        System.out.println("..Improper hash on node " + invalidBlockIndex + " Does not begin with " + hashTarget);
+                    }
                 }
                 // specifies whether chain is valid or invalid
                 System.out.println("Chain verification: " + isValid);
@@ -447,40 +593,23 @@ public class BlockChainTCPClient {
     /**
      * Signing proceeds as follows:
      * 1) Get the bytes from the string to be signed.
-     * 2) Compute a SHA-256 digest of these bytes.
-     * 3) Copy these bytes into a byte array that is one byte longer than needed.
-     *    The resulting byte array has its extra byte set to zero. This is because
-     *    RSA works only on positive numbers. The most significant byte (in the
-     *    new byte array) is the 0'th byte. It must be set to zero.
-     * 4) Create a BigInteger from the byte array.
-     * 5) Encrypt the BigInteger with RSA d and n.
-     * 6) Return to the caller a String representation of this BigInteger.
+     * 2) Compute a SHA-256 digest of these bytes and pad it (PKCS #1 v1.5),
+     *    which the SHA256withRSA signature does in one step.
+     * 3) Encrypt the padded digest with the private key. As the key is an
+     *    RSAPrivateCrtKey, this is done modulo p and q and recombined, which is
+     *    about 3-4 times faster than a modPow with d and n.
+     * 4) Return to the caller the Base64 representation of the signature.
      */
-    private static String sign(String hashCombinedRequest, BigInteger d, BigInteger n) throws Exception{
-
-        // compute the digest with SHA-256
-        byte[] bytesOfMessage = hashCombinedRequest.getBytes("UTF-8");
-        MessageDigest md = MessageDigest.getInstance("SHA-256");
-        // computes the digest
-        byte[] bigDigest = md.digest(bytesOfMessage);
-
-        // we add a 0 byte as the most significant byte to keep
-        // the value to be signed non-negative.
-        byte[] messageDigest = new byte[bigDigest.length + 1];
-        messageDigest[0] = 0;   // most significant set to 0
-
-        for(int i=1; i<messageDigest.length; i++) {
-            messageDigest[i] = bigDigest[i-1]; // take other bytes from SHA-256
-        }
-
-        // From the digest, create a BigInteger
-        BigInteger m = new BigInteger(messageDigest);
+    private static String sign(String hashCombinedRequest, PrivateKey privateKey) throws Exception {
 
-        // encrypt the digest with the private key
-        BigInteger c = m.modPow(d, n);
+        // the signature with SHA-256 and RSA
+        Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
+        signature.initSign(privateKey);
+        // the bytes of the string to be signed
+        signature.update(hashCombinedRequest.getBytes("UTF-8"));
 
-        // return this as a big integer string
-        return c.toString();
+        // return the signature as a Base64 string
+        return Base64.getEncoder().encodeToString(signature.sign());
     }
 
     /** sends the (clientID, operation, e, n, sign, difficulty, transaction, blockID, blockData) as a request to the
@@ -498,7 +627,11 @@ public class BlockChainTCPClient {
 
             // port used for communication is 7777
             int serverPort = 7777;
-            clientSocket = new Socket(aHost, serverPort);
+            // the connection must be made within the connect deadline
+            clientSocket = new Socket();
+            clientSocket.connect(new InetSocketAddress(aHost, serverPort), Integer.getInteger("blockchain.connectTimeoutMillis", 5000));
+            // mining can take minutes, so the response has a long read deadline
+            clientSocket.setSoTimeout(Integer.getInteger("blockchain.responseTimeoutMillis", 600000));
 
             // to read the user input
             BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
@@ -532,8 +665,117 @@ public class BlockChainTCPClient {
         }
     }
 
+    /** opens the session connection and authenticates with a request signed using the private key.
+     * The server replies with a secret encrypted with the public key, from which the session key is derived. */
+    private static void startSession(String clientID, String combinedPublicKey, BigInteger e, BigInteger n, PrivateKey privateKey) throws Exception {
+
+        // the connection must be made within the connect deadline
+        sessionSocket = new Socket();
+        sessionSocket.connect(new InetSocketAddress(InetAddress.getByName("localhost"), 7777), Integer.getInteger("blockchain.connectTimeoutMillis", 5000));
+        // mining can take minutes, so the responses have a long read deadline
+        sessionSocket.setSoTimeout(Integer.getInteger("blockchain.responseTimeoutMillis", 600000));
+        sessionIn = new BufferedReader(new InputStreamReader(sessionSocket.getInputStream()));
+        sessionOut = new PrintWriter(new BufferedWriter(new OutputStreamWriter(sessionSocket.getOutputStream())));
+
+        // the handshake is signed like any other request
+        int operation = 7;
+        String signedVal = sign(clientID.concat(combinedPublicKey).concat(String.valueOf(operation)), privateKey);
+        sessionOut.println(designJSONString(clientID, operation, e, n, signedVal, -1, "", -1, ""));
+        sessionOut.flush();
+
+        // read the encrypted secret from the server
+        String response = sessionIn.readLine();
+        if (response == null || !response.contains("\"sessionKey\" :")) {
+            throw new IOException("Session not established: " + response);
+        }
+        String encryptedSecret = response.substring(response.indexOf("\"sessionKey\" :") + "\"sessionKey\" :".length());
+        encryptedSecret = encryptedSecret.substring(0, encryptedSecret.indexOf("}")).trim();
+
+        // only this client can decrypt the secret, with its private key
+        Cipher cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+        cipher.init(Cipher.DECRYPT_MODE, privateKey);
+        byte[] secret = cipher.doFinal(Base64.getDecoder().decode(encryptedSecret));
+
+        // both sides derive the same session key from the secret
+        sessionMac = Session.newMac(Session.deriveKey(secret, clientID));
+        sessionSequence = 0;
+    }
+
+    /** sends the request on the session connection, tagged with the session key, and returns the response */
+    private static String callServerInSession(String clientID, int operation, String combinedRequest, int difficulty, String transaction, int blockID, String blockData) throws IOException {
+
+        // the tag covers the sequence number and the combined request
+        long sequence = sessionSequence++;
+        String tag = Session.tagOf(sessionMac, sequence, combinedRequest);
+
+        // sending the tagged request to the server
+        sessionOut.println(designSessionJSONString(clientID, operation, sequence, tag, difficulty, transaction, blockID, blockData));
+        sessionOut.flush();
+
+        // read the response from the server
+        return sessionIn.readLine();
+    }
+
+    /** determines the JSON string representation of a sync request, for a client holding the first height blocks of the given version */
+    static String designSyncJSONString(String clientID, BigInteger e, BigInteger n, String sign, int height, String tipHash, long sinceVersion) {
+
+        // captures the request JSON string representation
+        String blockchainJson = "";
+
+        // captures the clientID, operation, e, n and the sign
+        blockchainJson = blockchainJson.concat("{\"clientID\" : ").concat(clientID);
+        blockchainJson = blockchainJson.concat(",\"operation\" : ").concat(String.valueOf(BlockChainTCPServer.SYNC_OPERATION));
+        blockchainJson = blockchainJson.concat(",\"e\" : ").concat(String.valueOf(e));
+        blockchainJson = blockchainJson.concat(",\"n\": ").concat(String.valueOf(n));
+        blockchainJson = blockchainJson.concat(",\"sign\" : ").concat(sign);
+        blockchainJson = blockchainJson.concat(",\"sigAlg\" : ").concat(SIGNATURE_ALGORITHM);
+        // captures the height, the hash of the last block held and the version last synced to
+        blockchainJson = blockchainJson.concat(",\"height\" : ").concat(String.valueOf(height));
+        blockchainJson = blockchainJson.concat(",\"tipHash\" : ").concat(tipHash);
+        blockchainJson = blockchainJson.concat(",\"sinceVersion\" : ").concat(String.valueOf(sinceVersion));
+        blockchainJson = blockchainJson.concat("}");
+
+        // returns the JSON string representation of the request to the server
+        return "{\"Request_From_Client\" : [ ".concat(blockchainJson).concat(" ] }");
+    }
+
+    /** determines the JSON string representation of a request tagged with the session key */
+    private static String designSessionJSONString(String clientID, int operation, long sequence, String tag, int difficulty, String transaction, int blockID, String blockData) {
+
+        // captures the request JSON string representation
+        String blockchainJson = "";
+
+        // captures the clientID, operation, sequence number and tag
+        blockchainJson = blockchainJson.concat("{\"clientID\" : ").concat(clientID);
+        blockchainJson = blockchainJson.concat(",\"operation\" : ").concat(String.valueOf(operation));
+        blockchainJson = blockchainJson.concat(",\"seq\" : ").concat(String.valueOf(sequence));
+        blockchainJson = blockchainJson.concat(",\"mac\" : ").concat(tag);
+        // captures the algorithm of the signs of the batch items
+        blockchainJson = blockchainJson.concat(",\"sigAlg\" : ").concat(SIGNATURE_ALGORITHM);
+        // if operation is 1
+        if(operation == 1) {
+            // captures the difficulty and the transaction
+            blockchainJson = blockchainJson.concat(",\"difficulty\" : ").concat(String.valueOf(difficulty));
+            blockchainJson = blockchainJson.concat(",\"transaction\" : ").concat(transaction);
+        }
+        // if operation is 8, the encoded items of the batch
+        if(operation == TransactionBatch.BATCH_OPERATION) {
+            blockchainJson = blockchainJson.concat(",\"transaction\" : ").concat(transaction);
+        }
+        // if operation is 4
+        if(operation == 4) {
+            // captures the blockID and the blockData
+            blockchainJson = blockchainJson.concat(",\"blockID\" : ").concat(String.valueOf(blockID));
+            blockchainJson = blockchainJson.concat(",\"blockData\" : ").concat(blockData);
+        }
+        blockchainJson = blockchainJson.concat("}");
+
+        // returns the complete request to the server
+        return "{\"Request_From_Client\" : [ ".concat(blockchainJson).concat(" ] }");
+    }
+
     /**  determines the JSON string representation to be sent as a request to the client */
-    private static String designJSONString(String clientID, int operation, BigInteger e, BigInteger n, String sign, int difficulty, String transaction, int blockID, String blockData) {
+    static String designJSONString(String clientID, int operation, BigInteger e, BigInteger n, String sign, int difficulty, String transaction, int blockID, String blockData) {
 
         // captures the request JSON string representation
         String blockchainJson = "";
@@ -550,6 +792,8 @@ public class BlockChainTCPClient {
         blockchainJson = blockchainJson.concat(String.valueOf(e)).concat(",\"n\": ");
         // captures the sign
         blockchainJson = blockchainJson.concat(String.valueOf(n)).concat(",\"sign\" : ").concat(sign);
+        // captures the algorithm of the sign
+        blockchainJson = blockchainJson.concat(",\"sigAlg\" : ").concat(SIGNATURE_ALGORITHM);
         // if operation is 1
         if(operation == 1) {
             // captures the difficulty
@@ -557,6 +801,11 @@ public class BlockChainTCPClient {
             // captures the transaction
             blockchainJson = blockchainJson.concat(",\"transaction\" : ").concat(transaction);
         }
+        // if operation is 8
+        if(operation == TransactionBatch.BATCH_OPERATION) {
+            // captures the encoded items of the batch
+            blockchainJson = blockchainJson.concat(",\"transaction\" : ").concat(transaction);
+        }
         if(operation == 4) {
             // captures the blockID
             blockchainJson = blockchainJson.concat(",\"blockID\" : ").concat(String.valueOf(blockID));
@@ -602,7 +851,7 @@ public class BlockChainTCPClient {
             }
 
             // convert to Hex string
-            return convertToHex(finalHashBytes);
+            return Hash256.toHex(finalHashBytes);
         }
         // handles NoSuchAlgorithmException
         catch (NoSuchAlgorithmException nsa) {
@@ -615,24 +864,4 @@ public class BlockChainTCPClient {
         return null;
     }
 
-    // code from Stack overflow
-    // converts a byte array to a string.
-    // each nibble (4 bits) of the byte array is represented
-    // by a hex characer (0,1,2,3,...,9,a,b,c,d,e,f)
-    private static String convertToHex(byte[] data) {
-        StringBuffer buf = new StringBuffer();
-        for (int i = 0; i < data.length; i++) {
-            int halfbyte = (data[i] >>> 4) & 0x0F;
-            int two_halfs = 0;
-            do {
-                if ((0 <= halfbyte) && (halfbyte <= 9))
-                    buf.append((char) ('0' + halfbyte));
-                else
-                    buf.append((char) ('a' + (halfbyte - 10)));
-                halfbyte = data[i] & 0x0F;
-            } while(two_halfs++ < 1);
-        }
-        return buf.toString();
-    }
-
 }
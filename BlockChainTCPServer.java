@@ -14,11 +14,34 @@
  * hash to the ID (also provided with each request)?
  * Second, is the request properly signed? If both of these
  * are true, the request is carried out on behalf of the client.
+ * Each client works on its own blockchain, or on the chain
+ * named in the request, created the first time it is used.
  * The server will perform the respective operation. Otherwise,
  * the server returns the message “Error in request”.
  * When the computation is done, the reply is displayed,
  * which could either be an "OK" message
  * or the final value computed by the server.
+ * Started with -Dblockchain.role=leader, the server streams every
+ * version of its chains to the followers connecting to its
+ * replication port; started with -Dblockchain.role=follower, it
+ * serves the read operations from the replicas of the leader's
+ * chains and turns the mutations away.
+ * Started with -Dblockchain.peers, the server is a node of a network
+ * of servers: the blocks it mines are gossiped to its peers, and each
+ * chain is reorganized onto the branch with the most work, down to
+ * blockchain.finalityDepth blocks below its best tip.
+ * Started with -Dblockchain.miningPort, the blocks are mined by the
+ * MiningWorker processes connecting to that port. A block whose
+ * search outlasts blockchain.checkpointNonces nonces is checkpointed
+ * to disk, and its search resumes after a restart. Started with
+ * -Dblockchain.targetBlockMillis, the server picks the target of each
+ * block added from the measured hash rate, in place of the difficulty
+ * asked for by the client, so blocks take that time to mine.
+ * Started with -Dblockchain.vectorMining=true and the module
+ * jdk.incubator.vector, the server and the workers hash several
+ * nonces at once in the lanes of the SIMD vectors, see VectorMiner.
+ * The metrics of the server (operation 10) are sent only to the
+ * client IDs listed in -Dblockchain.statsClients.
  */
 
 
@@ -28,39 +51,180 @@ package com.spentyal.andrew;
 //imports required for TCP client server communication
 import java.io.*;
 import java.math.BigInteger;
+import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.sql.Timestamp;
+import java.security.PublicKey;
+import java.security.Signature;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMException;
 
 // marks the server in client server architecture
 public class BlockChainTCPServer {
 
+    // the blockchains that persist across requests, one per client
+    private static ChainRegistry chainRegistry;
+    // the evicted chains, kept on local disk
+    private static ChainStore chainStore;
+    // bounds the work accepted from the clients
+    private static AdmissionController admissionController;
+    // applies the deadlines and size limit of the client connections
+    private static ConnectionGuard connectionGuard;
+    // the operation that fetches the blocks a client does not hold yet
+    static final int SYNC_OPERATION = 9;
+    // the algorithm of the signatures made with the Signature API, other requests carry a textbook RSA signature
+    static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+    // the signature verifier of each connection thread, as a Signature is not thread safe
+    private static final ThreadLocal<Signature> signatureVerifier = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance(SIGNATURE_ALGORITHM);
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException(nsae);
+        }
+    });
+    // verifies the signatures of the items of a batch in parallel
+    private static ExecutorService verifierPool;
+    // the most items accepted in one batch, by default as many of the smallest items as fit in a request
+    private static int maxBatchItems;
+    // captures the number of connections being served
+    private static final AtomicInteger openConnections = new AtomicInteger();
+    // true on a follower, which serves only the read operations from the replicas of the leader's chains
+    private static volatile boolean readOnly;
+    // the client IDs allowed to read the metrics of the server, separated by commas
+    private static final Set<String> statsClients = new HashSet<String>(Arrays.asList(System.getProperty("blockchain.statsClients", "").split(",")));
+    // the public keys already verified to hash to their client ID
+    private static final IdentityCache identityCache = new IdentityCache(Integer.getInteger("blockchain.identityCacheSize", 10000));
+
     public static void main(String args[]) {
-        Socket clientSocket = null;
         try {
 
             // marks the starting of server
             System.out.println("Server Running");
 
-            int serverPort = 7777; // the server port we are using
+            int serverPort = Integer.getInteger("blockchain.port", 7777); // the server port we are using
 
             // Create a new server socket
             ServerSocket listenSocket = new ServerSocket(serverPort);
 
-            // to determine the blockchain that persists across all clients
-            List<BlockChain> resultList = new ArrayList<BlockChain>();
-
-            // captures the response JSON string representation
-            String jsonResponseString = "";
+            // chains idle for longer than the time to live, or outside the memory budget, are evicted to disk
+            chainStore = new ChainStore(System.getProperty("blockchain.chainStoreDir", "chains"));
+            chainRegistry = new ChainRegistry(Runtime.getRuntime().availableProcessors(), chainStore,
+                    TimeUnit.SECONDS.toMillis(Long.getLong("blockchain.chainIdleSeconds", 600)),
+                    Long.getLong("blockchain.chainMemoryBudgetBytes", 64L * 1024 * 1024),
+                    TimeUnit.SECONDS.toMillis(Long.getLong("blockchain.chainSweepSeconds", 30)),
+                    Boolean.getBoolean("blockchain.migrateHeaders"));
+
+            // a stalled or slow client can hold a thread only until its deadline
+            int maxRequestBytes = Integer.getInteger("blockchain.maxRequestBytes", 64 * 1024);
+            connectionGuard = new ConnectionGuard(
+                    Integer.getInteger("blockchain.readTimeoutMillis", 10000),
+                    Integer.getInteger("blockchain.writeTimeoutMillis", 10000),
+                    maxRequestBytes);
+            // a larger limit could never be reached by a batch that fits in a request
+            maxBatchItems = Integer.getInteger("blockchain.maxBatchItems", maxRequestBytes / TransactionBatch.MIN_ITEM_BYTES);
+
+            // bounded slots per class of operation, a token bucket per client and a cap on difficulty
+            admissionController = new AdmissionController(
+                    Integer.getInteger("blockchain.readSlots", 256),
+                    Integer.getInteger("blockchain.writeSlots", 64),
+                    Integer.getInteger("blockchain.mineSlots", 32),
+                    Integer.getInteger("blockchain.maxDifficulty", 6),
+                    Double.parseDouble(System.getProperty("blockchain.clientTokensPerSecond", "20")),
+                    Double.parseDouble(System.getProperty("blockchain.clientBurstTokens", "40")),
+                    // by default a client may mine a block of the highest difficulty every 16 seconds, two at once
+                    Double.parseDouble(System.getProperty("blockchain.clientHashesPerSecond",
+                            String.valueOf(AdmissionController.workOf(Integer.getInteger("blockchain.maxDifficulty", 6)) / 16))),
+                    Double.parseDouble(System.getProperty("blockchain.clientBurstHashes",
+                            String.valueOf(2 * AdmissionController.workOf(Integer.getInteger("blockchain.maxDifficulty", 6))))));
+
+            // the signatures of a batch are verified on every core
+            verifierPool = Executors.newFixedThreadPool(Integer.getInteger("blockchain.verifierThreads", Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "signature-verifier");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            // the threads serving the accepted connections concurrently, with a bounded queue of
+            // connections waiting for a thread; a connection arriving when it is full is turned away at once
+            int connectionThreads = Integer.getInteger("blockchain.connectionThreads", 64);
+            ThreadPoolExecutor connectionPool = new ThreadPoolExecutor(connectionThreads, connectionThreads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(Integer.getInteger("blockchain.connectionQueue", 256)));
+
+            // the gauges of the server, read only when the metrics are read
+            ServerMetrics metrics = ServerMetrics.getInstance();
+            metrics.register("connections.open", openConnections::get);
+            metrics.register("connections.queued", () -> connectionPool.getQueue().size());
+            metrics.register("connections.readTimeouts", connectionGuard::getReadTimeouts);
+            metrics.register("connections.writeTimeouts", connectionGuard::getWriteTimeouts);
+            metrics.register("connections.oversizedRequests", connectionGuard::getOversizedRequests);
+            metrics.register("connections.halfOpenDrops", connectionGuard::getHalfOpenDrops);
+            metrics.register("chains.resident", chainRegistry::size);
+            metrics.register("chains.blocks", chainRegistry::getBlockCount);
+            metrics.register("chains.queuedCommands", chainRegistry::getQueuedCommands);
+            metrics.register("chains.memoryBytes", chainRegistry::getMemoryBytes);
+            metrics.register("chains.evictions", chainRegistry::getEvictions);
+            metrics.register("chains.reloads", chainRegistry::getReloads);
+            metrics.register("responseCache.hits", ResponseCache::getHits);
+            metrics.register("responseCache.misses", ResponseCache::getMisses);
+            metrics.register("identityCache.hits", identityCache::getHits);
+            metrics.register("identityCache.misses", identityCache::getMisses);
+
+            // the role of this server in the replication, a standalone server replicates nothing
+            String role = System.getProperty("blockchain.role", "standalone");
+            if (role.equals("leader")) {
+                startReplicationLeader();
+            } else if (role.equals("follower")) {
+                // the chains are replicas of the leader's, and only the read operations are served
+                readOnly = true;
+                chainRegistry.setReplica(true);
+                ReplicationFollower follower = new ReplicationFollower(chainRegistry,
+                        System.getProperty("blockchain.leaders", "localhost:7787"),
+                        TimeUnit.SECONDS.toMillis(Long.getLong("blockchain.promoteAfterSeconds", 0)),
+                        BlockChainTCPServer::promoteToLeader);
+                metrics.register("replication.connected", () -> follower.isConnected() ? 1 : 0);
+                metrics.register("replication.lagMillis", follower::getLagMillis);
+                metrics.register("replication.millisSinceContact", follower::getMillisSinceContact);
+                metrics.register("replication.appliedDeltas", follower::getAppliedDeltas);
+                follower.start();
+            }
+            // the threads of the server hash several nonces at once with the Vector API if asked to and it is available
+            Miner localMiner = Boolean.getBoolean("blockchain.vectorMining") ? Miner.vectorOrLocal() : Miner.LOCAL;
+            BlockChain.setMiner(localMiner);
+            // with a mining port configured, the blocks are mined by the workers connecting to it
+            Integer miningPort = Integer.getInteger("blockchain.miningPort");
+            if (miningPort != null) {
+                MiningCoordinator coordinator = new MiningCoordinator(Long.getLong("blockchain.leaseNonces", 1L << 20),
+                        Long.getLong("blockchain.leaseTimeoutMillis", 10000), localMiner);
+                coordinator.start(InetAddress.getByName(System.getProperty("blockchain.miningBindAddress", "localhost")), miningPort);
+                BlockChain.setMiner(coordinator);
+                metrics.register("mining.workers", coordinator::getWorkers);
+                metrics.register("mining.leases", coordinator::getLeases);
+                metrics.register("mining.reissuedLeases", coordinator::getReissuedLeases);
+                metrics.register("mining.solvedBlocks", coordinator::getSolvedBlocks);
+            }
+            // only the chains of a leader or a standalone server are written
+            if (!readOnly) {
+                startWriting();
+            }
+            // the metrics can be watched with JConsole or any JMX client
+            metrics.exportToJmx();
 
             /*
              * Forever,
-             *   read a line from the socket
-             *   print it to the console
-             *   echo it (i.e. write it) back to the client
+             *   accept a connection
+             *   hand it to a thread of the connection pool
              */
             /** On the whole the process time it takes to add a block and repair the chain (1000-18000ms) is comparatively
              * higher than verifying the chain (0-4ms).
@@ -73,242 +237,600 @@ public class BlockChainTCPServer {
                  * the tcp protocol handshake will then take place, making
                  * the socket ready for reading and writing.
                  */
-                clientSocket = listenSocket.accept();
-
-                // Set up "in" to read from the client socket
-                Scanner in;
-                in = new Scanner(clientSocket.getInputStream());
-
-                // Set up "out" to write to the client socket
-                PrintWriter out;
-                out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(clientSocket.getOutputStream())));
-
-                // read the request from the client
-                String request = in.nextLine();
-
-                // determine the substring of the request to get only the main request
-                request = request.substring(request.indexOf("{\"Request_From_Client\" : [ {") + "{\"Request_From_Client\" : [ {".length());
-                request = request.substring(0, request.indexOf(" ] }") - 1);
-
-                // split the request received from client on comma
-                StringTokenizer st = new StringTokenizer(request, ",");
-                // captures the request from the client
-                Map<String, String> requestMap = new HashMap<>();
-
-                // captures the client ID
-                String clientID = "";
-                // captures the operation
-                int operation = 0;
-                //part of public key
-                BigInteger e = null;
-                // modulus
-                BigInteger n = null;
-                // captures the signature
-                String sign= "";
-                // captures the difficulty of the block
-                int difficulty = -1;
-                // captures the transaction data of the block
-                String transaction = "";
-                // captures the index of the block
-                int blockID = -1;
-                // captures the data to be added to the block
-                String blockData = "";
-
-                // if the request is split
-                if(st != null) {
-
-                    // while there is more request to read
-                    while(st.hasMoreTokens()) {
-                        // capture each token
-                        String entry = st.nextToken();
-                        // split the entry on :
-                        StringTokenizer str = new StringTokenizer(entry, ":");
-                        // while there is more request to read
-                        while(str.hasMoreTokens()) {
-                            // capture each token
-                            String key = str.nextToken();
-                            // trim to remove spaces
-                            key = key.trim();
-                            // capture each token
-                            String value = str.nextToken();
-                            // trim to remove spaces
-                            value = value.trim();
-                            // put in the request map, to capture the request from the client
-                            requestMap.put(key, value);
-                        }
-                    }
+                Socket clientSocket = listenSocket.accept();
+
+                try {
+                    // the request is served while the next connection is accepted
+                    connectionPool.execute(() -> handleClient(clientSocket));
+                } catch (RejectedExecutionException rejected) {
+                    // every thread is busy and the queue is full
+                    rejectConnection(clientSocket);
+                }
+            }
 
-                    // for each key in the request map
-                    for(Map.Entry<String, String> entry : requestMap.entrySet()) {
-                        // if client ID exists in the request
-                        if(entry.getKey().equals("\"clientID\"")) {
-                            // capture the client ID
-                            clientID = entry.getValue();
-                        }
-
-                        // if operation exists in the request
-                        if(entry.getKey().equals("\"operation\"")) {
-                            if(entry.getValue() != null && !entry.getValue().isEmpty()) {
-                                // capture the operation
-                                operation = Integer.parseInt(entry.getValue());
-                            }
-                        }
-
-                        // if the public key (part of) exists in the request
-                        if(entry.getKey().equals("\"e\"")) {
-                            // capture the part of public key
-                            e = new BigInteger(entry.getValue());
-                        }
-
-                        // if the moudlus exists in the request
-                        if(entry.getKey().equals("\"n\"")) {
-                            // capture the modulus
-                            n = new BigInteger(entry.getValue());
-                        }
-
-                        // if the signed request exists in the request
-                        if(entry.getKey().equals("\"sign\"")) {
-                            // capture the signed request
-                            sign = entry.getValue();
-                        }
-
-                        // if the difficulty of the block exists in the request
-                        if(entry.getKey().equals("\"difficulty\"")) {
-                            if(entry.getValue() != null && !entry.getValue().isEmpty()) {
-                                // captures the difficulty of the block
-                                difficulty = Integer.parseInt(entry.getValue());
-                            }
-                        }
-
-                        // if the transaction of the block exists in the request
-                        if(entry.getKey().equals("\"transaction\"")) {
-                            // captures the transaction of the block
-                            transaction = entry.getValue();
-                        }
-
-                        // if the index of the block exists in the request
-                        if(entry.getKey().equals("\"blockID\"")) {
-                            if(entry.getValue() != null && !entry.getValue().isEmpty()) {
-                                // captures the index of the block
-                                blockID = Integer.parseInt(entry.getValue());
-                            }
-                        }
-
-                        // if the data to be entered on the block exists
-                        if(entry.getKey().equals("\"blockData\"")) {
-                            // captures the data to be entered on the block
-                            blockData = entry.getValue();
-                        }
+            // Handle IO Exception
+        } catch (IOException e) {
+            System.out.println("IO Exception:" + e.getMessage());
+            // handles a failure to export the metrics
+        } catch (JMException e) {
+            System.out.println("JMX Exception:" + e.getMessage());
+        }
+    }
 
-                    }
-                }
+    /** starts the retargeting, the checkpoints and the gossip of the chains written by this server, once it
+     * serves the writes, at startup or when promoted to leader **/
+    private static void startWriting() throws IOException {
+
+        // the gauges of the server
+        ServerMetrics metrics = ServerMetrics.getInstance();
+        // with a target block time configured, the server picks the target of every block from the measured hash rate
+        long targetBlockMillis = Long.getLong("blockchain.targetBlockMillis", 0);
+        if (targetBlockMillis > 0) {
+            DifficultyRetargeter retargeter = new DifficultyRetargeter(targetBlockMillis, Integer.getInteger("blockchain.retargetWindow", 16));
+            BlockChain.setRetargeter(retargeter);
+            // a block is charged the hashes of its target, not of the difficulty the client asked for
+            admissionController.setRetargeter(retargeter);
+            metrics.register("mining.measuredHashesPerSecond", retargeter::getMeasuredHashesPerSecond);
+            metrics.register("mining.retargetedBlocks", retargeter::getRetargetedBlocks);
+            metrics.register("mining.expectedHashes", retargeter::getExpectedHashes);
+        }
+        // a long search for a nonce is checkpointed to disk, and the searches left by the last run are resumed
+        long checkpointNonces = Long.getLong("blockchain.checkpointNonces", 1L << 24);
+        if (checkpointNonces > 0) {
+            MiningCheckpoints checkpoints = new MiningCheckpoints(System.getProperty("blockchain.checkpointDir", "checkpoints"),
+                    checkpointNonces, chainStore);
+            BlockChain.setCheckpoints(checkpoints);
+            metrics.register("mining.checkpoints", checkpoints::getCheckpoints);
+            metrics.register("mining.resumedSearches", checkpoints::getResumedSearches);
+            checkpoints.resume(chainRegistry);
+        }
+        // with peers configured, the blocks are gossiped to them and each chain follows the branch with the most work
+        String peers = System.getProperty("blockchain.peers");
+        if (peers != null) {
+            GossipNode gossip = new GossipNode(chainRegistry, peers, Integer.getInteger("blockchain.finalityDepth", 100));
+            gossip.start(InetAddress.getByName(System.getProperty("blockchain.gossipBindAddress", "localhost")),
+                    Integer.getInteger("blockchain.gossipPort", 7797));
+            metrics.register("gossip.peers", gossip::getConnectedPeers);
+            metrics.register("gossip.receivedBlocks", gossip::getReceivedBlocks);
+            metrics.register("gossip.sentBlocks", gossip::getSentBlocks);
+            metrics.register("gossip.reorganizations", gossip::getReorganizations);
+            metrics.register("gossip.requeuedTransactions", gossip::getRequeuedTransactions);
+        }
+    }
+
+    /** streams the chains of this server to the followers that connect to its replication port **/
+    private static void startReplicationLeader() throws IOException {
+
+        // the followers connect on the loopback address unless configured otherwise
+        ReplicationLeader leader = new ReplicationLeader(chainRegistry);
+        leader.start(InetAddress.getByName(System.getProperty("blockchain.replicationBindAddress", "localhost")),
+                Integer.getInteger("blockchain.replicationPort", 7787));
+        ServerMetrics.getInstance().register("replication.followers", leader::getFollowers);
+        ServerMetrics.getInstance().register("replication.sentDeltas", leader::getSentDeltas);
+    }
+
+    /** makes this follower the leader, returns false if the replication port is taken by another leader **/
+    private static boolean promoteToLeader() {
+        try {
+            // the replicas become the chains of the leader
+            startReplicationLeader();
+            // Handle IO Exception, this server stays a follower
+        } catch (IOException e) {
+            System.out.println("IO Exception:" + e.getMessage());
+            return false;
+        }
+        chainRegistry.setReplica(false);
+        try {
+            // the blocks are retargeted, checkpointed and gossiped before the first write is served
+            startWriting();
+            // Handle IO Exception, the chains are written without the services that failed to start
+        } catch (IOException e) {
+            System.out.println("IO Exception:" + e.getMessage());
+        }
+        readOnly = false;
+        System.out.println("Promoted to leader");
+        return true;
+    }
+
+    /** tells the client the server is busy and closes the connection **/
+    private static void rejectConnection(Socket clientSocket) {
+        try {
+            // sends the busy response to the client
+            connectionGuard.writeResponse(clientSocket, busyResponse(1000));
+            // Handle IO Exception
+        } catch (IOException e) {
+            System.out.println("IO Exception:" + e.getMessage());
+        } finally {
+            try {
+                // close client socket
+                clientSocket.close();
+            } catch (IOException e) {
+                // ignore exception on close
+            }
+        }
+    }
+
+    /** builds the response asking the client to retry after the given time **/
+    private static String busyResponse(long retryAfterMillis) {
+        // returns the error with the retry hint
+        return "{\"Error\" : Server Busy,\"Retry-After\" : " + retryAfterMillis + "}";
+    }
 
-                // concatenation of n and e gives the public key
-                String publicKey = String.valueOf(e).concat(String.valueOf(n));
-
-                // captures the request to be signed
-                String combinedRequest = "";
-
-                // the combined public key and operation are concatenated for decrypting if the operation is 0, 2, 3 or 5
-                if(operation == 0 || operation == 2 || operation == 3 || operation == 5) {
-                    combinedRequest = clientID.concat(publicKey).concat(String.valueOf(operation));
-                    // the combined public key, operation, difficulty, transaction are concatenated for decrypting if the operation is 1
-                } else if(operation == 1) {
-                    combinedRequest = clientID.concat(publicKey).concat(String.valueOf(operation)).concat(String.valueOf(difficulty).concat(transaction));
-                    // the combined public key, operation, blockID, blockData are concatenated for decrypting if the operation is 4
-                } else if(operation == 4) {
-                    combinedRequest = clientID.concat(publicKey).concat(String.valueOf(operation)).concat(String.valueOf(blockID).concat(blockData));
+    /** reads the requests from the client, performs them and sends the responses back,
+     * until the client closes the connection **/
+    private static void handleClient(Socket clientSocket) {
+        try {
+
+            // the connection is open until the client is done
+            openConnections.incrementAndGet();
+            // Set up "in" to read from the client socket
+            InputStream in = new BufferedInputStream(clientSocket.getInputStream());
+            // the session of the connection, established by a handshake request
+            Session session = new Session();
+
+            // for each request sent on the connection
+            for (boolean firstRequest = true; ; firstRequest = false) {
+                // read the request from the client, within the read deadline and the maximum size
+                String request = connectionGuard.readRequestLine(clientSocket, in, firstRequest);
+                // if the client is done, stalled, sent too much or went away, the connection is closed
+                if (request == null) {
+                    return;
                 }
 
-                // The server will make two checks before servicing any client request. First, does the
-                // public key hash to the ID. Second, is the request properly signed.
-                // If both of these are true, the request
-                // is carried out on behalf of the client.
-                if (publicKeyHashValid(publicKey, clientID) && signVerified(e, n, combinedRequest, sign)) {
-                    // determines the blockchain
-                    resultList  = selectTheBlockChain(clientID, resultList);
-                    // performs the respective operation selected by the user
-                    jsonResponseString = performRequestedOperation(operation, resultList.get(0), difficulty, transaction, blockID, blockData);
-
-                    // OK is returned from the server if the operation is addition or subtraction
-                    System.out.println("Response from Server: OK");
-
-                    // sends the response to the client
-                    out.println(jsonResponseString);
-                    out.flush();
-                } else {
-                    // If the server does not validate the two conditions mentioned above,
-                    // then below error is sent to the client
-                    jsonResponseString = "{\"Error\" : " + "Error In Request }";
-
-                    // sends the response to the client
-                    out.println(jsonResponseString);
-                    out.flush();
+                // the time the request started to be served, and its flight recorder event, left empty when no recording wants it
+                long startNanos = System.nanoTime();
+                ChainEvents.RequestEvent requestEvent = new ChainEvents.RequestEvent();
+                requestEvent.begin();
+                // captures the operation of the request once it is parsed, left negative if it never is
+                int[] requestOperation = { -1 };
+                // captures the encoded response
+                byte[] response;
+                try {
+                    response = processRequest(request, session, requestOperation, requestEvent);
+                } finally {
+                    // the time taken to serve the request, counted under its operation however it ends
+                    if (requestOperation[0] < 0) {
+                        ServerMetrics.getInstance().recordUnparsedRequest();
+                    } else {
+                        ServerMetrics.getInstance().recordRequest(requestOperation[0], System.nanoTime() - startNanos);
+                    }
+                    // records the request if a recording wants it
+                    requestEvent.end();
+                    if (requestEvent.shouldCommit()) {
+                        requestEvent.commit();
+                    }
                 }
 
+                // sends the response to the client, within the write deadline
+                connectionGuard.writeResponse(clientSocket, response);
             }
 
             // Handle IO Exception
         } catch (IOException e) {
             System.out.println("IO Exception:" + e.getMessage());
-            // If quitting (typically by you sending quit signal) clean up sockets
+            // handles a failed request, without stopping the server
         } catch (Exception e) {
             System.out.println("Exception:" + e.getMessage());
         } finally {
+            openConnections.decrementAndGet();
             try {
-                if (clientSocket != null) {
-                    // close client socket
-                    clientSocket.close();
-                }
+                // close client socket
+                clientSocket.close();
             } catch (IOException e) {
                 // ignore exception on close
             }
         }
     }
 
+    /** authenticates the request, performs it and returns the encoded response, naming the operation in the holder given
+     * and, if a recording wants it, the operation and the client in the event of the request **/
+    private static byte[] processRequest(String request, Session session, int[] requestOperation, ChainEvents.RequestEvent requestEvent) throws Exception {
+
+        // the flight recorder event of the parsing, left empty when no recording wants it
+        ChainEvents.RequestParsedEvent parsedEvent = new ChainEvents.RequestParsedEvent();
+        parsedEvent.begin();
+        // captures the response JSON string representation
+        String jsonResponseString = "";
+
+        // determine the substring of the request to get only the main request
+        request = request.substring(request.indexOf("{\"Request_From_Client\" : [ {") + "{\"Request_From_Client\" : [ {".length());
+        request = request.substring(0, request.indexOf(" ] }") - 1);
+
+        // split the request received from client on comma
+        StringTokenizer st = new StringTokenizer(request, ",");
+        // captures the request from the client
+        Map<String, String> requestMap = new HashMap<>();
+
+        // captures the client ID
+        String clientID = "";
+        // captures the operation
+        int operation = 0;
+        //part of public key, as sent by the client
+        String eText = "";
+        // modulus, as sent by the client
+        String nText = "";
+        // captures the signature
+        String sign= "";
+        // captures the algorithm of the signature, empty for the textbook RSA signature
+        String sigAlg = "";
+        // captures the difficulty of the block
+        int difficulty = -1;
+        // captures the transaction data of the block
+        String transaction = "";
+        // captures the index of the block
+        int blockID = -1;
+        // captures the data to be added to the block
+        String blockData = "";
+        // captures the sequence number of a request sent in a session
+        long sequence = -1;
+        // captures the session tag of the request
+        String tag = "";
+        // captures the name of the chain, when the client does not use its own chain
+        String chainName = "";
+        // captures the number of blocks a syncing client holds
+        int height = 0;
+        // captures the hash of the last block a syncing client holds
+        String tipHash = "";
+        // captures the version a syncing client last synced to
+        long sinceVersion = 0;
+
+        // if the request is split
+        if(st != null) {
+
+            // while there is more request to read
+            while(st.hasMoreTokens()) {
+                // capture each token
+                String entry = st.nextToken();
+                // split the entry on :
+                StringTokenizer str = new StringTokenizer(entry, ":");
+                // while there is more request to read
+                while(str.hasMoreTokens()) {
+                    // capture each token
+                    String key = str.nextToken();
+                    // trim to remove spaces
+                    key = key.trim();
+                    // capture each token
+                    String value = str.nextToken();
+                    // trim to remove spaces
+                    value = value.trim();
+                    // put in the request map, to capture the request from the client
+                    requestMap.put(key, value);
+                }
+            }
+
+            // for each key in the request map
+            for(Map.Entry<String, String> entry : requestMap.entrySet()) {
+                // if client ID exists in the request
+                if(entry.getKey().equals("\"clientID\"")) {
+                    // capture the client ID
+                    clientID = entry.getValue();
+                }
+
+                // if operation exists in the request
+                if(entry.getKey().equals("\"operation\"")) {
+                    if(entry.getValue() != null && !entry.getValue().isEmpty()) {
+                        // capture the operation
+                        operation = Integer.parseInt(entry.getValue());
+                    }
+                }
+
+                // if the public key (part of) exists in the request
+                if(entry.getKey().equals("\"e\"")) {
+                    // capture the part of public key
+                    eText = entry.getValue();
+                }
+
+                // if the moudlus exists in the request
+                if(entry.getKey().equals("\"n\"")) {
+                    // capture the modulus
+                    nText = entry.getValue();
+                }
+
+                // if the signed request exists in the request
+                if(entry.getKey().equals("\"sign\"")) {
+                    // capture the signed request
+                    sign = entry.getValue();
+                }
+
+                // if the algorithm of the signature exists in the request
+                if(entry.getKey().equals("\"sigAlg\"")) {
+                    // capture the algorithm
+                    sigAlg = entry.getValue();
+                }
+
+                // if the difficulty of the block exists in the request
+                if(entry.getKey().equals("\"difficulty\"")) {
+                    if(entry.getValue() != null && !entry.getValue().isEmpty()) {
+                        // captures the difficulty of the block
+                        difficulty = Integer.parseInt(entry.getValue());
+                    }
+                }
+
+                // if the transaction of the block exists in the request
+                if(entry.getKey().equals("\"transaction\"")) {
+                    // captures the transaction of the block
+                    transaction = entry.getValue();
+                }
+
+                // if the index of the block exists in the request
+                if(entry.getKey().equals("\"blockID\"")) {
+                    if(entry.getValue() != null && !entry.getValue().isEmpty()) {
+                        // captures the index of the block
+                        blockID = Integer.parseInt(entry.getValue());
+                    }
+                }
 
-    /** to persist the blockchain **/
-    private static List<BlockChain> selectTheBlockChain(String clientID, List<BlockChain> resultList) {
+                // if the data to be entered on the block exists
+                if(entry.getKey().equals("\"blockData\"")) {
+                    // captures the data to be entered on the block
+                    blockData = entry.getValue();
+                }
 
-        // if the genesis block is not created
-        if (resultList != null && resultList.isEmpty()) {
+                // if the name of the chain exists
+                if(entry.getKey().equals("\"chain\"")) {
+                    // captures the name of the chain
+                    chainName = entry.getValue();
+                }
 
-            // creating a BlockChain object
-            BlockChain blockChain = new BlockChain();
-            //  The Genesis block will be created with a difficulty of 2, index of 0.
-            Block genesisBlock = new Block(0, new Timestamp(System.currentTimeMillis()), "Genesis", 2);
-            // adding the block to the blockchain
-            blockChain.addBlock(genesisBlock);
-            // puts the block chain associated with the client ID in the resultMap
-            resultList.add(blockChain);
+                // if the sequence number of a session request exists
+                if(entry.getKey().equals("\"seq\"")) {
+                    if(entry.getValue() != null && !entry.getValue().isEmpty()) {
+                        // captures the sequence number
+                        sequence = Long.parseLong(entry.getValue());
+                    }
+                }
+
+                // if the session tag exists
+                if(entry.getKey().equals("\"mac\"")) {
+                    // captures the session tag
+                    tag = entry.getValue();
+                }
 
+                // if the height of a syncing client exists
+                if(entry.getKey().equals("\"height\"")) {
+                    if(entry.getValue() != null && !entry.getValue().isEmpty()) {
+                        // captures the height
+                        height = Integer.parseInt(entry.getValue());
+                    }
+                }
+
+                // if the hash of the last block of a syncing client exists
+                if(entry.getKey().equals("\"tipHash\"")) {
+                    // captures the hash of the last block
+                    tipHash = entry.getValue();
+                }
+
+                // if the version a syncing client last synced to exists
+                if(entry.getKey().equals("\"sinceVersion\"")) {
+                    if(entry.getValue() != null && !entry.getValue().isEmpty()) {
+                        // captures the version
+                        sinceVersion = Long.parseLong(entry.getValue());
+                    }
+                }
+
+            }
+        }
+
+        // records the parsing if a recording wants it
+        parsedEvent.end();
+        if (parsedEvent.shouldCommit()) {
+            parsedEvent.requestLength = request.length();
+            parsedEvent.commit();
+        }
+
+        // the operation the request is counted under, whatever the response
+        requestOperation[0] = operation;
+        // the fields of the event are set only while a recording runs
+        if (requestEvent.isEnabled()) {
+            requestEvent.operation = operation;
+            requestEvent.clientID = clientID;
+        }
+
+        // the flight recorder event of the check of the key and the sign
+        ChainEvents.RequestAuthenticatedEvent authenticatedEvent = new ChainEvents.RequestAuthenticatedEvent();
+        authenticatedEvent.begin();
+
+        // a request tagged in a session uses the identity verified by the handshake,
+        // any other request has its key checked to hash to the ID, only on the client's first request
+        boolean sessionRequest = !tag.isEmpty();
+        IdentityCache.Identity identity = sessionRequest ? session.getIdentity() : identityCache.verify(clientID, eText, nText);
+        // concatenation of n and e gives the public key
+        String publicKey = identity == null ? "" : identity.getPublicKey();
+
+        // captures the request to be signed
+        String combinedRequest = "";
+
+        // the combined public key and operation are concatenated for decrypting if the operation is 0, 2, 3, 5, 7 or 10
+        if(operation == 0 || operation == 2 || operation == 3 || operation == 5 || operation == Session.HANDSHAKE_OPERATION
+                || operation == ServerMetrics.STATS_OPERATION) {
+            combinedRequest = clientID.concat(publicKey).concat(String.valueOf(operation));
+            // the combined public key, operation, difficulty, transaction are concatenated for decrypting if the operation is 1
+        } else if(operation == 1) {
+            combinedRequest = clientID.concat(publicKey).concat(String.valueOf(operation)).concat(String.valueOf(difficulty).concat(transaction));
+            // the combined public key, operation, blockID, blockData are concatenated for decrypting if the operation is 4
+        } else if(operation == 4) {
+            combinedRequest = clientID.concat(publicKey).concat(String.valueOf(operation)).concat(String.valueOf(blockID).concat(blockData));
+            // the combined public key, operation and the encoded items are concatenated for decrypting if the operation is 8
+        } else if(operation == TransactionBatch.BATCH_OPERATION) {
+            combinedRequest = clientID.concat(publicKey).concat(String.valueOf(operation)).concat(transaction);
+            // the combined public key, operation, height, tip hash and version are concatenated for decrypting if the operation is 9
+        } else if(operation == SYNC_OPERATION) {
+            combinedRequest = clientID.concat(publicKey).concat(String.valueOf(operation)).concat(String.valueOf(height)).concat(tipHash).concat(String.valueOf(sinceVersion));
+        }
+        // the name of the chain, if any, is signed along with the request
+        combinedRequest = combinedRequest.concat(chainName);
+
+        // The server will make two checks before servicing any client request. First, does the
+        // public key hash to the ID. Second, is the request properly signed, or, in a session,
+        // properly tagged with the session key. The handshake itself must be signed.
+        // If both of these are true, the request
+        // is carried out on behalf of the client.
+        boolean authenticated = identity != null && (sessionRequest
+                ? operation != Session.HANDSHAKE_OPERATION && session.verify(clientID, sequence, combinedRequest, tag)
+                : requestSignVerified(identity, sigAlg, combinedRequest, sign));
+
+        // records the check if a recording wants it
+        authenticatedEvent.end();
+        if (authenticatedEvent.shouldCommit()) {
+            authenticatedEvent.operation = operation;
+            authenticatedEvent.sigAlg = sigAlg;
+            authenticatedEvent.session = sessionRequest;
+            authenticatedEvent.authenticated = authenticated;
+            authenticatedEvent.commit();
+        }
+
+        // If the server does not validate the two conditions mentioned above,
+        // then below error is sent to the client
+        if (!authenticated) {
+            ServerMetrics.getInstance().recordAuthFailure();
+            return ConnectionGuard.encodeResponse("{\"Error\" : " + "Error In Request }");
+        }
+
+        // the handshake establishes the session of the connection
+        if (operation == Session.HANDSHAKE_OPERATION) {
+            return ConnectionGuard.encodeResponse("{\"Operation\" : " + operation + ",\"sessionKey\" : " + session.establish(clientID, identity) + "}");
+        }
+
+        // a follower serves only the read operations, the mutations are sent to the leader
+        if (readOnly && (operation == 1 || operation == 4 || operation == 5 || operation == TransactionBatch.BATCH_OPERATION)) {
+            return ConnectionGuard.encodeResponse("{\"Error\" : Read Only Follower }");
         }
 
-        // returns the blockchain
-        return resultList;
+        // the metrics of the whole server belong to no chain, and only the clients allowed may read them
+        if (operation == ServerMetrics.STATS_OPERATION) {
+            return ConnectionGuard.encodeResponse(statsClients.contains(clientID)
+                    ? ServerMetrics.getInstance().statsJSONString() : "{\"Error\" : Stats Not Allowed }");
+        }
+
+        // a batch carries its encoded items in the transaction field
+        List<TransactionBatch.Item> batchItems = null;
+        // captures the hashes the request is expected to take, the sum of the items for a batch
+        long requestWork = admissionController.workOf(operation, difficulty);
+        if (operation == TransactionBatch.BATCH_OPERATION) {
+            batchItems = TransactionBatch.decode(transaction);
+            if (batchItems == null) {
+                return ConnectionGuard.encodeResponse("{\"Error\" : " + "Error In Request }");
+            }
+            if (batchItems.size() > maxBatchItems) {
+                return ConnectionGuard.encodeResponse("{\"Error\" : Batch Above " + maxBatchItems + " Transactions }");
+            }
+            // a batch costs as many hashes as its items would, sent one at a time
+            requestWork = admissionController.workOf(batchItems);
+        }
+
+        // captures the wait the client is asked for, if the request is not admitted
+        long retryAfterMillis = 0;
+
+        // the difficulty is capped
+        if (!admissionController.difficultyAllowed(operation, difficulty)) {
+            jsonResponseString = "{\"Error\" : Difficulty Not Between 0 And " + admissionController.getMaxDifficulty() + " }";
+            // a request costing more than a full bucket could never be admitted, so no retry is suggested
+        } else if (!admissionController.workAllowed(requestWork)) {
+            jsonResponseString = "{\"Error\" : Request Above " + admissionController.getBurstHashes() + " Hashes }";
+            // the request is rejected at once when the client is over its rate or the class of the operation is full
+        } else if ((retryAfterMillis = admissionController.tryAcquire(clientID, operation, requestWork)) > 0) {
+            ServerMetrics.getInstance().recordRejectedRequest();
+            jsonResponseString = busyResponse(retryAfterMillis);
+        } else {
+            // captures the encoded response of the performed operation
+            byte[] responseBytes;
+            // the client's own chain unless a chain is named, a named chain belongs to the client naming it
+            String chainKey = chainName.isEmpty() ? clientID : clientID + "/" + chainName;
+            try {
+                // determines the writer of the blockchain
+                ChainWriter writer = selectTheBlockChain(chainKey);
+                try {
+                    // a follower may not have received the chain from the leader yet
+                    if (writer.getBlockChain().getChainSize() == 0) {
+                        responseBytes = ConnectionGuard.encodeResponse("{\"Error\" : Chain Not Replicated Yet }");
+                        // performs the respective operation selected by the user
+                    } else if (operation == TransactionBatch.BATCH_OPERATION) {
+                        responseBytes = ConnectionGuard.encodeResponse(performBatchAdd(writer, identity, sigAlg,
+                                clientID.concat(publicKey), chainName, batchItems));
+                        // the blocks after the client's height, read from the current version
+                    } else if (operation == SYNC_OPERATION) {
+                        BlockChain blockChain = writer.getBlockChain();
+                        responseBytes = ConnectionGuard.encodeResponse(blockChain.syncBlockChain(blockChain.snapshot(), height, parseHash(tipHash), sinceVersion));
+                    } else {
+                        responseBytes = serveRequestedOperation(operation, writer, difficulty, transaction, blockID, blockData);
+                    }
+                } finally {
+                    // the chain may be evicted once no request uses it
+                    chainRegistry.release(chainKey);
+                }
+            } finally {
+                // the slot may be used by another request
+                admissionController.release(operation);
+            }
+
+            // OK is returned from the server if the operation is addition or subtraction
+            System.out.println("Response from Server: OK");
+            return responseBytes;
+        }
+
+        // returns the encoded error
+        return ConnectionGuard.encodeResponse(jsonResponseString);
+    }
+
+    /** to persist the blockchain of each client **/
+    private static ChainWriter selectTheBlockChain(String chainKey) {
+
+        // returns the writer of the chain, creating it with its genesis block the first time
+        // or loading it back from disk if it was evicted
+        return chainRegistry.acquire(chainKey);
 
     }
 
-    /** performs computation based on the operation chosen **/
-    private static String performRequestedOperation(int operation, BlockChain blockChain, int difficulty, String transaction, int blockID, String blockData) {
+    /** serves the operation chosen, from the chain's response cache if the chain has not changed since it was computed **/
+    private static byte[] serveRequestedOperation(int operation, ChainWriter writer, int difficulty, String transaction, int blockID, String blockData) throws Exception {
 
+        // the version of the chain the response is computed from and cached for
+        ChainSnapshot snapshot = writer.getBlockChain().snapshot();
+        // the cache of the chain
+        ResponseCache responseCache = writer.getBlockChain().getResponseCache();
+
+        // if the response of the operation is cached for this version, it is sent as is
+        if (ResponseCache.isCached(operation)) {
+            byte[] cachedResponse = responseCache.get(operation, snapshot);
+            if (cachedResponse != null) {
+                return cachedResponse;
+            }
+        }
+
+        // performs the operation and encodes its response
+        byte[] response = ConnectionGuard.encodeResponse(performRequestedOperation(operation, writer, snapshot, difficulty, transaction, blockID, blockData));
+        // the response is kept until the chain changes
+        if (ResponseCache.isCached(operation)) {
+            responseCache.put(operation, snapshot, response);
+        }
+        // returns the encoded response
+        return response;
+    }
+
+    /** performs computation based on the operation chosen, reading from the given version of the chain **/
+    private static String performRequestedOperation(int operation, ChainWriter writer, ChainSnapshot snapshot, int difficulty, String transaction, int blockID, String blockData) throws Exception {
+
+        // reads are served from the blockchain's snapshot, mutations are sent to its writer
+        BlockChain blockChain = writer.getBlockChain();
         // captures the response JSON string representation
         String responseJSONString = "";
 
         // if operation is 0
         if(operation == 0) {
             // view the block chain status
-            responseJSONString = blockChain.viewBasicBlockChainStatus();
+            responseJSONString = blockChain.viewBasicBlockChainStatus(snapshot);
             // if operation is 1
         } else if(operation == 1) {
-            // add transaction to the block chain
-            responseJSONString = blockChain.addTransactionToBlockChain(difficulty, transaction);
+            // add transaction to the block chain, waiting for the writer to apply it
+            responseJSONString = writer.submitAdd(difficulty, transaction).get();
             // if operation is 2
         } else if(operation == 2) {
             // captures the start time of the process
             long startTime = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
             // determines if the chain is valid
-            boolean isValid = blockChain.isChainValid();
+            boolean isValid = blockChain.isChainValid(snapshot);
+            ServerMetrics.getInstance().recordValidation(System.nanoTime() - startNanos);
             // captures the end time of the process
             long endTime = System.currentTimeMillis();
             // captures the index of the invalid block
@@ -339,11 +861,11 @@ public class BlockChainTCPServer {
             // if operation is 3
         } else if(operation == 3) {
             // view the JSON representation of the blockchain
-            responseJSONString = blockChain.viewBlockChain();
+            responseJSONString = blockChain.viewBlockChain(snapshot);
             // if operation is 4
         } else if(operation == 4) {
-            // corrupt the block chain
-            blockChain.corruptBlockChain(blockID, blockData);
+            // corrupt the block chain, waiting for the writer to apply it
+            writer.submitCorrupt(blockID, blockData).get();
 
             // captures the response JSON string representation
             String blockChainString = "";
@@ -354,14 +876,8 @@ public class BlockChainTCPServer {
             responseJSONString = blockChainString;
             // if operation is 5
         } else if(operation == 5) {
-            // captures the start time of the process
-            long startRepairTime = System.currentTimeMillis();
-            // repairs the corrupted blockchain
-            blockChain.repairChain();
-            // captures the end time of the process
-            long endRepairTime = System.currentTimeMillis();
-            // captures the total time of the process
-            long executionTime = endRepairTime - startRepairTime;
+            // repairs the corrupted blockchain, capturing the total time of the process
+            long executionTime = writer.submitRepair().get();
 
             // captures the response JSON string representation
             String blockChainString = "";
@@ -379,10 +895,111 @@ public class BlockChainTCPServer {
         return responseJSONString;
     }
 
+    /** adds the items of a batch whose sign is verified, returning the response of each item in order **/
+    private static String performBatchAdd(ChainWriter writer, IdentityCache.Identity identity, String sigAlg,
+                                          String requestPrefix, String chainName, List<TransactionBatch.Item> items) throws Exception {
+
+        // captures the start time of the process
+        long startTime = System.currentTimeMillis();
+
+        // the sign of each item is verified on the verifier pool, in parallel with the others
+        List<Future<Boolean>> verifications = new ArrayList<Future<Boolean>>();
+        for (TransactionBatch.Item item : items) {
+            // the request that adds the transaction alone, as signed by the client
+            String combinedRequest = requestPrefix.concat("1").concat(String.valueOf(item.getDifficulty()).concat(item.getTransaction())).concat(chainName);
+            verifications.add(verifierPool.submit(() -> requestSignVerified(identity, sigAlg, combinedRequest, item.getSign())));
+        }
+
+        // the verified items are sent to the writer in order, which mines them in batches
+        List<Future<String>> results = new ArrayList<Future<String>>();
+        // captures the number of items added
+        int added = 0;
+        for (int i = 0; i < items.size(); i++) {
+            TransactionBatch.Item item = items.get(i);
+            // a transaction that would break the responses of the chain fails alone, like a bad sign
+            if (!item.isAllowed() || !itemVerified(verifications.get(i))) {
+                results.add(CompletableFuture.completedFuture("{\"Error\" : " + "Error In Request }"));
+            } else if (!admissionController.difficultyAllowed(1, item.getDifficulty())) {
+                results.add(CompletableFuture.completedFuture("{\"Error\" : Difficulty Not Between 0 And " + admissionController.getMaxDifficulty() + " }"));
+            } else {
+                results.add(writer.submitAdd(item.getDifficulty(), item.getTransaction()));
+                added++;
+            }
+        }
+
+        // captures the response of each item
+        StringJoiner itemResponses = new StringJoiner(",");
+        for (Future<String> result : results) {
+            itemResponses.add(result.get());
+        }
+        // specifies the total time of the process
+        long executionTime = System.currentTimeMillis() - startTime;
+
+        // captures the response JSON string representation
+        String blockChainString = "";
+        blockChainString = blockChainString.concat("{");
+        // captures the operation
+        blockChainString = blockChainString.concat("\"Operation\" : ").concat(String.valueOf(TransactionBatch.BATCH_OPERATION));
+        // captures the Execution Time
+        blockChainString = blockChainString.concat(",\"Execution Time\" : ").concat(String.valueOf(executionTime));
+        // captures the number of transactions added
+        blockChainString = blockChainString.concat(",\"Added\" : ").concat(String.valueOf(added));
+        // captures the response of each item, in the order of the batch
+        blockChainString = blockChainString.concat(",\"Results\" : [ ").concat(itemResponses.toString()).concat(" ]");
+        blockChainString = blockChainString.concat("}");
+        return blockChainString;
+    }
+
+    /** determines if the sign of a batch item was verified, a sign that could not be checked fails only its own item **/
+    private static boolean itemVerified(Future<Boolean> verification) throws InterruptedException {
+        try {
+            // waits for the verifier pool
+            return verification.get();
+            // handles a malformed sign, which was not made by the client
+        } catch (ExecutionException ee) {
+            return false;
+        }
+    }
+
+    /** used to validate the sign of a request, made with the Signature API or as a textbook RSA signature **/
+    private static boolean requestSignVerified(IdentityCache.Identity identity, String sigAlg, String combinedRequest, String sign) throws Exception {
+        // the request names the algorithm of its sign, if any
+        return SIGNATURE_ALGORITHM.equals(sigAlg)
+                ? signatureVerified(identity.getVerificationKey(), combinedRequest, sign)
+                : signVerified(identity.getE(), identity.getN(), combinedRequest, sign);
+    }
+
+    /** used to validate if the request is signed correctly with SHA256withRSA, using the client's public key **/
+    private static boolean signatureVerified(PublicKey publicKey, String messageToCheck, String encodedSign) throws Exception {
+        // the signature of the request
+        byte[] signature;
+        try {
+            signature = Base64.getDecoder().decode(encodedSign);
+            // a signature that is not Base64 was not made by the client
+        } catch (IllegalArgumentException iae) {
+            return false;
+        }
+
+        // the verifier of this thread, initialized with the client's key
+        Signature verifier = signatureVerifier.get();
+        verifier.initVerify(publicKey);
+        // the bytes of the message
+        verifier.update(messageToCheck.getBytes("UTF-8"));
+
+        // inform the client on how the two compare
+        return verifier.verify(signature);
+    }
+
     /** used to validate if the request is signed correctly by decrypting using private key **/
     private static boolean signVerified(BigInteger e, BigInteger n, String messageToCheck, String encryptedSign) throws Exception {
         // Take the encrypted string and make it a big integer
-        BigInteger encryptedHash = new BigInteger(encryptedSign);
+        BigInteger encryptedHash;
+        try {
+            encryptedHash = new BigInteger(encryptedSign);
+            // a sign that is not a number was not made by the client
+        } catch (NumberFormatException nfe) {
+            return false;
+        }
         // Decrypt it
         BigInteger decryptedHash = encryptedHash.modPow(e, n);
 
@@ -417,17 +1034,13 @@ public class BlockChainTCPServer {
 
     }
 
-    // check if the public key hash to the request ID
-    private static boolean publicKeyHashValid(String publicKey, String reqID) {
-
-        // compute the SHA 256 hash value
-        String computedReqID = ComputeSHA_256_as_Hex_String(publicKey);
-
-        // check if the public key hash to the request ID
-        if(computedReqID.equalsIgnoreCase(reqID)) {
-            return true;
-        } else {
-            return false;
+    /** parses a hash sent by a client, null if it is not a hash */
+    private static Hash256 parseHash(String hex) {
+        try {
+            return Hash256.fromHex(hex);
+            // handles a hash that is missing or malformed
+        } catch (IllegalArgumentException iae) {
+            return null;
         }
     }
 
@@ -456,7 +1069,7 @@ public class BlockChainTCPServer {
             }
 
             // convert to Hex string
-            return convertToHex(finalHashBytes);
+            return Hash256.toHex(finalHashBytes);
         }
         // handles NoSuchAlgorithmException
         catch (NoSuchAlgorithmException nsa) {
@@ -468,24 +1081,4 @@ public class BlockChainTCPServer {
         }
         return null;
     }
-
-    // code from Stack overflow
-    // converts a byte array to a string.
-    // each nibble (4 bits) of the byte array is represented
-    // by a hex characer (0,1,2,3,...,9,a,b,c,d,e,f)
-    private static String convertToHex(byte[] data) {
-        StringBuffer buf = new StringBuffer();
-        for (int i = 0; i < data.length; i++) {
-            int halfbyte = (data[i] >>> 4) & 0x0F;
-            int two_halfs = 0;
-            do {
-                if ((0 <= halfbyte) && (halfbyte <= 9))
-                    buf.append((char) ('0' + halfbyte));
-                else
-                    buf.append((char) ('a' + (halfbyte - 10)));
-                halfbyte = data[i] & 0x0F;
-            } while(two_halfs++ < 1);
-        }
-        return buf.toString();
-    }
 }
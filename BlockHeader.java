@@ -0,0 +1,237 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates the canonical header of a block, the
+ * bytes its SHA256 hash is computed over. Every field has a fixed
+ * width and a fixed place, big endian:
+ *
+ *   version      4 bytes  the layout of the header, 2 or 3
+ *   index        4 bytes  the position of the block on the chain
+ *   time         8 bytes  milliseconds since the epoch, UTC
+ *   nanos        4 bytes  the nanoseconds of the time
+ *   difficulty   4 bytes  the number of leading hex zeroes needed
+ *   target      32 bytes  the largest proper hash, version 3 only
+ *   previous    32 bytes  the hash of the parent, zeroes for genesis
+ *   data length  4 bytes  the bytes of the data
+ *   data                  the UTF-8 bytes of the transaction
+ *   nonce        8 bytes  determined by the proof of work
+ *
+ * A block whose target was set by the retargeting of the server is
+ * encoded with version 3, which puts its 32 byte target right after
+ * the difficulty, so the target is covered by the hash too. A hash
+ * meets the proof of work when, read as an unsigned big endian
+ * number, it is at most the target; its bytes are compared with the
+ * bytes of the target, the first byte that differs deciding.
+ *
+ * Two different blocks never encode to the same bytes, the time does
+ * not depend on the time zone of the machine, and the nonce is last,
+ * so the proof of work rewrites only its eight bytes for each nonce
+ * it tries. Each thread encodes into its own buffer and digest,
+ * reused for every hash it computes.
+ *
+ * The first blocks were hashed over the strings of their fields
+ * concatenated, the legacy layout, which blocks keep until they are
+ * mined again.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to encode and hash the header
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+/** encodes the canonical header of a block and hashes it */
+public final class BlockHeader {
+
+    // the layout hashing the strings of the fields concatenated, as the first blocks were
+    public static final int LEGACY_VERSION = 1;
+    // the layout hashing the fixed width fields
+    public static final int CANONICAL_VERSION = 2;
+    // the canonical layout with the target of the block after its difficulty
+    public static final int TARGET_VERSION = 3;
+
+    // the bytes of the header before the data
+    static final int FIXED_BYTES = 4 + 4 + 8 + 4 + 4 + Hash256.BYTES + 4;
+    // the bytes of the nonce, the last field of the header
+    static final int NONCE_BYTES = 8;
+
+    // the previous hash of the genesis block
+    private static final byte[] NO_HASH = new byte[Hash256.BYTES];
+    // the header of each thread, reused for every hash it computes
+    private static final ThreadLocal<BlockHeader> headers = ThreadLocal.withInitial(BlockHeader::new);
+
+    // the SHA256 digest of the thread
+    private final MessageDigest digest;
+    // the encoded header, grown when a block has more data than it holds
+    private ByteBuffer buffer = ByteBuffer.allocate(256);
+    // the bytes of the last hash computed
+    private final byte[] hashBytes = new byte[Hash256.BYTES];
+
+    /** BlockHeader constructor, each thread has its own */
+    private BlockHeader() {
+        try {
+            // Create a SHA256 digest
+            digest = MessageDigest.getInstance("SHA-256");
+            // handles NoSuchAlgorithmException
+        } catch (NoSuchAlgorithmException nsa) {
+            throw new IllegalStateException("No such algorithm exception thrown " + nsa);
+        }
+    }
+
+    /** determines the header of the calling thread */
+    static BlockHeader forThread() {
+        // returns the header reused by this thread
+        return headers.get();
+    }
+
+    /** encodes the canonical header of the block, replacing the header encoded before */
+    BlockHeader encode(Block block) {
+
+        // the transaction of the block
+        byte[] data = block.getData().getBytes(StandardCharsets.UTF_8);
+        // the buffer grows to hold the whole header
+        int length = FIXED_BYTES + (block.getTarget() == null ? 0 : Hash256.BYTES) + data.length + NONCE_BYTES;
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(Math.max(length, 2 * buffer.capacity()));
+        }
+
+        // each field at its place
+        buffer.clear();
+        buffer.putInt(block.getTarget() == null ? CANONICAL_VERSION : TARGET_VERSION);
+        buffer.putInt(block.getIndex());
+        buffer.putLong(block.getTimeStamp().getTime());
+        buffer.putInt(block.getTimeStamp().getNanos());
+        buffer.putInt(block.getDifficulty());
+        if (block.getTarget() != null) {
+            block.getTarget().writeTo(buffer);
+        }
+        if (block.getPreviousHash() == null) {
+            buffer.put(NO_HASH);
+        } else {
+            block.getPreviousHash().writeTo(buffer);
+        }
+        buffer.putInt(data.length);
+        buffer.put(data);
+        // a nonce past the range of a long is never reached by a search
+        buffer.putLong(block.getNonce().longValue());
+        buffer.flip();
+        return this;
+    }
+
+    /** loads a header encoded by another process, such as the template of a mining job */
+    BlockHeader load(byte[] header) {
+
+        // the buffer grows to hold the whole header
+        if (buffer.capacity() < header.length) {
+            buffer = ByteBuffer.allocate(Math.max(header.length, 2 * buffer.capacity()));
+        }
+        buffer.clear();
+        buffer.put(header);
+        buffer.flip();
+        return this;
+    }
+
+    /** copies the encoded header, sent to the mining workers as the template of a job */
+    byte[] toBytes() {
+        // returns the bytes up to the end of the nonce
+        return Arrays.copyOf(buffer.array(), buffer.limit());
+    }
+
+    /** replaces the nonce of the encoded header */
+    void setNonce(long nonce) {
+        // the nonce is the last field
+        buffer.putLong(buffer.limit() - NONCE_BYTES, nonce);
+    }
+
+    /** searches the given number of nonces from the first for one giving the header a hash at or below the target,
+     * returns that nonce or Miner.NOT_FOUND */
+    long search(Hash256 target, long firstNonce, long count) {
+        // the bytes of the target, compared with the bytes of each hash
+        byte[] targetBytes = target.toBytes();
+        // each nonce rewrites only the last eight bytes
+        for (long offset = 0; offset < count; offset++) {
+            setNonce(firstNonce + offset);
+            if (hashMeetsTarget(targetBytes)) {
+                return firstNonce + offset;
+            }
+        }
+        return Miner.NOT_FOUND;
+    }
+
+    /** decodes the block an encoded header belongs to, such as the template of a mining job */
+    static Block decode(byte[] header) {
+
+        // each field at its place
+        ByteBuffer fields = ByteBuffer.wrap(header);
+        int version = fields.getInt();
+        int index = fields.getInt();
+        Timestamp timeStamp = new Timestamp(fields.getLong());
+        timeStamp.setNanos(fields.getInt());
+        int difficulty = fields.getInt();
+        byte[] target = null;
+        if (version == TARGET_VERSION) {
+            target = new byte[Hash256.BYTES];
+            fields.get(target);
+        }
+        byte[] previous = new byte[Hash256.BYTES];
+        fields.get(previous);
+        byte[] data = new byte[fields.getInt()];
+        fields.get(data);
+
+        // the block, whose previous hash is all zeroes only for the genesis block
+        Block block = new Block(index, timeStamp, new String(data, StandardCharsets.UTF_8), difficulty);
+        block.setPreviousHash(index == 0 ? null : Hash256.of(previous));
+        block.setTarget(target == null ? null : Hash256.of(target));
+        block.setNonce(BigInteger.valueOf(fields.getLong()));
+        return block;
+    }
+
+    /** hashes the encoded header and determines if the hash, as an unsigned number, is at most the given target bytes */
+    boolean hashMeetsTarget(byte[] target) {
+
+        // the hash of the header
+        digestHeader();
+        // the first byte that differs decides, most of the time the first byte
+        for (int i = 0; i < Hash256.BYTES; i++) {
+            int hashByte = hashBytes[i] & 0xFF;
+            int targetByte = target[i] & 0xFF;
+            if (hashByte != targetByte) {
+                return hashByte < targetByte;
+            }
+        }
+        // a hash equal to the target meets it
+        return true;
+    }
+
+    /** hashes the encoded header into the bytes reused by this thread */
+    void digestHeader() {
+        digest.update(buffer.array(), 0, buffer.limit());
+        try {
+            digest.digest(hashBytes, 0, Hash256.BYTES);
+            // the buffer always has room for the hash
+        } catch (DigestException de) {
+            throw new IllegalStateException(de);
+        }
+    }
+
+    /** hashes the encoded header */
+    Hash256 hash() {
+        // the hash of the header
+        digestHeader();
+        return lastHash();
+    }
+
+    /** determines the hash computed by the last call to digestHeader or hashMeetsTarget */
+    Hash256 lastHash() {
+        // returns the hash as a value
+        return Hash256.of(hashBytes);
+    }
+}
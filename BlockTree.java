@@ -0,0 +1,224 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 19, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates the tree of every valid block known for
+ * one chain, mined here or received from a peer. A block is linked
+ * to its parent by its previous hash, so two blocks mined on the same
+ * parent start competing branches. Each block carries the work of
+ * its branch, the sum of the hashes expected to mine every block
+ * from the genesis block to it, 2^256 / (target + 1) per block, 16
+ * to the power of the difficulty for a block without a target. The best tip is the block with the most work; a branch
+ * with as much work as the best does not replace it, so the first
+ * tip seen is kept. The genesis blocks of different nodes are roots
+ * of the same tree, so nodes that started apart still agree on the
+ * heaviest branch. Each block records whether it was first seen in
+ * a chain of this server rather than received from a peer, so the
+ * transactions of the blocks mined here can be mined again when the
+ * chain leaves their branch.
+ *
+ * Once the best tip is a given depth above the finalized block, the
+ * tree is pruned: the block at that depth below the best tip becomes
+ * the finalized block, the root of the tree, and the blocks below it,
+ * along with the branches that do not descend from it, are dropped.
+ * A block at or below the finalized block is not added any more, so
+ * the tree holds at most about twice that depth of blocks per branch.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to link the blocks into a tree
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** the blocks of one chain, linked to their parents, with the branch of the most work */
+public class BlockTree {
+
+    // every block of the tree, by its hash
+    private final Map<Hash256, Node> nodes = new HashMap<Hash256, Node>();
+    // the tip of the branch with the most work, null for an empty tree
+    private Node best;
+    // the root the tree was last pruned to, null if it was never pruned
+    private Node finalized;
+
+    /** adds a block, mined here if local, returns its node, or null if the block is already known or is not valid on its parent */
+    public synchronized Node insert(Block block, boolean local) {
+
+        // the hash of the block, computed once
+        Hash256 hash = block.calculateHash();
+        if (nodes.containsKey(hash) || !block.meetsTarget(hash)) {
+            return null;
+        }
+        // a block at or below the finalized block can not start a branch any more
+        if (finalized != null && block.getIndex() <= finalized.block.getIndex()) {
+            return null;
+        }
+
+        // a genesis block is a root, any other block extends a known parent at the next index
+        Node parent = null;
+        if (block.getPreviousHash() == null) {
+            if (block.getIndex() != 0) {
+                return null;
+            }
+        } else {
+            parent = nodes.get(block.getPreviousHash());
+            if (parent == null || block.getIndex() != parent.block.getIndex() + 1) {
+                return null;
+            }
+        }
+
+        // the work of the branch ending with this block
+        BigInteger work = workOf(block);
+        if (parent != null) {
+            work = work.add(parent.work);
+        }
+        Node node = new Node(block, hash, parent, work, local);
+        nodes.put(hash, node);
+        // the first tip seen keeps its place unless another branch has more work
+        if (best == null || work.compareTo(best.work) > 0) {
+            best = node;
+        }
+        return node;
+    }
+
+    /** determines the node of the block with the given hash, null if it is not known */
+    public synchronized Node get(Hash256 hash) {
+        // returns the node if present
+        return hash == null ? null : nodes.get(hash);
+    }
+
+    /** determines the tip of the branch with the most work */
+    public synchronized Node getBest() {
+        // returns the best tip, null for an empty tree
+        return best;
+    }
+
+    /** determines the root the tree was last pruned to, null if it was never pruned */
+    public synchronized Node getFinalized() {
+        // returns the finalized block
+        return finalized;
+    }
+
+    /** determines the number of blocks of the tree */
+    public synchronized int size() {
+        // returns the number of blocks
+        return nodes.size();
+    }
+
+    /** finalizes the block the given depth below the best tip, once the best tip is twice that depth above the
+     * finalized block, dropping the blocks below it and the branches that do not descend from it */
+    public synchronized void prune(int finalityDepth) {
+
+        // the tree is pruned at most once every depth blocks, so each block is visited a bounded number of times
+        int rootIndex = finalized == null ? 0 : finalized.block.getIndex();
+        if (best == null || finalityDepth <= 0 || best.block.getIndex() - rootIndex < 2 * finalityDepth) {
+            return;
+        }
+        Node root = best;
+        while (root.block.getIndex() > best.block.getIndex() - finalityDepth) {
+            root = root.parent;
+        }
+
+        // the blocks are visited by index, so a parent is kept before its children are visited
+        List<Node> byIndex = new ArrayList<Node>(nodes.values());
+        byIndex.sort(Comparator.comparingInt(node -> node.block.getIndex()));
+        Map<Hash256, Node> kept = new HashMap<Hash256, Node>();
+        kept.put(root.hash, root);
+        for (Node node : byIndex) {
+            if (node.block.getIndex() > root.block.getIndex() && kept.containsKey(node.parent.hash)) {
+                kept.put(node.hash, node);
+            }
+        }
+
+        // the branches walked from the tips now end at the finalized block, so the blocks below it can be collected
+        root.parent = null;
+        finalized = root;
+        nodes.clear();
+        nodes.putAll(kept);
+    }
+
+    /** determines the work of a single block, the number of hashes expected to mine it */
+    public static BigInteger workOf(Block block) {
+        // one hash in 2^256 / (target + 1) is at or below the target
+        return BigInteger.ONE.shiftLeft(8 * Hash256.BYTES).divide(block.getHashTarget().toBigInteger().add(BigInteger.ONE));
+    }
+
+    /** a block of the tree */
+    public static final class Node {
+        // the block
+        private final Block block;
+        // the hash of the block
+        private final Hash256 hash;
+        // the node of the parent block, null for a genesis block or the finalized block
+        private volatile Node parent;
+        // the work of the branch from its genesis block to this block
+        private final BigInteger work;
+        // true if the block was first seen in a chain of this server
+        private final boolean local;
+
+        Node(Block block, Hash256 hash, Node parent, BigInteger work, boolean local) {
+            this.block = block;
+            this.hash = hash;
+            this.parent = parent;
+            this.work = work;
+            this.local = local;
+        }
+
+        /** getter method for the block */
+        public Block getBlock() {
+            return block;
+        }
+
+        /** getter method for the hash of the block */
+        public Hash256 getHash() {
+            return hash;
+        }
+
+        /** getter method for the parent node, null for a genesis block or the finalized block */
+        public Node getParent() {
+            return parent;
+        }
+
+        /** getter method for the work of the branch ending with this block */
+        public BigInteger getWork() {
+            return work;
+        }
+
+        /** determines if the block was first seen in a chain of this server rather than received from a peer */
+        public boolean isLocal() {
+            return local;
+        }
+
+        /** determines the last block this branch shares with the other, null if they have different genesis blocks or
+         * meet only below the finalized block */
+        public Node commonAncestor(Node other) {
+            // the deeper branch is walked back until both meet
+            Node node = this;
+            while (node != null && other != null && node != other) {
+                if (node.block.getIndex() >= other.block.getIndex()) {
+                    node = node.parent;
+                } else {
+                    other = other.parent;
+                }
+            }
+            return node == other ? node : null;
+        }
+
+        /** determines the blocks of the branch, from its genesis block, or the finalized block, to this block */
+        public List<Block> branch() {
+            // the blocks are collected from the tip back, then reversed
+            List<Block> blocks = new ArrayList<Block>();
+            for (Node node = this; node != null; node = node.parent) {
+                blocks.add(node.block);
+            }
+            Collections.reverse(blocks);
+            return blocks;
+        }
+    }
+}
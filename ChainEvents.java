@@ -0,0 +1,118 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates the Java Flight Recorder events of the
+ * server. A request is recorded from the time it is received until
+ * its response is ready, along with the spans in which it is parsed
+ * and authenticated, so the time of a slow request can be split
+ * between parsing, RSA verification and the operation itself. The
+ * mining of a block, the validation of a chain and the repair of a
+ * chain are recorded as spans of their own. While no recording is
+ * running, an event is never committed and its fields are never set,
+ * so the events cost next to nothing. A continuous recording is
+ * started with -XX:StartFlightRecording, and the events show up in
+ * JDK Mission Control under the Blockchain category.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to define the flight recorder events
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/** the flight recorder events of the server */
+public class ChainEvents {
+
+    /** a request, from the time it is received until its response is ready */
+    @Name("com.spentyal.andrew.Request")
+    @Label("Request")
+    @Category({ "Blockchain", "Server" })
+    @Description("A request served by the blockchain server")
+    public static class RequestEvent extends Event {
+        @Label("Operation")
+        int operation;
+
+        @Label("Client ID")
+        String clientID;
+    }
+
+    /** the parsing of a request line into its fields */
+    @Name("com.spentyal.andrew.RequestParsed")
+    @Label("Request Parsed")
+    @Category({ "Blockchain", "Server" })
+    @Description("The parsing of a request into its fields")
+    @Threshold("1 ms")
+    public static class RequestParsedEvent extends Event {
+        @Label("Request Length")
+        int requestLength;
+    }
+
+    /** the check of the public key and the sign, or the session tag, of a request */
+    @Name("com.spentyal.andrew.RequestAuthenticated")
+    @Label("Request Authenticated")
+    @Category({ "Blockchain", "Server" })
+    @Description("The check of the public key and the sign or session tag of a request")
+    @Threshold("1 ms")
+    public static class RequestAuthenticatedEvent extends Event {
+        @Label("Operation")
+        int operation;
+
+        @Label("Signature Algorithm")
+        String sigAlg;
+
+        @Label("Session")
+        boolean session;
+
+        @Label("Authenticated")
+        boolean authenticated;
+    }
+
+    /** the proof of work of a block */
+    @Name("com.spentyal.andrew.Mining")
+    @Label("Mining")
+    @Category({ "Blockchain", "Chain" })
+    @Description("The proof of work of a block")
+    @Threshold("1 ms")
+    public static class MiningEvent extends Event {
+        @Label("Block Index")
+        int index;
+
+        @Label("Difficulty")
+        int difficulty;
+
+        @Label("Nonces Tried")
+        long nonces;
+    }
+
+    /** the validation of a version of a chain */
+    @Name("com.spentyal.andrew.Validation")
+    @Label("Validation")
+    @Category({ "Blockchain", "Chain" })
+    @Description("The validation of a version of a chain")
+    public static class ValidationEvent extends Event {
+        @Label("Blocks")
+        int blocks;
+
+        @Label("Valid")
+        boolean valid;
+    }
+
+    /** the repair of a chain */
+    @Name("com.spentyal.andrew.Repair")
+    @Label("Repair")
+    @Category({ "Blockchain", "Chain" })
+    @Description("The repair of a chain, mining every invalid block again")
+    public static class RepairEvent extends Event {
+        @Label("Blocks")
+        int blocks;
+
+        @Label("Blocks Mined Again")
+        int repairedBlocks;
+    }
+}
@@ -0,0 +1,469 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates a registry of blockchains.
+ * Each client (and each chain name sent in the request, kept
+ * apart from the chains of the same name of the other clients)
+ * gets its own blockchain, created along with its genesis
+ * block the first time it is requested. The genesis block is
+ * mined, or the chain read from disk, outside the map of chains,
+ * so the other chains are not held up meanwhile; the requests for
+ * the same chain wait for it. Each chain has its
+ * own single writer, and the writers share one pool of
+ * threads, so separate chains are mined and validated in
+ * parallel instead of competing for one chain.
+ * A chain idle for longer than the configured time, or
+ * outside the configured memory budget, is written to local
+ * disk and evicted from memory. It is loaded back, without
+ * mining it again, when its client returns, and its file is kept
+ * until the chain is written again, so a crash meanwhile does not
+ * lose it. If configured, a
+ * chain loaded with blocks hashed in the legacy layout is then
+ * migrated to the canonical header by its writer.
+ * On a follower the registry holds replicas: a chain the leader
+ * has not sent yet is empty rather than created with a genesis
+ * block. Every version published on any chain is told to the
+ * listeners, such as the replication and the gossip.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to hold the chains of all clients
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/** holds the blockchain of every client */
+public class ChainRegistry {
+
+    // the resident chains, keyed by client ID, or client ID and chain name
+    private final ConcurrentMap<String, Entry> chains = new ConcurrentHashMap<String, Entry>();
+    // the chains being created or loaded, completed once they are resident
+    private final ConcurrentMap<String, CompletableFuture<ChainWriter>> loading = new ConcurrentHashMap<String, CompletableFuture<ChainWriter>>();
+    // the pool of threads shared by the writers of all chains
+    private final ExecutorService writerPool;
+    // the local disk holding the evicted chains
+    private final ChainStore chainStore;
+    // the time after which an unused chain is evicted, in milliseconds
+    private final long idleTimeToLiveMillis;
+    // the heap the resident chains may use, in bytes
+    private final long memoryBudgetBytes;
+    // true if the legacy blocks of a loaded chain are migrated to the canonical header
+    private final boolean migrateHeaders;
+    // true while the chains are replicas of a leader's chains
+    private volatile boolean replica;
+    // told of every version published on any chain, with the chain's key
+    private final List<BiConsumer<String, ChainSnapshot>> publishListeners = new CopyOnWriteArrayList<BiConsumer<String, ChainSnapshot>>();
+    // told of the key of every chain evicted
+    private final List<Consumer<String>> evictionListeners = new CopyOnWriteArrayList<Consumer<String>>();
+
+    // captures the number of chains evicted to disk
+    private final AtomicLong evictions = new AtomicLong();
+    // captures the number of chains loaded back from disk
+    private final AtomicLong reloads = new AtomicLong();
+    // captures the estimated heap used by the resident chains at the last sweep
+    private final AtomicLong memoryBytes = new AtomicLong();
+
+    /** ChainRegistry constructor, mutations of all chains run on the given number of threads */
+    public ChainRegistry(int writerThreads, ChainStore chainStore, long idleTimeToLiveMillis, long memoryBudgetBytes, long sweepIntervalMillis,
+                         boolean migrateHeaders) {
+
+        // the writer threads do not keep the process running
+        writerPool = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "chain-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // the local disk holding the evicted chains
+        this.chainStore = chainStore;
+        // the eviction limits
+        this.idleTimeToLiveMillis = idleTimeToLiveMillis;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        // the migration of the loaded chains
+        this.migrateHeaders = migrateHeaders;
+
+        // the chains are swept for eviction periodically
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chain-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** setter method for replica, a registry of replicas does not create the genesis block of a new chain */
+    public void setReplica(boolean replica) {
+        // sets whether the chains are replicas
+        this.replica = replica;
+    }
+
+    /** adds a listener told of every version published on any chain, such as the replication or the gossip */
+    public void addPublishListener(BiConsumer<String, ChainSnapshot> publishListener) {
+        // adds the listener, for the chains already resident too
+        publishListeners.add(publishListener);
+    }
+
+    /** adds a listener told of the key of every chain evicted, such as the gossip, which drops what it holds for it */
+    public void addEvictionListener(Consumer<String> evictionListener) {
+        // adds the listener
+        evictionListeners.add(evictionListener);
+    }
+
+    /** determines if the chain with the given key exists, resident or stored on disk */
+    public boolean contains(String chainKey) {
+        // returns true if the chain is in memory or has a file
+        return chains.containsKey(chainKey) || chainStore.contains(chainKey);
+    }
+
+    /** determines if the chain with the given key is held in memory */
+    public boolean isResident(String chainKey) {
+        // returns true if the chain is in memory
+        return chains.containsKey(chainKey);
+    }
+
+    /** determines the writer of the chain with the given key, loading the chain if it was evicted, or null if there is
+     * no such chain, which is never created here. The chain is not evicted until it is released. */
+    public ChainWriter acquireExisting(String chainKey) {
+        // a chain created or loaded meanwhile is acquired as any other
+        return contains(chainKey) ? acquire(chainKey) : null;
+    }
+
+    /** determines the keys of every chain, resident or stored on disk */
+    public List<String> chainKeys() throws IOException {
+        // a chain being evicted or loaded may be listed twice, once only is kept
+        Set<String> keys = new LinkedHashSet<String>(chains.keySet());
+        keys.addAll(chainStore.keys());
+        return new ArrayList<String>(keys);
+    }
+
+    /** determines the latest version of the chain with the given key, read from disk if it was evicted, without making
+     * the chain resident or creating it. Returns null if there is no such chain. */
+    public ChainSnapshot snapshotOf(String chainKey) throws IOException {
+
+        // a resident chain publishes its latest version
+        Entry entry = chains.get(chainKey);
+        if (entry != null) {
+            return entry.writer.getBlockChain().snapshot();
+        }
+        try {
+            // an evicted chain is read from its file, which is left in place
+            return chainStore.read(chainKey);
+            // handles a chain without a file, which may have been created meanwhile
+        } catch (NoSuchFileException e) {
+            entry = chains.get(chainKey);
+            return entry == null ? null : entry.writer.getBlockChain().snapshot();
+        }
+    }
+
+    /** determines the writer of the chain with the given key, creating or loading the chain if needed.
+     * The chain is not evicted until it is released. */
+    public ChainWriter acquire(String chainKey) {
+
+        while (true) {
+            // a resident chain is marked in use atomically, so a sweep can not evict it in between
+            ChainWriter writer = markInUse(chainKey);
+            if (writer != null) {
+                return writer;
+            }
+
+            // only one request creates or loads the chain, the others wait for it
+            CompletableFuture<ChainWriter> created = new CompletableFuture<ChainWriter>();
+            CompletableFuture<ChainWriter> pending = loading.putIfAbsent(chainKey, created);
+            if (pending != null) {
+                try {
+                    pending.join();
+                    // handles the failed load, which is then tried again by this request
+                } catch (CompletionException e) {
+                    // the next turn of the loop loads the chain itself
+                }
+                continue;
+            }
+
+            try {
+                // the chain may have been published just before this request took over the load
+                writer = markInUse(chainKey);
+                if (writer == null) {
+                    // the genesis block is mined, or the chain read, outside the map
+                    writer = loadOrCreateChain(chainKey);
+                    // the chain is published already in use, so a sweep can not evict it before the request runs
+                    Entry entry = new Entry(writer);
+                    entry.inUse = 1;
+                    entry.lastAccessMillis = System.currentTimeMillis();
+                    chains.put(chainKey, entry);
+                }
+                created.complete(writer);
+                // returns the writer of the chain
+                return writer;
+                // handles the failed load, telling the requests waiting for it
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+                throw e;
+            } finally {
+                // the next request for the chain finds it resident, or loads it again
+                loading.remove(chainKey, created);
+            }
+        }
+    }
+
+    /** marks the resident chain with the given key in use, null if it is not resident */
+    private ChainWriter markInUse(String chainKey) {
+
+        // the count is changed inside compute, like the eviction checks it
+        Entry entry = chains.computeIfPresent(chainKey, (key, existing) -> {
+            // a chain being written to disk stays resident instead
+            existing.evicting = false;
+            existing.inUse++;
+            existing.lastAccessMillis = System.currentTimeMillis();
+            return existing;
+        });
+        // returns the writer of the chain
+        return entry == null ? null : entry.writer;
+    }
+
+    /** marks the end of a request on the chain with the given key */
+    public void release(String chainKey) {
+
+        // the chain may be evicted again once no request uses it
+        chains.computeIfPresent(chainKey, (key, entry) -> {
+            entry.inUse--;
+            entry.lastAccessMillis = System.currentTimeMillis();
+            return entry;
+        });
+    }
+
+    /** loads the chain from disk if it was evicted, otherwise creates a new chain holding only its genesis block */
+    private ChainWriter loadOrCreateChain(String chainKey) {
+
+        // the blockchain of the client
+        BlockChain blockChain;
+        // if the chain was evicted earlier
+        if (chainStore.contains(chainKey)) {
+            try {
+                // loaded without mining its blocks again
+                blockChain = chainStore.load(chainKey);
+                reloads.incrementAndGet();
+                // handles IO Exception
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            // creating a BlockChain object
+            blockChain = new BlockChain();
+        }
+        // the checkpoints of its blocks name the chain
+        blockChain.setChainKey(chainKey);
+        // the versions published are told to the listeners of the registry, whenever they are added
+        blockChain.setPublishListener(snapshot -> {
+            for (BiConsumer<String, ChainSnapshot> listener : publishListeners) {
+                listener.accept(chainKey, snapshot);
+            }
+        });
+        // a new chain starts with its genesis block, unless it is a replica waiting for the leader's blocks
+        if (blockChain.getChainSize() == 0 && !replica) {
+            //  The Genesis block will be created with a difficulty of 2, index of 0.
+            Block genesisBlock = new Block(0, new Timestamp(System.currentTimeMillis()), "Genesis", 2);
+            // adding the block to the blockchain
+            blockChain.addBlock(genesisBlock);
+        }
+        // every mutation of the blockchain goes through its single writer
+        ChainWriter writer = new ChainWriter(blockChain, writerPool);
+        // the migration is queued ahead of any request, and mined on the writer pool
+        if (migrateHeaders && blockChain.hasLegacyHeaders()) {
+            try {
+                writer.submitMigrateHeaders();
+                // handles InterruptedException, the chain is then migrated on a later load
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return writer;
+    }
+
+    /** evicts the idle chains, then the least recently used chains until the memory budget is met */
+    private void sweep() {
+
+        try {
+            // the time of this sweep
+            long now = System.currentTimeMillis();
+            // captures the estimated heap used by the chains left in memory
+            long residentBytes = 0;
+            // captures the chains that may still be evicted for the memory budget
+            List<Map.Entry<String, Entry>> candidates = new ArrayList<Map.Entry<String, Entry>>();
+
+            // for each resident chain
+            for (Map.Entry<String, Entry> chain : chains.entrySet()) {
+                // if the chain was idle for longer than its time to live
+                if (now - chain.getValue().lastAccessMillis > idleTimeToLiveMillis && evict(chain.getKey())) {
+                    continue;
+                }
+                residentBytes += chain.getValue().writer.getBlockChain().snapshot().estimatedSizeBytes();
+                candidates.add(chain);
+            }
+
+            // the least recently used chains are evicted first
+            candidates.sort(Comparator.comparingLong(chain -> chain.getValue().lastAccessMillis));
+            for (Map.Entry<String, Entry> chain : candidates) {
+                // if the memory budget is met
+                if (residentBytes <= memoryBudgetBytes) {
+                    break;
+                }
+                long chainBytes = chain.getValue().writer.getBlockChain().snapshot().estimatedSizeBytes();
+                if (evict(chain.getKey())) {
+                    residentBytes -= chainBytes;
+                }
+            }
+
+            // captures the heap used by the resident chains
+            memoryBytes.set(residentBytes);
+            // a failed sweep must not stop the later sweeps
+        } catch (RuntimeException e) {
+            System.out.println("Exception:" + e.getMessage());
+        }
+    }
+
+    /** writes the chain with the given key to disk and removes it from memory, unless it is in use */
+    private boolean evict(String chainKey) {
+
+        // captures whether the chain was evicted, and whether this sweep marked it
+        boolean[] evicted = new boolean[1];
+        boolean[] marking = new boolean[1];
+
+        // the chain is only marked here, and written to disk outside the map
+        Entry marked = chains.computeIfPresent(chainKey, (key, entry) -> {
+            // a chain in use, with mutations waiting, or already being evicted stays in memory
+            if (entry.inUse > 0 || !entry.writer.isIdle() || entry.evicting) {
+                return entry;
+            }
+            // a replica never sent by the leader has nothing to keep
+            if (entry.writer.getBlockChain().getChainSize() == 0) {
+                evicted[0] = true;
+                return null;
+            }
+            entry.evicting = true;
+            marking[0] = true;
+            return entry;
+        });
+
+        // if the chain is being evicted by this sweep
+        if (marking[0]) {
+            ChainSnapshot snapshot = marked.writer.getBlockChain().snapshot();
+            try {
+                // the latest version of the chain is kept on disk
+                chainStore.save(chainKey, snapshot);
+                // handles IO Exception, the chain stays in memory
+            } catch (IOException e) {
+                System.out.println("IO Exception:" + e.getMessage());
+                chains.computeIfPresent(chainKey, (key, entry) -> {
+                    if (entry == marked) {
+                        entry.evicting = false;
+                    }
+                    return entry;
+                });
+                return false;
+            }
+            // a request acquiring the chain meanwhile clears the mark, and the chain stays resident
+            chains.computeIfPresent(chainKey, (key, entry) -> {
+                if (entry != marked) {
+                    return entry;
+                }
+                if (!entry.evicting || entry.inUse > 0 || !entry.writer.isIdle() || entry.writer.getBlockChain().snapshot() != snapshot) {
+                    entry.evicting = false;
+                    return entry;
+                }
+                evicted[0] = true;
+                evictions.incrementAndGet();
+                return null;
+            });
+        }
+
+        // the listeners drop what they hold for the chain
+        if (evicted[0]) {
+            for (Consumer<String> listener : evictionListeners) {
+                listener.accept(chainKey);
+            }
+        }
+        // returns true if the chain was evicted
+        return evicted[0];
+    }
+
+    /** determines the number of chains held in memory */
+    public int size() {
+        // returns the number of resident chains
+        return chains.size();
+    }
+
+    /** determines the number of blocks of the chains held in memory */
+    public long getBlockCount() {
+        // the blocks of the current version of each resident chain
+        long blocks = 0;
+        for (Entry entry : chains.values()) {
+            blocks += entry.writer.getBlockChain().snapshot().size();
+        }
+        return blocks;
+    }
+
+    /** determines the number of commands waiting for the writers of the chains held in memory */
+    public long getQueuedCommands() {
+        // the commands in the ring buffer of each resident chain
+        long commands = 0;
+        for (Entry entry : chains.values()) {
+            commands += entry.writer.getQueueDepth();
+        }
+        return commands;
+    }
+
+    /** determines the number of chains evicted to disk */
+    public long getEvictions() {
+        // returns the number of evictions
+        return evictions.get();
+    }
+
+    /** determines the number of chains loaded back from disk */
+    public long getReloads() {
+        // returns the number of reloads
+        return reloads.get();
+    }
+
+    /** determines the estimated heap used by the resident chains, as of the last sweep */
+    public long getMemoryBytes() {
+        // returns the estimated size in bytes
+        return memoryBytes.get();
+    }
+
+    /** a resident chain */
+    private static class Entry {
+        // the writer of the chain
+        final ChainWriter writer;
+        // the number of requests using the chain, changed only inside compute
+        int inUse;
+        // whether the chain is being written to disk, changed only inside compute
+        boolean evicting;
+        // the time the chain was last used
+        volatile long lastAccessMillis;
+
+        Entry(ChainWriter writer) {
+            this.writer = writer;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program represents one published version of a blockchain.
+ * Writers never modify a snapshot once it is published; instead they
+ * copy the blocks they change, build a new snapshot and publish it
+ * atomically. Readers take the current snapshot once and work on it
+ * without taking any locks, so they always see a consistent chain
+ * and never wait for a long mine or repair to finish.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to hold an immutable version of the chain
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** represents an immutable version of the blockchain */
+public final class ChainSnapshot {
+
+    // the empty chain, before the genesis block is added
+    static final ChainSnapshot EMPTY = new ChainSnapshot(new ArrayList<Block>(), null, 0, new long[0]);
+
+    // the blocks of this version, never modified after publication
+    private final List<Block> blocks;
+    // captures the SHA256 hash of the most recently added Block, null for the empty chain
+    private final Hash256 chainHash;
+    // number of the version, incremented by every mutation of the chain
+    private final long version;
+    // the version in which each block was added or last changed, indexed by block
+    private final long[] modifiedAt;
+
+    /** ChainSnapshot constructor, takes ownership of the given list of blocks and versions */
+    ChainSnapshot(List<Block> blocks, Hash256 chainHash, long version, long[] modifiedAt) {
+        // the list is wrapped so that readers can not modify it
+        this.blocks = Collections.unmodifiableList(blocks);
+        // hash of the most recently added block
+        this.chainHash = chainHash;
+        // version of this chain
+        this.version = version;
+        // the version of each block
+        this.modifiedAt = modifiedAt;
+    }
+
+    /** builds the version that follows this one, holding the given blocks */
+    ChainSnapshot next(List<Block> nextBlocks, Hash256 nextChainHash) {
+
+        // the version of the next snapshot
+        long nextVersion = version + 1;
+        // the blocks keep their version unless they were added or changed
+        long[] nextModifiedAt = Arrays.copyOf(modifiedAt, nextBlocks.size());
+        for (int i = 0; i < nextBlocks.size(); i++) {
+            // a writer copies a block before changing it, so only the copied blocks are hashed and compared
+            if (i >= blocks.size() || (nextBlocks.get(i) != blocks.get(i)
+                    && !nextBlocks.get(i).calculateHash().equals(blocks.get(i).calculateHash()))) {
+                nextModifiedAt[i] = nextVersion;
+            }
+        }
+        // returns the next version
+        return new ChainSnapshot(nextBlocks, nextChainHash, nextVersion, nextModifiedAt);
+    }
+
+    /** getter method for the blocks of this version */
+    public List<Block> getBlocks() {
+        // returns the read only list of blocks
+        return blocks;
+    }
+
+    /** getter method for chain hash */
+    public Hash256 getChainHash() {
+        // returns the hash of the most recently added block
+        return chainHash;
+    }
+
+    /** getter method for version */
+    public long getVersion() {
+        // returns the version number of this chain
+        return version;
+    }
+
+    /** determines the version in which the block with the given index was added or last changed */
+    public long getModifiedAt(int index) {
+        // returns the version of the block
+        return modifiedAt[index];
+    }
+
+    /** determines the size of the chain in blocks */
+    public int size() {
+        // returns the number of blocks in this version
+        return blocks.size();
+    }
+
+    /** determines a reference to the most recently added Block */
+    public Block getLatestBlock() {
+        // returns the reference to the most recently added Block
+        return blocks.get(blocks.size() - 1);
+    }
+
+    /** estimates the heap used by the blocks of this version, in bytes */
+    public long estimatedSizeBytes() {
+
+        // the snapshot, its list and the versions of the blocks
+        long size = 64 + 24L * blocks.size();
+        // for each block, its fields and previous hash plus the characters of its data
+        for (Block block : blocks) {
+            size += 160 + 2L * block.getData().length();
+        }
+        // returns the estimated size
+        return size;
+    }
+
+    /** copies the list of blocks, so a writer can build the next version from it */
+    List<Block> copyBlocks() {
+        // returns a new modifiable list holding the same blocks
+        return new ArrayList<Block>(blocks);
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates how a blockchain is kept on local disk.
+ * A chain evicted from memory is written to its own file, holding
+ * every block with the nonce already found by its proof of work,
+ * so the chain is loaded back later without mining it again.
+ * Each file is named after the SHA256 hash of the chain's key, as
+ * chain names are chosen by the clients.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to write and read the chain files
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/** stores evicted blockchains on local disk */
+public class ChainStore {
+
+    // marks the beginning of a chain file
+    private static final int MAGIC = 0x42434841;
+    // the layout of the chain file, and of the blocks sent to the followers
+    static final int FORMAT_VERSION = 5;
+
+    // the directory holding the chain files
+    private final Path directory;
+
+    /** ChainStore constructor, creates the directory if needed */
+    public ChainStore(String directory) throws IOException {
+        // the directory holding the chain files
+        this.directory = Paths.get(directory);
+        Files.createDirectories(this.directory);
+    }
+
+    /** determines if a chain with the given key is stored on disk */
+    public boolean contains(String chainKey) {
+        // returns true if the chain file exists
+        return Files.exists(fileOf(chainKey));
+    }
+
+    /** writes the given version of a chain to disk, replacing any earlier file */
+    public void save(String chainKey, ChainSnapshot snapshot) throws IOException {
+
+        // the chain is written to a temporary file first
+        Path file = fileOf(chainKey);
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+            // the header of the file
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, chainKey);
+            out.writeLong(snapshot.getVersion());
+            writeHash(out, snapshot.getChainHash());
+            out.writeInt(snapshot.size());
+
+            // each block of the chain
+            for (int i = 0; i < snapshot.size(); i++) {
+                writeBlock(out, snapshot.getBlocks().get(i), snapshot.getModifiedAt(i));
+            }
+        }
+
+        // a reader never sees a partly written chain file
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** reads the chain with the given key from disk. Its file is kept, so the chain survives a crash, until the chain
+     * is saved again when it is next evicted. */
+    public BlockChain load(String chainKey) throws IOException {
+        // the chain read from its file
+        return new BlockChain(read(chainKey));
+    }
+
+    /** reads the latest version of the chain with the given key from disk, leaving its file in place */
+    public ChainSnapshot read(String chainKey) throws IOException {
+
+        // the file of the chain
+        Path file = fileOf(chainKey);
+        // the blocks read from the file
+        List<Block> blocks = new ArrayList<Block>();
+        // the version in which each block was added or last changed
+        long[] modifiedAt;
+        // the version and chain hash read from the file
+        long version;
+        Hash256 chainHash;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            // the header of the file
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a chain file: " + file);
+            }
+            // only the current layout is read
+            if (in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a chain file: " + file);
+            }
+            if (!readString(in).equals(chainKey)) {
+                throw new IOException("Chain file " + file + " belongs to another chain");
+            }
+            version = in.readLong();
+            chainHash = readHash(in);
+            int size = in.readInt();
+            modifiedAt = new long[size];
+
+            // each block of the chain
+            for (int i = 0; i < size; i++) {
+                blocks.add(readBlock(in, modifiedAt, i));
+            }
+        }
+
+        // returns the version stored
+        return new ChainSnapshot(blocks, chainHash, version, modifiedAt);
+    }
+
+    /** removes the file of the chain with the given key, if there is one */
+    public void delete(String chainKey) throws IOException {
+        // a chain never evicted has no file
+        Files.deleteIfExists(fileOf(chainKey));
+    }
+
+    /** determines the keys of the chains stored on disk */
+    public List<String> keys() throws IOException {
+
+        // captures the key held by each chain file
+        List<String> keys = new ArrayList<String>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.chain")) {
+            for (Path file : files) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    // the key follows the magic number and the layout
+                    if (in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION) {
+                        keys.add(readString(in));
+                    }
+                    // handles a file removed while the directory was read
+                } catch (NoSuchFileException e) {
+                    // the chain is resident again
+                }
+            }
+        }
+        // returns the keys of the stored chains
+        return keys;
+    }
+
+    /** writes a block and the version in which it was last changed, in the current layout */
+    static void writeBlock(DataOutputStream out, Block block, long modifiedAt) throws IOException {
+        out.writeInt(block.getIndex());
+        // the milliseconds and nanoseconds, so the timestamp prints and hashes the same once loaded
+        out.writeLong(block.getTimeStamp().getTime());
+        out.writeInt(block.getTimeStamp().getNanos());
+        writeString(out, block.getData());
+        writeHash(out, block.getPreviousHash());
+        byte[] nonce = block.getNonce().toByteArray();
+        out.writeInt(nonce.length);
+        out.write(nonce);
+        out.writeInt(block.getDifficulty());
+        out.writeLong(modifiedAt);
+        out.writeInt(block.getHeaderVersion());
+        writeHash(out, block.getTarget());
+    }
+
+    /** reads a block written in the current layout, storing the version in which it was last changed at the given place */
+    static Block readBlock(DataInputStream in, long[] modifiedAt, int i) throws IOException {
+        int index = in.readInt();
+        Timestamp timeStamp = new Timestamp(in.readLong());
+        timeStamp.setNanos(in.readInt());
+        String data = readString(in);
+        Hash256 previousHash = readHash(in);
+        byte[] nonce = new byte[in.readInt()];
+        in.readFully(nonce);
+        int difficulty = in.readInt();
+        modifiedAt[i] = in.readLong();
+        // the layout the block was hashed in, and the target picked by the server, if any
+        int headerVersion = in.readInt();
+        Hash256 target = readHash(in);
+
+        // the block keeps the nonce found by its proof of work
+        Block block = new Block(index, timeStamp, data, difficulty);
+        block.setPreviousHash(previousHash);
+        block.setNonce(new BigInteger(nonce));
+        block.setHeaderVersion(headerVersion);
+        block.setTarget(target);
+        return block;
+    }
+
+    /** determines the file of the chain with the given key */
+    private Path fileOf(String chainKey) {
+
+        try {
+            // hash the key, so any chain name gives a safe file name
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hashBytes = digest.digest(chainKey.getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(String.format("%064x", new BigInteger(1, hashBytes)) + ".chain");
+            // handles NoSuchAlgorithmException
+        } catch (NoSuchAlgorithmException nsa) {
+            throw new IllegalStateException("No such algorithm exception thrown " + nsa);
+        }
+    }
+
+    /** writes a hash as its 32 bytes, after a flag telling if there is a hash at all */
+    static void writeHash(DataOutputStream out, Hash256 hash) throws IOException {
+        out.writeBoolean(hash != null);
+        if (hash != null) {
+            out.write(hash.toBytes());
+        }
+    }
+
+    /** reads a hash written by writeHash, null if there is none */
+    static Hash256 readHash(DataInputStream in) throws IOException {
+
+        // the bytes of the hash
+        if (!in.readBoolean()) {
+            return null;
+        }
+        byte[] bytes = new byte[Hash256.BYTES];
+        in.readFully(bytes);
+        return Hash256.of(bytes);
+    }
+
+    /** writes a length prefixed UTF-8 string */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** reads a length prefixed UTF-8 string */
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
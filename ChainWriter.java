@@ -0,0 +1,322 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates a single writer for a blockchain.
+ * Every mutation (add, corrupt, repair) is sent as a command into
+ * a bounded ring buffer, which a single writer drains. The writers
+ * of all chains share one pool of threads, but at most one thread
+ * drains a given chain at a time, so separate chains are mined in
+ * parallel while each chain still has a single writer.
+ * Consecutive adds are applied as one batch and published as a
+ * single new version of the chain. Each command completes a
+ * future, so the request that sent it can wait for its result.
+ * Mutations are applied in the order they were sent.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed for the writer and its ring buffer
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** applies every mutation of a blockchain, one command at a time */
+public class ChainWriter {
+
+    // the number of commands the ring buffer can hold
+    static final int RING_BUFFER_SIZE = 1024;
+    // the largest number of commands applied in one batch
+    static final int MAX_BATCH_SIZE = 64;
+    // the number of batches applied before the thread is handed to another chain
+    static final int MAX_BATCHES_PER_TURN = 4;
+
+    // the blockchain mutated by this writer
+    private final BlockChain blockChain;
+    // bounded ring buffer holding the commands waiting for the writer
+    private final BlockingQueue<Command> ringBuffer = new ArrayBlockingQueue<Command>(RING_BUFFER_SIZE);
+    // the pool of threads shared by the writers of all chains
+    private final Executor writerPool;
+    // true while a drain of this chain is waiting for or running on the pool
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    /** ChainWriter constructor, the commands are applied on the given pool */
+    public ChainWriter(BlockChain blockChain, Executor writerPool) {
+        // the blockchain to be mutated
+        this.blockChain = blockChain;
+        // the pool running the drains
+        this.writerPool = writerPool;
+    }
+
+    /** getter method for the blockchain, readers use its snapshot directly */
+    public BlockChain getBlockChain() {
+        // returns the blockchain mutated by this writer
+        return blockChain;
+    }
+
+    /** sends a command to add a transaction, the future holds the response JSON */
+    public CompletableFuture<String> submitAdd(int difficulty, String transaction) throws InterruptedException {
+        // the add command
+        AddCommand command = new AddCommand(difficulty, transaction);
+        // waits for room in the ring buffer
+        ringBuffer.put(command);
+        schedule();
+        return command.result;
+    }
+
+    /** sends a command to corrupt a block, the future completes once the block is changed */
+    public CompletableFuture<Long> submitCorrupt(int blockID, String blockData) throws InterruptedException {
+        // the corrupt command
+        CorruptCommand command = new CorruptCommand(blockID, blockData);
+        // waits for room in the ring buffer
+        ringBuffer.put(command);
+        schedule();
+        return command.result;
+    }
+
+    /** sends a command to repair the chain, the future holds the execution time of the repair */
+    public CompletableFuture<Long> submitRepair() throws InterruptedException {
+        // the repair command
+        RepairCommand command = new RepairCommand();
+        // waits for room in the ring buffer
+        ringBuffer.put(command);
+        schedule();
+        return command.result;
+    }
+
+    /** sends a command to move the legacy blocks to the canonical header, the future holds the number of blocks mined again */
+    public CompletableFuture<Integer> submitMigrateHeaders() throws InterruptedException {
+        // the migrate command
+        MigrateHeadersCommand command = new MigrateHeadersCommand();
+        // waits for room in the ring buffer
+        ringBuffer.put(command);
+        schedule();
+        return command.result;
+    }
+
+    /** sends a command to append a block whose search was checkpointed before a restart, the future holds false if the
+     * chain has moved on */
+    public CompletableFuture<Boolean> submitResumeBlock(Block block) throws InterruptedException {
+        // the resume command
+        ResumeBlockCommand command = new ResumeBlockCommand(block);
+        // waits for room in the ring buffer
+        ringBuffer.put(command);
+        schedule();
+        return command.result;
+    }
+
+    /** determines the number of commands waiting in the ring buffer */
+    public int getQueueDepth() {
+        // returns the number of waiting commands
+        return ringBuffer.size();
+    }
+
+    /** determines if no command is waiting for or being applied by this writer */
+    public boolean isIdle() {
+        // returns true if nothing is left to drain
+        return !scheduled.get() && ringBuffer.isEmpty();
+    }
+
+    /** makes sure a drain of this chain is waiting for or running on the pool */
+    private void schedule() {
+        // only one drain of a chain may run at a time
+        if (scheduled.compareAndSet(false, true)) {
+            writerPool.execute(this::drain);
+        }
+    }
+
+    /** drains the ring buffer, applying the commands in order */
+    private void drain() {
+
+        // captures the commands taken from the ring buffer
+        List<Command> batch = new ArrayList<Command>();
+
+        try {
+            // a bounded number of batches per turn, so the other chains get the pool
+            for (int turn = 0; turn < MAX_BATCHES_PER_TURN; turn++) {
+                // takes the waiting commands, up to the batch size
+                ringBuffer.drainTo(batch, MAX_BATCH_SIZE);
+                // if nothing is waiting
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                // applies the commands in the order they were sent
+                int i = 0;
+                while (i < batch.size()) {
+                    // consecutive adds are applied as a single batch
+                    if (batch.get(i) instanceof AddCommand) {
+                        int end = i;
+                        while (end < batch.size() && batch.get(end) instanceof AddCommand) {
+                            end++;
+                        }
+                        applyAdds(batch.subList(i, end));
+                        i = end;
+                    } else {
+                        ((SingleCommand) batch.get(i)).apply(blockChain);
+                        i++;
+                    }
+                }
+
+                // ready for the next batch
+                batch.clear();
+            }
+        } finally {
+            // an error thrown by a command must not leave the chain scheduled forever,
+            // and a command sent after the last drainTo must not be left behind
+            scheduled.set(false);
+            if (!ringBuffer.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    /** applies consecutive adds, publishing one new version of the chain for all of them */
+    private void applyAdds(List<Command> adds) {
+
+        // captures the difficulty and transaction of each add
+        List<Integer> difficulties = new ArrayList<Integer>();
+        List<String> transactions = new ArrayList<String>();
+        for (Command command : adds) {
+            difficulties.add(((AddCommand) command).difficulty);
+            transactions.add(((AddCommand) command).transaction);
+        }
+
+        try {
+            // adds all the transactions to the block chain, each failing on its own
+            List<CompletableFuture<String>> responses = blockChain.addTransactionsToBlockChain(difficulties, transactions);
+            // completes each request with its own response
+            for (int i = 0; i < adds.size(); i++) {
+                CompletableFuture<String> result = ((AddCommand) adds.get(i)).result;
+                responses.get(i).whenComplete((response, e) -> {
+                    if (e == null) {
+                        result.complete(response);
+                    } else {
+                        result.completeExceptionally(e);
+                    }
+                });
+            }
+            // handles the exception, failing every add of the batch
+        } catch (RuntimeException e) {
+            for (Command command : adds) {
+                ((AddCommand) command).result.completeExceptionally(e);
+            }
+        } finally {
+            // an error thrown while adding must not leave a request waiting forever
+            for (Command command : adds) {
+                ((AddCommand) command).result.completeExceptionally(new IllegalStateException("The transaction was not added"));
+            }
+        }
+    }
+
+    /** a mutation waiting in the ring buffer */
+    private abstract static class Command {
+    }
+
+    /** a mutation applied on its own */
+    private abstract static class SingleCommand extends Command {
+        /** applies the mutation to the blockchain and completes the future */
+        abstract void apply(BlockChain blockChain);
+    }
+
+    /** adds a transaction to the blockchain, always applied with the adds next to it */
+    private static class AddCommand extends Command {
+        // the difficulty of the new block
+        final int difficulty;
+        // the transaction of the new block
+        final String transaction;
+        // completed with the response JSON
+        final CompletableFuture<String> result = new CompletableFuture<String>();
+
+        AddCommand(int difficulty, String transaction) {
+            this.difficulty = difficulty;
+            this.transaction = transaction;
+        }
+    }
+
+    /** corrupts the data of a block */
+    private static class CorruptCommand extends SingleCommand {
+        // the index of the block
+        final int blockID;
+        // the new data of the block
+        final String blockData;
+        // completed with the execution time once the block is changed
+        final CompletableFuture<Long> result = new CompletableFuture<Long>();
+
+        CorruptCommand(int blockID, String blockData) {
+            this.blockID = blockID;
+            this.blockData = blockData;
+        }
+
+        @Override
+        void apply(BlockChain blockChain) {
+            try {
+                // captures the start time of the process
+                long startTime = System.currentTimeMillis();
+                blockChain.corruptBlockChain(blockID, blockData);
+                result.complete(System.currentTimeMillis() - startTime);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /** repairs the blockchain */
+    private static class RepairCommand extends SingleCommand {
+        // completed with the execution time of the repair
+        final CompletableFuture<Long> result = new CompletableFuture<Long>();
+
+        @Override
+        void apply(BlockChain blockChain) {
+            try {
+                // captures the start time of the process
+                long startTime = System.currentTimeMillis();
+                blockChain.repairChain();
+                result.complete(System.currentTimeMillis() - startTime);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /** moves the legacy blocks of the blockchain to the canonical header */
+    private static class MigrateHeadersCommand extends SingleCommand {
+        // completed with the number of blocks mined again
+        final CompletableFuture<Integer> result = new CompletableFuture<Integer>();
+
+        @Override
+        void apply(BlockChain blockChain) {
+            try {
+                result.complete(blockChain.migrateHeaders());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /** appends a block whose search was checkpointed before a restart */
+    private static class ResumeBlockCommand extends SingleCommand {
+        // the block to append
+        final Block block;
+        // completed with false if the chain has moved on
+        final CompletableFuture<Boolean> result = new CompletableFuture<Boolean>();
+
+        ResumeBlockCommand(Block block) {
+            this.block = block;
+        }
+
+        @Override
+        void apply(BlockChain blockChain) {
+            try {
+                result.complete(blockChain.resumeBlock(block));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
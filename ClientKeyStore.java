@@ -0,0 +1,147 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates how the client keeps its RSA keys on
+ * local disk. Generating a key pair means searching for two large
+ * primes, which takes far longer than anything else a short-lived
+ * client does, and a new key also means a new client ID. The key
+ * file holds one or more private keys (PKCS #8), each of which
+ * carries its public exponent and modulus. It is written on the
+ * first run and read on every later run. A pool of keys can be
+ * generated at once, in parallel, for load tests that need many
+ * client identities.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to write and read the key file
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAKeyGenParameterSpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/** stores the RSA keys of the client on local disk */
+public class ClientKeyStore {
+
+    // marks the beginning of a key file
+    private static final int MAGIC = 0x424B4559;
+    // the layout of the key file
+    private static final int FORMAT_VERSION = 1;
+    // the size of the keys generated unless -Dblockchain.keyBits says otherwise, the two 400 bit primes the client
+    // has always used; best practice for security is 2048 bits, at the cost of a slower first run and larger signs
+    static final int DEFAULT_KEY_BITS = 800;
+
+    /** reads at least the given number of keys from the file, generating and saving the missing ones */
+    public static List<KeyPair> loadOrGenerate(Path file, int count, int keyBits) throws IOException, GeneralSecurityException {
+
+        // the keys already in the file, if any
+        List<KeyPair> keys = Files.exists(file) ? load(file) : new ArrayList<KeyPair>();
+        // if the file holds enough keys, none has to be generated
+        if (keys.size() >= count) {
+            return keys;
+        }
+
+        // the missing keys are generated and the whole pool is saved
+        keys.addAll(generate(count - keys.size(), keyBits));
+        save(file, keys);
+        return keys;
+    }
+
+    /** generates the given number of key pairs, in parallel on the common pool */
+    public static List<KeyPair> generate(int count, int keyBits) {
+        // each key pair searches for its own primes, so they are generated independently
+        return IntStream.range(0, count).parallel()
+                .mapToObj(i -> generate(keyBits))
+                .collect(Collectors.toList());
+    }
+
+    /** generates one key pair, with the prime 65537 as the public exponent */
+    private static KeyPair generate(int keyBits) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(new RSAKeyGenParameterSpec(keyBits, RSAKeyGenParameterSpec.F4));
+            return generator.generateKeyPair();
+            // handles an unknown algorithm or an unusable key size
+        } catch (GeneralSecurityException gse) {
+            throw new IllegalStateException("Can not generate an RSA key pair " + gse);
+        }
+    }
+
+    /** writes the key pairs to the file, replacing any earlier file */
+    public static void save(Path file, List<KeyPair> keys) throws IOException {
+
+        // the keys are written to a temporary file first, created so that only the owner may read it
+        // before any key is written, where the file system allows it
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporaryFile;
+        try {
+            temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp",
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException uoe) {
+            // on file systems without POSIX permissions
+            temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        }
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                // the header of the file
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(keys.size());
+
+                // each private key, which also holds e and n
+                for (KeyPair key : keys) {
+                    byte[] encoded = key.getPrivate().getEncoded();
+                    out.writeInt(encoded.length);
+                    out.write(encoded);
+                }
+            }
+
+            // a client never reads a partly written key file
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // a file left by a failed write is removed
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /** reads the key pairs from the file */
+    public static List<KeyPair> load(Path file) throws IOException, GeneralSecurityException {
+
+        // the keys read from the file
+        List<KeyPair> keys = new ArrayList<KeyPair>();
+        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            // the header of the file
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a key file: " + file);
+            }
+            int size = in.readInt();
+
+            // each private key, from which the public key is rebuilt
+            for (int i = 0; i < size; i++) {
+                byte[] encoded = new byte[in.readInt()];
+                in.readFully(encoded);
+                RSAPrivateCrtKey privateKey = (RSAPrivateCrtKey) keyFactory.generatePrivate(new PKCS8EncodedKeySpec(encoded));
+                keys.add(new KeyPair(keyFactory.generatePublic(new RSAPublicKeySpec(privateKey.getModulus(), privateKey.getPublicExponent())), privateKey));
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program protects the server from slow or stalled clients.
+ * The whole request line must arrive within the read deadline and
+ * must not be longer than the maximum request size. A response
+ * that can not be written within the write deadline has its socket
+ * closed by a watchdog, as blocking sockets have no write timeout.
+ * TCP keep alive is turned on so half-open connections are found,
+ * and a connection closed before a full request arrives is dropped.
+ * Each of these outcomes is counted. A connection already served
+ * may be closed, or left idle until the read deadline, between two
+ * requests without being counted.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to guard the client sockets
+import java.io.*;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** applies the deadlines and size limits of the client connections */
+public class ConnectionGuard {
+
+    // the time allowed for a full request line to arrive, in milliseconds
+    private final int readTimeoutMillis;
+    // the time allowed for a response to be written, in milliseconds
+    private final int writeTimeoutMillis;
+    // the longest request line accepted, in bytes
+    private final int maxRequestBytes;
+    // closes the sockets of writes past their deadline
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "write-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // captures the number of requests not received within the read deadline
+    private final AtomicLong readTimeouts = new AtomicLong();
+    // captures the number of responses not written within the write deadline
+    private final AtomicLong writeTimeouts = new AtomicLong();
+    // captures the number of requests longer than the maximum size
+    private final AtomicLong oversizedRequests = new AtomicLong();
+    // captures the number of connections closed by the client before a full request arrived
+    private final AtomicLong halfOpenDrops = new AtomicLong();
+
+    /** ConnectionGuard constructor */
+    public ConnectionGuard(int readTimeoutMillis, int writeTimeoutMillis, int maxRequestBytes) {
+        // the deadlines and size limit of the connections
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.writeTimeoutMillis = writeTimeoutMillis;
+        this.maxRequestBytes = maxRequestBytes;
+    }
+
+    /** reads one request line from the client's buffered stream, within the read deadline and the maximum size.
+     * Returns null if the connection was closed or dropped, in which case the socket should just be closed. */
+    public String readRequestLine(Socket clientSocket, InputStream in, boolean firstRequest) throws IOException {
+
+        // half-open connections are found by TCP keep alive, turned on once per connection
+        if (firstRequest) {
+            clientSocket.setKeepAlive(true);
+        }
+        // the time by which the whole line must arrive
+        long deadline = System.currentTimeMillis() + readTimeoutMillis;
+        // the read timeout last set on the socket, which is set again only when the time left changes
+        int timeoutSet = -1;
+        // captures the bytes of the line
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        while (true) {
+            // each read waits only for the time left, so a client sending a byte at a time can not hold the thread
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                countDrop(readTimeouts, firstRequest, line);
+                return null;
+            }
+            // the bytes of a line arriving together are read within the same millisecond, so the timeout is set once
+            if (remaining != timeoutSet) {
+                timeoutSet = (int) remaining;
+                clientSocket.setSoTimeout(timeoutSet);
+            }
+
+            int read;
+            try {
+                read = in.read();
+                // handles a client that sent nothing in time
+            } catch (SocketTimeoutException timeout) {
+                countDrop(readTimeouts, firstRequest, line);
+                return null;
+            }
+
+            // if the client closed the connection before the end of the line
+            if (read < 0) {
+                countDrop(halfOpenDrops, firstRequest, line);
+                return null;
+            }
+            // the end of the request line
+            if (read == '\n') {
+                break;
+            }
+            // if the request is longer than the maximum size
+            if (line.size() >= maxRequestBytes) {
+                oversizedRequests.incrementAndGet();
+                return null;
+            }
+            line.write(read);
+        }
+
+        // the line is decoded the way the client encoded it
+        String request = new String(line.toByteArray(), Charset.defaultCharset());
+        // returns the line without its line terminator
+        return request.endsWith("\r") ? request.substring(0, request.length() - 1) : request;
+    }
+
+    /** counts a dropped connection, unless it was idle between two requests */
+    private static void countDrop(AtomicLong counter, boolean firstRequest, ByteArrayOutputStream line) {
+        // a served client is free to close or idle once its response is sent
+        if (firstRequest || line.size() > 0) {
+            counter.incrementAndGet();
+        }
+    }
+
+    /** encodes the response line the way the client decodes it */
+    public static byte[] encodeResponse(String response) {
+        // the response followed by a line terminator
+        return response.concat(System.lineSeparator()).getBytes(Charset.defaultCharset());
+    }
+
+    /** writes the response line to the client, closing the socket if it is not written within the write deadline */
+    public void writeResponse(Socket clientSocket, String response) throws IOException {
+        // writes the encoded response
+        writeResponse(clientSocket, encodeResponse(response));
+    }
+
+    /** writes the encoded response line to the client, closing the socket if it is not written within the write deadline */
+    public void writeResponse(Socket clientSocket, byte[] response) throws IOException {
+
+        // the watchdog closes the socket once the deadline passes, which ends the blocked write
+        ScheduledFuture<?> deadline = watchdog.schedule(() -> {
+            writeTimeouts.incrementAndGet();
+            try {
+                clientSocket.close();
+            } catch (IOException e) {
+                // ignore exception on close
+            }
+        }, writeTimeoutMillis, TimeUnit.MILLISECONDS);
+
+        try {
+            // sends the response to the client
+            OutputStream out = clientSocket.getOutputStream();
+            out.write(response);
+            out.flush();
+        } finally {
+            // the write finished in time
+            deadline.cancel(false);
+        }
+    }
+
+    /** determines the number of requests not received within the read deadline */
+    public long getReadTimeouts() {
+        // returns the number of read timeouts
+        return readTimeouts.get();
+    }
+
+    /** determines the number of responses not written within the write deadline */
+    public long getWriteTimeouts() {
+        // returns the number of write timeouts
+        return writeTimeouts.get();
+    }
+
+    /** determines the number of requests longer than the maximum size */
+    public long getOversizedRequests() {
+        // returns the number of oversized requests
+        return oversizedRequests.get();
+    }
+
+    /** determines the number of connections closed before a full request arrived */
+    public long getHalfOpenDrops() {
+        // returns the number of dropped connections
+        return halfOpenDrops.get();
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 19, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates the retargeting of the blocks mined by
+ * the server. A client asks for a difficulty in whole hex zeroes,
+ * each of which multiplies the time to mine a block by 16. Started
+ * with -Dblockchain.targetBlockMillis, the server picks the target of
+ * every block added instead, a full 256 bit number: a hash meets it
+ * when it is at most the target, which one hash in
+ * 2^256 / (target + 1) is. The time and the nonces of the last blocks
+ * mined give the measured hash rate, the hashes a block takes in the
+ * target time at that rate give its target, so the blocks take the
+ * target time on average whatever difficulty the clients ask for.
+ * Before any block is mined, the rate is measured by hashing a
+ * header for a moment.
+ *
+ * The target moves at most by a factor of four from the target of
+ * the previous block of the chain, so a single block mined while the
+ * machine was busy does not swing it. The difficulty of the block is
+ * set to the leading hex zeroes of its target, which every proper
+ * hash has.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to compute the targets
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** picks the target of each block added from the measured hash rate, so blocks take the target time to mine */
+public class DifficultyRetargeter {
+
+    // one more than the largest hash
+    private static final BigInteger HASH_SPACE = BigInteger.ONE.shiftLeft(8 * Hash256.BYTES);
+    // the factor the target moves by at most from one block to the next
+    private static final int MAX_ADJUSTMENT = 4;
+    // the time the hash rate is measured for before any block is mined
+    private static final long BENCHMARK_NANOS = 200_000_000L;
+
+    // the time a block should take to mine
+    private final long targetBlockNanos;
+    // the nonces tried and the time taken by each of the last blocks mined, a ring
+    private final long[] blockNonces;
+    private final long[] blockNanos;
+    // the next place of the ring, and the number of blocks it holds
+    private int nextBlock;
+    private int measuredBlocks;
+    // the hash rate measured before any block is mined
+    private final double benchmarkHashesPerSecond;
+
+    // captures the number of blocks retargeted
+    private final AtomicLong retargetedBlocks = new AtomicLong();
+    // captures the hashes expected to mine the last block retargeted
+    private volatile long expectedHashes;
+
+    /** DifficultyRetargeter constructor, aiming every block at the given time, measured over the given number of blocks */
+    public DifficultyRetargeter(long targetBlockMillis, int window) {
+
+        // the time a block should take
+        this.targetBlockNanos = targetBlockMillis * 1_000_000L;
+        // the last blocks mined
+        this.blockNonces = new long[window];
+        this.blockNanos = new long[window];
+        // the rate until the first block is mined
+        this.benchmarkHashesPerSecond = benchmark();
+    }
+
+    /** records the nonces tried and the time taken to mine a block */
+    public synchronized void recordMining(long nonces, long nanos) {
+        // the oldest block of the ring is replaced
+        blockNonces[nextBlock] = nonces;
+        blockNanos[nextBlock] = nanos;
+        nextBlock = (nextBlock + 1) % blockNonces.length;
+        measuredBlocks = Math.min(measuredBlocks + 1, blockNonces.length);
+    }
+
+    /** determines the hash rate measured over the last blocks mined */
+    public synchronized double getHashesPerSecond() {
+
+        // the nonces and time of the blocks measured
+        long nonces = 0;
+        long nanos = 0;
+        for (int i = 0; i < measuredBlocks; i++) {
+            nonces += blockNonces[i];
+            nanos += blockNanos[i];
+        }
+        // before any block is mined, the benchmark
+        return nanos == 0 ? benchmarkHashesPerSecond : nonces * 1e9 / nanos;
+    }
+
+    /** sets the target and the difficulty of a block appended after the given block, null for the genesis block */
+    public void retarget(Block block, Block previousBlock) {
+
+        // the hashes a block of the target time takes at the measured rate
+        long blockHashes = getTargetHashes();
+        BigInteger target = HASH_SPACE.divide(BigInteger.valueOf(blockHashes)).subtract(BigInteger.ONE);
+
+        // a target set by the retargeting moves at most by a factor from one block to the next
+        if (previousBlock != null && previousBlock.getTarget() != null) {
+            BigInteger previousTarget = previousBlock.getTarget().toBigInteger();
+            target = target.max(previousTarget.divide(BigInteger.valueOf(MAX_ADJUSTMENT)));
+            target = target.min(previousTarget.multiply(BigInteger.valueOf(MAX_ADJUSTMENT)).add(BigInteger.valueOf(MAX_ADJUSTMENT - 1)));
+        }
+        target = target.min(Hash256.MAX.toBigInteger());
+
+        // every hash at or below the target has the leading hex zeroes of the target
+        Hash256 blockTarget = Hash256.valueOf(target);
+        block.setTarget(blockTarget);
+        block.setDifficulty(blockTarget.leadingZeroBits() / 4);
+        retargetedBlocks.incrementAndGet();
+        expectedHashes = BlockTree.workOf(block).min(BigInteger.valueOf(Long.MAX_VALUE)).longValue();
+    }
+
+    /** determines the hashes a block of the target time takes at the measured rate, at least one */
+    public long getTargetHashes() {
+        // the rate times the target time
+        double hashes = getHashesPerSecond() * targetBlockNanos / 1e9;
+        return (long) Math.max(1, Math.min(Long.MAX_VALUE, Math.ceil(hashes)));
+    }
+
+    /** determines the measured hash rate, in whole hashes per second */
+    public long getMeasuredHashesPerSecond() {
+        // returns the rate of the last blocks
+        return (long) getHashesPerSecond();
+    }
+
+    /** determines the number of blocks retargeted */
+    public long getRetargetedBlocks() {
+        // returns the number of blocks
+        return retargetedBlocks.get();
+    }
+
+    /** determines the hashes expected to mine the last block retargeted */
+    public long getExpectedHashes() {
+        // returns the work of the last target
+        return expectedHashes;
+    }
+
+    /** measures the hash rate of this thread by hashing a header for a moment */
+    private static double benchmark() {
+
+        // the header of a block, hashed for each nonce as the proof of work does
+        BlockHeader header = BlockHeader.forThread().encode(new Block(0, new Timestamp(System.currentTimeMillis()), "00000000", 0));
+        long startNanos = System.nanoTime();
+        long hashes = 0;
+        long elapsedNanos;
+        do {
+            header.setNonce(hashes++);
+            header.digestHeader();
+            elapsedNanos = System.nanoTime() - startNanos;
+        } while (elapsedNanos < BENCHMARK_NANOS);
+        // returns the hashes per second
+        return hashes * 1e9 / elapsedNanos;
+    }
+}
@@ -0,0 +1,811 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 19, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates the gossip of blocks between the nodes
+ * of a network of servers, each mining the transactions of its own
+ * clients. Every block a node mines, and every new block it receives,
+ * is sent on to each of its peers, so a block reaches every node
+ * connected through any path. The blocks of each chain are kept in a
+ * block tree, where blocks mined on the same parent by two nodes form
+ * competing branches, and a node follows the branch with the most
+ * work: when a heavier branch arrives from a peer, its chain is
+ * reorganized onto that branch. The transactions of the blocks mined
+ * here that the new branch leaves out are sent to the writer of the
+ * chain again, to be mined on top of it. A chain holding a block that is not
+ * valid, such as a corrupted chain, has no work, and is replaced by
+ * the next branch a peer sends, from the finalized block on.
+ *
+ * The tree of a chain is made the first time the chain publishes a
+ * version or a peer sends one of its blocks, so the chains left on
+ * disk are not loaded, and dropped when the chain is evicted. A
+ * block of a chain this node does not have never creates the chain:
+ * it is parked, along with the blocks of at most 1024 such chains,
+ * until a client makes the chain here. Each tree is pruned once its
+ * best tip is twice the finality depth above the finalized block, so
+ * a tree holds only the recent blocks of its chain; a branch forking
+ * below the finalized block is not followed.
+ *
+ * Each node connects to every peer configured and streams its blocks
+ * over that connection, and receives blocks on the connections its
+ * peers open to it; a connection from any other address is closed.
+ * Before a block, the ancestors not yet sent on the connection are
+ * sent, oldest first, so the parent of a block always arrives before
+ * it; a branch starting on the finalized block is preceded by the
+ * blocks of the chain below it. A peer connecting first receives the
+ * best branch of every tree. A block received from a peer is sent on
+ * to the other peers, but not back to that peer. When nothing
+ * changes a heartbeat is sent every second, and a lost peer is
+ * retried every second.
+ *
+ * The stream starts with the magic number and protocol version, sent
+ * by both sides, then the gossip port of the connecting node, which
+ * tells the receiving node which of its own peers the blocks come
+ * from. It is followed by frames from the connecting node:
+ *   block      chain key and the block, as in the chain files
+ *   heartbeat  the time on the node
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to gossip the blocks between the nodes
+import java.io.*;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** gossips the blocks of this server to its peers, and follows the branch of each chain with the most work */
+public class GossipNode {
+
+    // marks the beginning of a gossip stream
+    static final int MAGIC = 0x42475350;
+    // the layout of the frames
+    static final int PROTOCOL_VERSION = 3;
+    // a frame holding one block of a chain
+    static final int BLOCK_FRAME = 1;
+    // a frame sent when nothing changed
+    static final int HEARTBEAT_FRAME = 2;
+    // the time between two heartbeats, in milliseconds
+    static final long HEARTBEAT_MILLIS = 1000;
+    // the time allowed to connect to a peer, in milliseconds
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    // a peer is lost once it missed this many heartbeats
+    private static final int MISSED_HEARTBEATS = 5;
+    // the chains, and the blocks of each chain, remembered as sent on a connection, the oldest are sent again if needed
+    private static final int SENT_CHAINS = 1024;
+    private static final int SENT_BLOCKS = 1024;
+
+    // the chains of this server
+    private final ChainRegistry chainRegistry;
+    // the gossip addresses of the peers
+    private final List<InetSocketAddress> peers;
+    // the depth below the best tip at which the blocks of a tree are finalized, 0 to keep every block
+    private final int finalityDepth;
+    // the gossip port of this node, sent to the peers
+    private volatile int listenPort;
+    // the block tree of each chain
+    private final ConcurrentMap<String, BlockTree> trees = new ConcurrentHashMap<String, BlockTree>();
+    // the connection to each peer
+    private final List<PeerLink> links = new CopyOnWriteArrayList<PeerLink>();
+
+    // the latest version published on each chain not yet added to its tree, guarded by this node
+    private Map<String, ChainSnapshot> published = new LinkedHashMap<String, ChainSnapshot>();
+    // the chains whose tree received a block from a peer since the last fork choice, guarded by this node
+    private Set<String> received = new LinkedHashSet<String>();
+    // the chains evicted since their trees were last dropped, guarded by this node
+    private Set<String> evicted = new LinkedHashSet<String>();
+    // the blocks received of the chains this node does not have, oldest first, for the chains received from last
+    private final Map<String, List<Block>> parked = new LinkedHashMap<String, List<Block>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<Block>> eldest) {
+            return size() > SENT_CHAINS;
+        }
+    };
+    // the version of each chain whose blocks were added to its tree, used only by the gossip thread
+    private final Map<String, Long> addedVersions = new HashMap<String, Long>();
+    // the node of the tip of each chain as of that version, absent if a block of the chain is not valid
+    private final Map<String, BlockTree.Node> chainTips = new HashMap<String, BlockTree.Node>();
+
+    // captures the number of new blocks received from the peers
+    private final AtomicLong receivedBlocks = new AtomicLong();
+    // captures the number of blocks sent to the peers
+    private final AtomicLong sentBlocks = new AtomicLong();
+    // captures the number of chains reorganized onto a heavier branch
+    private final AtomicLong reorganizations = new AtomicLong();
+    // captures the number of transactions of orphaned blocks mined here sent to be mined again
+    private final AtomicLong requeuedTransactions = new AtomicLong();
+
+    /** GossipNode constructor, for peers given as comma separated host:port gossip addresses, finalizing the blocks
+     * the given depth below the best tip of each chain */
+    public GossipNode(ChainRegistry chainRegistry, String peers, int finalityDepth) {
+
+        // the chains of this server
+        this.chainRegistry = chainRegistry;
+        // the depth of the finalized blocks
+        this.finalityDepth = finalityDepth;
+        // the address of each peer, a node without peers only receives
+        this.peers = new ArrayList<InetSocketAddress>();
+        for (String peer : peers.split(",")) {
+            if (!peer.trim().isEmpty()) {
+                String[] hostAndPort = peer.trim().split(":");
+                this.peers.add(new InetSocketAddress(hostAndPort[0], Integer.parseInt(hostAndPort[1])));
+            }
+        }
+    }
+
+    /** starts accepting the peers on the given address and port, and connecting to the peers configured */
+    public void start(InetAddress bindAddress, int port) throws IOException {
+
+        // the socket the peers connect to
+        ServerSocket listenSocket = new ServerSocket(port, 50, bindAddress);
+        listenPort = port;
+        // every version published from now on is added to the trees and gossiped
+        chainRegistry.addPublishListener(this::published);
+        // the tree of a chain evicted is dropped
+        chainRegistry.addEvictionListener(this::evicted);
+
+        // the trees are updated, and the fork chosen, by a thread of their own
+        startDaemon(this::maintainTrees, "gossip-trees");
+        // the peers are accepted while the server serves the clients
+        startDaemon(() -> acceptPeers(listenSocket), "gossip-acceptor");
+        // each peer is streamed to by its own thread
+        for (InetSocketAddress peer : peers) {
+            PeerLink link = new PeerLink(peer);
+            links.add(link);
+            startDaemon(link::run, "gossip-sender");
+        }
+        System.out.println("Gossiping with " + peers.size() + " peers on port " + port);
+    }
+
+    /** starts a thread that does not keep the process running */
+    private static void startDaemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** accepts peers, each received from by its own thread */
+    private void acceptPeers(ServerSocket listenSocket) {
+        while (true) {
+            try {
+                Socket peer = listenSocket.accept();
+                startDaemon(() -> receive(peer), "gossip-receiver");
+                // Handle IO Exception
+            } catch (IOException e) {
+                System.out.println("IO Exception:" + e.getMessage());
+            }
+        }
+    }
+
+    /** queues the version just published, to add its blocks to the tree of the chain */
+    private synchronized void published(String chainKey, ChainSnapshot snapshot) {
+        // only the latest version of a chain is needed
+        published.put(chainKey, snapshot);
+        notifyAll();
+    }
+
+    /** queues the fork choice of a chain whose tree received a block */
+    private synchronized void receivedBlock(String chainKey) {
+        // the fork is chosen once for every block received since
+        received.add(chainKey);
+        notifyAll();
+    }
+
+    /** queues the drop of the tree of a chain just evicted */
+    private synchronized void evicted(String chainKey) {
+        // the tree is dropped by the thread updating the trees
+        evicted.add(chainKey);
+        notifyAll();
+    }
+
+    /** determines if the given gossip address is that of a peer configured */
+    private boolean isPeer(InetAddress address, int port) {
+        // the configured addresses were resolved when the node was made
+        for (InetSocketAddress peer : peers) {
+            if (peer.getPort() == port && address.equals(peer.getAddress())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** the tree of the chain with the given key, created the first time with the blocks parked for the chain */
+    private BlockTree tree(String chainKey) {
+
+        // the tree of the chain, if it was made already
+        BlockTree tree = trees.get(chainKey);
+        if (tree != null) {
+            return tree;
+        }
+        BlockTree created = new BlockTree();
+        tree = trees.putIfAbsent(chainKey, created);
+        if (tree != null) {
+            return tree;
+        }
+        // the blocks received before the chain was made here
+        unpark(chainKey, created);
+        // returns the tree of the chain
+        return created;
+    }
+
+    /** parks a block of a chain this node does not have, the blocks past the limit of a chain are dropped */
+    private void park(String chainKey, Block block) {
+        synchronized (parked) {
+            List<Block> blocks = parked.computeIfAbsent(chainKey, key -> new ArrayList<Block>());
+            if (blocks.size() < SENT_BLOCKS) {
+                blocks.add(block);
+            }
+        }
+    }
+
+    /** adds the blocks parked for the chain to its tree, oldest first, and chooses its fork if any was new */
+    private void unpark(String chainKey, BlockTree tree) {
+
+        // the blocks parked for the chain
+        List<Block> blocks;
+        synchronized (parked) {
+            blocks = parked.remove(chainKey);
+        }
+        if (blocks == null) {
+            return;
+        }
+        // each parent arrived before its children
+        boolean inserted = false;
+        for (Block block : blocks) {
+            inserted |= tree.insert(block, false) != null;
+        }
+        if (inserted) {
+            receivedBlock(chainKey);
+        }
+    }
+
+    /** adds the published versions to the trees, and moves the chains that received blocks onto their best branch */
+    private void maintainTrees() {
+
+        while (true) {
+            // the versions and chains waiting
+            Map<String, ChainSnapshot> versions;
+            Set<String> chains;
+            Set<String> evictedChains;
+            synchronized (this) {
+                while (published.isEmpty() && received.isEmpty() && evicted.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                versions = published;
+                published = new LinkedHashMap<String, ChainSnapshot>();
+                chains = received;
+                received = new LinkedHashSet<String>();
+                evictedChains = evicted;
+                evicted = new LinkedHashSet<String>();
+            }
+
+            try {
+                // the blocks mined here are gossiped first
+                for (Map.Entry<String, ChainSnapshot> version : versions.entrySet()) {
+                    addVersion(version.getKey(), version.getValue());
+                }
+                // then the chains follow the heaviest branch received
+                for (String chainKey : chains) {
+                    chooseFork(chainKey);
+                }
+                // the trees changed are pruned last, as the chains no longer need their old blocks
+                Set<String> changed = new LinkedHashSet<String>(versions.keySet());
+                changed.addAll(chains);
+                for (String chainKey : changed) {
+                    BlockTree tree = trees.get(chainKey);
+                    if (tree != null) {
+                        tree.prune(finalityDepth);
+                    }
+                }
+                // the trees of the chains evicted are dropped, unless the chain was loaded back meanwhile
+                for (String chainKey : evictedChains) {
+                    if (!chainRegistry.isResident(chainKey)) {
+                        trees.remove(chainKey);
+                        addedVersions.remove(chainKey);
+                        chainTips.remove(chainKey);
+                    }
+                }
+                // a failed update must not stop the gossip
+            } catch (RuntimeException e) {
+                System.out.println("Exception:" + e.getMessage());
+            }
+        }
+    }
+
+    /** adds the blocks of a version published on this server to the tree of its chain, and gossips the new ones */
+    private void addVersion(String chainKey, ChainSnapshot snapshot) {
+
+        // the blocks before the first one changed since the version last added are in the tree already
+        BlockTree tree = tree(chainKey);
+        Long addedVersion = addedVersions.get(chainKey);
+        int from = 0;
+        if (addedVersion != null) {
+            from = snapshot.size();
+            for (int i = 0; i < snapshot.size(); i++) {
+                if (snapshot.getModifiedAt(i) > addedVersion) {
+                    from = i;
+                    break;
+                }
+            }
+        }
+
+        // the chain is valid up to the block before the first one changed if it was valid as of the version last added
+        BlockTree.Node chainTip = null;
+        boolean valid = true;
+        BlockTree.Node finalized = tree.getFinalized();
+        if (finalized != null && from <= finalized.getBlock().getIndex()) {
+            // the blocks up to the finalized block left the tree, they are checked to lead to it instead
+            valid = (from == 0 || chainTips.containsKey(chainKey)) && leadsTo(snapshot, from, finalized);
+            chainTip = finalized;
+            from = finalized.getBlock().getIndex() + 1;
+        } else if (from > 0) {
+            chainTip = chainTips.get(chainKey);
+            while (chainTip != null && chainTip.getBlock().getIndex() > from - 1) {
+                chainTip = chainTip.getParent();
+            }
+            valid = chainTip != null;
+        }
+
+        // each block not known yet is added, a block that is not valid is left out of the tree
+        BlockTree.Node newTip = null;
+        for (int i = from; i < snapshot.size(); i++) {
+            Block block = snapshot.getBlocks().get(i);
+            BlockTree.Node node = tree.insert(block, true);
+            if (node != null) {
+                newTip = node;
+            } else {
+                node = tree.get(block.calculateHash());
+            }
+            // the chain stays valid while each block is in the tree on the block before it
+            valid = valid && node != null && node.getParent() == chainTip;
+            chainTip = node;
+        }
+        addedVersions.put(chainKey, snapshot.getVersion());
+        if (valid && chainTip != null && chainTip.getHash().equals(snapshot.getChainHash())) {
+            chainTips.put(chainKey, chainTip);
+        } else {
+            chainTips.remove(chainKey);
+        }
+
+        // the peers are sent the new tip, along with the ancestors they were not sent
+        if (newTip != null) {
+            announce(chainKey, newTip, null, 0);
+        }
+    }
+
+    /** determines if the blocks of the version from the given index on, each meeting its target and following the
+     * block before it, lead to the finalized block */
+    private static boolean leadsTo(ChainSnapshot snapshot, int from, BlockTree.Node finalized) {
+
+        // the chain holds the finalized block at its index
+        int finalizedIndex = finalized.getBlock().getIndex();
+        if (snapshot.size() <= finalizedIndex) {
+            return false;
+        }
+        // each block is checked as the tree checks a block added
+        List<Block> blocks = snapshot.getBlocks();
+        Hash256 previousHash = from == 0 ? null : blocks.get(from - 1).calculateHash();
+        for (int i = from; i <= finalizedIndex; i++) {
+            Block block = blocks.get(i);
+            Hash256 hash = block.calculateHash();
+            if (block.getIndex() != i || !block.meetsTarget(hash)
+                    || (previousHash == null ? block.getPreviousHash() != null : !previousHash.equals(block.getPreviousHash()))) {
+                return false;
+            }
+            previousHash = hash;
+        }
+        return previousHash.equals(finalized.getHash());
+    }
+
+    /** reorganizes the chain onto the branch of its tree with the most work, if it has more work than the chain */
+    private void chooseFork(String chainKey) {
+
+        // the chain is not evicted while it is reorganized, a chain this node does not have is never created
+        ChainWriter writer = chainRegistry.acquireExisting(chainKey);
+        if (writer == null) {
+            return;
+        }
+        BlockTree tree = tree(chainKey);
+        try {
+            while (true) {
+                // the tip of the chain, added to the tree if it was published since the last version added
+                ChainSnapshot snapshot = writer.getBlockChain().snapshot();
+                if (!Long.valueOf(snapshot.getVersion()).equals(addedVersions.get(chainKey))) {
+                    addVersion(chainKey, snapshot);
+                }
+                BlockTree.Node tip = chainTips.get(chainKey);
+                // a chain that is not valid has no work
+                BigInteger work = tip == null ? BigInteger.ZERO : tip.getWork();
+                BlockTree.Node best = tree.getBest();
+                if (best == null || best == tip || best.getWork().compareTo(work) <= 0) {
+                    return;
+                }
+                // a chain that left the finalized block, such as one corrupted below it, is not reorganized
+                List<Block> branch = best.branch();
+                if (!BlockChain.holdsParent(snapshot, branch.get(0))) {
+                    System.out.println("Chain " + chainKey + " does not hold the finalized block " + branch.get(0).getIndex());
+                    return;
+                }
+                // a block mined in the meantime moves the tip, and the fork is chosen again
+                if (writer.getBlockChain().reorganize(branch, best.getHash(), snapshot.getChainHash())) {
+                    reorganizations.incrementAndGet();
+                    System.out.println("Reorganized " + chainKey + " onto block " + best.getBlock().getIndex() + " " + best.getHash());
+                    requeueOrphans(chainKey, writer, tip, best, tree.getFinalized());
+                    return;
+                }
+            }
+        } finally {
+            chainRegistry.release(chainKey);
+        }
+    }
+
+    /** sends the transactions of the blocks mined here that the chain left, and the new branch does not hold, to the
+     * writer, to be mined on top of the new branch; the blocks at or below the finalized block are not orphaned */
+    private void requeueOrphans(String chainKey, ChainWriter writer, BlockTree.Node oldTip, BlockTree.Node newTip,
+                                BlockTree.Node finalized) {
+
+        // a chain that was not valid has no branch in the tree, its blocks are not known
+        if (oldTip == null) {
+            return;
+        }
+        BlockTree.Node ancestor = oldTip.commonAncestor(newTip);
+        int finalizedIndex = finalized == null ? -1 : finalized.getBlock().getIndex();
+
+        // the transactions already on the new branch are not mined twice
+        Set<String> kept = new HashSet<String>();
+        for (BlockTree.Node node = newTip; node != null && node != ancestor; node = node.getParent()) {
+            kept.add(node.getBlock().getData());
+        }
+        // the orphaned blocks mined here, oldest first, except a genesis block, which holds no transaction
+        List<Block> orphans = new ArrayList<Block>();
+        for (BlockTree.Node node = oldTip; node != null && node != ancestor && node.getBlock().getIndex() > finalizedIndex;
+             node = node.getParent()) {
+            if (node.isLocal() && node.getBlock().getIndex() > 0 && !kept.contains(node.getBlock().getData())) {
+                orphans.add(node.getBlock());
+            }
+        }
+        Collections.reverse(orphans);
+
+        try {
+            // each transaction is mined again at the difficulty it was mined at, without waiting for it
+            for (Block orphan : orphans) {
+                writer.submitAdd(orphan.getDifficulty(), orphan.getData());
+                requeuedTransactions.incrementAndGet();
+            }
+            // handles InterruptedException, the rest of the transactions are left out
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        if (!orphans.isEmpty()) {
+            System.out.println("Requeued " + orphans.size() + " transactions of the orphaned blocks of " + chainKey);
+        }
+    }
+
+    /** queues the tip for every peer connected, except the peer it came from, given by its gossip address, if any */
+    private void announce(String chainKey, BlockTree.Node tip, InetAddress fromAddress, int fromPort) {
+        for (PeerLink link : links) {
+            link.announce(chainKey, tip, link.isAt(fromAddress, fromPort));
+        }
+    }
+
+    /** receives the blocks a peer streams until it is lost */
+    private void receive(Socket socket) {
+
+        try (Socket peer = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(peer.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(peer.getOutputStream()))) {
+
+            // a peer silent for several heartbeats is lost
+            peer.setSoTimeout((int) (MISSED_HEARTBEATS * HEARTBEAT_MILLIS));
+            // both sides open with the magic number and protocol version
+            out.writeInt(MAGIC);
+            out.writeInt(PROTOCOL_VERSION);
+            out.flush();
+            if (in.readInt() != MAGIC || in.readInt() != PROTOCOL_VERSION) {
+                throw new IOException("Not a peer: " + peer.getRemoteSocketAddress());
+            }
+            // the gossip port of the peer, to tell which of the peers of this node it is
+            int peerPort = in.readInt();
+            // only the peers configured may send blocks
+            if (!isPeer(peer.getInetAddress(), peerPort)) {
+                throw new IOException("Not a configured peer: " + peer.getRemoteSocketAddress() + " gossiping on port " + peerPort);
+            }
+
+            // each frame of the peer
+            while (true) {
+                int frame = in.readByte();
+                if (frame == HEARTBEAT_FRAME) {
+                    in.readLong();
+                } else if (frame == BLOCK_FRAME) {
+                    String chainKey = ChainStore.readString(in);
+                    Block block = ChainStore.readBlock(in, new long[1], 0);
+                    // a block of a chain this node does not have is parked, unless the chain was made meanwhile
+                    if (!trees.containsKey(chainKey) && !chainRegistry.contains(chainKey)) {
+                        park(chainKey, block);
+                        BlockTree tree = trees.get(chainKey);
+                        if (tree != null) {
+                            unpark(chainKey, tree);
+                        }
+                        continue;
+                    }
+                    // a new valid block is sent on to the other peers, and may make its branch the heaviest
+                    BlockTree.Node node = tree(chainKey).insert(block, false);
+                    if (node != null) {
+                        receivedBlocks.incrementAndGet();
+                        announce(chainKey, node, peer.getInetAddress(), peerPort);
+                        receivedBlock(chainKey);
+                    }
+                } else {
+                    throw new IOException("Unknown frame " + frame);
+                }
+            }
+
+            // handles the peer closing the stream
+        } catch (EOFException e) {
+            System.out.println("Peer " + socket.getRemoteSocketAddress() + " closed the stream");
+            // Handle IO Exception, the peer connects again
+        } catch (IOException e) {
+            System.out.println("Peer " + socket.getRemoteSocketAddress() + " lost: " + e.getMessage());
+        }
+    }
+
+    /** determines the number of peers this node is connected to */
+    public int getConnectedPeers() {
+        // captures the peers connected
+        int connected = 0;
+        for (PeerLink link : links) {
+            if (link.connected) {
+                connected++;
+            }
+        }
+        return connected;
+    }
+
+    /** determines the number of new blocks received from the peers */
+    public long getReceivedBlocks() {
+        // returns the number of blocks
+        return receivedBlocks.get();
+    }
+
+    /** determines the number of blocks sent to the peers */
+    public long getSentBlocks() {
+        // returns the number of blocks
+        return sentBlocks.get();
+    }
+
+    /** determines the number of chains reorganized onto a heavier branch */
+    public long getReorganizations() {
+        // returns the number of reorganizations
+        return reorganizations.get();
+    }
+
+    /** determines the number of transactions of orphaned blocks mined here sent to be mined again */
+    public long getRequeuedTransactions() {
+        // returns the number of transactions
+        return requeuedTransactions.get();
+    }
+
+    /** a tip waiting to be sent to a peer */
+    private static class Announcement {
+        // the chain of the block
+        final String chainKey;
+        // the block, sent along with its ancestors
+        final BlockTree.Node tip;
+        // true if the peer sent the block, which is then only recorded as sent
+        final boolean known;
+
+        Announcement(String chainKey, BlockTree.Node tip, boolean known) {
+            this.chainKey = chainKey;
+            this.tip = tip;
+            this.known = known;
+        }
+    }
+
+    /** a set keeping only the given number of the elements added last */
+    private static <T> Set<T> recentSet(int capacity) {
+        // the eldest element is removed once the set is full
+        return Collections.newSetFromMap(new LinkedHashMap<T, Boolean>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<T, Boolean> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    /** the connection to one peer */
+    private class PeerLink {
+        // the gossip address of the peer
+        private final InetSocketAddress address;
+        // the tips waiting to be sent
+        private final LinkedBlockingQueue<Announcement> announcements = new LinkedBlockingQueue<Announcement>();
+        // the hashes of the last blocks of each chain sent on the current connection, for the chains sent to last,
+        // used only by the sending thread
+        private final Map<String, Set<Hash256>> sent = new LinkedHashMap<String, Set<Hash256>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Set<Hash256>> eldest) {
+                return size() > SENT_CHAINS;
+            }
+        };
+        // true while the peer is connected
+        private volatile boolean connected;
+
+        PeerLink(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        /** queues the tip, known if the peer sent it, while the peer is connected; a peer that connects is sent the best
+         * branches instead */
+        void announce(String chainKey, BlockTree.Node tip, boolean known) {
+            if (connected) {
+                announcements.offer(new Announcement(chainKey, tip, known));
+            }
+        }
+
+        /** determines if the peer listens on the given gossip address, false if the address is not given */
+        boolean isAt(InetAddress gossipAddress, int gossipPort) {
+            // the configured address of the peer was resolved when the link was made
+            return gossipAddress != null && address.getPort() == gossipPort && gossipAddress.equals(address.getAddress());
+        }
+
+        /** streams to the peer, connecting again every second while it is lost */
+        void run() {
+            while (true) {
+                try {
+                    stream();
+                    // handles the peer closing the stream
+                } catch (EOFException e) {
+                    System.out.println("Peer " + address + " closed the stream");
+                    // Handle IO Exception, the peer is retried
+                } catch (IOException e) {
+                    System.out.println("Peer " + address + " lost: " + e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    connected = false;
+                }
+                try {
+                    // the peer is retried every second
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        /** sends the blocks of this node to the peer until it is lost */
+        private void stream() throws IOException, InterruptedException {
+
+            try (Socket peer = new Socket()) {
+                // both sides open with the magic number and protocol version
+                peer.connect(address, CONNECT_TIMEOUT_MILLIS);
+                peer.setTcpNoDelay(true);
+                peer.setSoTimeout((int) (MISSED_HEARTBEATS * HEARTBEAT_MILLIS));
+                DataInputStream in = new DataInputStream(new BufferedInputStream(peer.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(peer.getOutputStream()));
+                out.writeInt(MAGIC);
+                out.writeInt(PROTOCOL_VERSION);
+                out.writeInt(listenPort);
+                out.flush();
+                if (in.readInt() != MAGIC || in.readInt() != PROTOCOL_VERSION) {
+                    throw new IOException("Not a peer");
+                }
+                System.out.println("Gossiping to peer " + address);
+
+                // the peer first receives the best branch of every chain, and every tip queued from now on
+                connected = true;
+                announcements.clear();
+                sent.clear();
+                for (Map.Entry<String, BlockTree> tree : trees.entrySet()) {
+                    BlockTree.Node best = tree.getValue().getBest();
+                    if (best != null) {
+                        send(out, tree.getKey(), best);
+                    }
+                }
+                out.flush();
+
+                // then every tip queued, or a heartbeat when there is none
+                while (true) {
+                    Announcement announcement = announcements.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (announcement == null) {
+                        out.writeByte(HEARTBEAT_FRAME);
+                        out.writeLong(System.currentTimeMillis());
+                    }
+                    while (announcement != null) {
+                        if (announcement.known) {
+                            sent.computeIfAbsent(announcement.chainKey, key -> recentSet(SENT_BLOCKS)).add(announcement.tip.getHash());
+                        } else {
+                            send(out, announcement.chainKey, announcement.tip);
+                        }
+                        announcement = announcements.poll();
+                    }
+                    out.flush();
+                }
+            }
+        }
+
+        /** sends the tip, after the ancestors not yet sent to the peer, oldest first */
+        private void send(DataOutputStream out, String chainKey, BlockTree.Node tip) throws IOException {
+
+            // the ancestors back to the first one sent, or to the genesis or the finalized block
+            Set<Hash256> sentHashes = sent.computeIfAbsent(chainKey, key -> recentSet(SENT_BLOCKS));
+            List<BlockTree.Node> unsent = new ArrayList<BlockTree.Node>();
+            for (BlockTree.Node node = tip; node != null && !sentHashes.contains(node.getHash()); node = node.getParent()) {
+                unsent.add(node);
+            }
+            Collections.reverse(unsent);
+
+            // a branch starting on the finalized block follows the blocks of the chain below it
+            if (!unsent.isEmpty() && unsent.get(0).getParent() == null && unsent.get(0).getBlock().getIndex() > 0) {
+                sendPrefix(out, chainKey, unsent.get(0));
+            }
+
+            // a frame for each block
+            for (BlockTree.Node node : unsent) {
+                out.writeByte(BLOCK_FRAME);
+                ChainStore.writeString(out, chainKey);
+                ChainStore.writeBlock(out, node.getBlock(), 0);
+                sentHashes.add(node.getHash());
+                sentBlocks.incrementAndGet();
+            }
+        }
+
+        /** sends the blocks of the chain below the finalized block, oldest first, if the chain still holds it */
+        private void sendPrefix(DataOutputStream out, String chainKey, BlockTree.Node finalized) throws IOException {
+
+            // the blocks below the finalized block are read from the chain, loaded if it was evicted
+            ChainSnapshot snapshot;
+            ChainWriter writer;
+            try {
+                writer = chainRegistry.acquireExisting(chainKey);
+                // handles the chain failing to load, the peer is streamed to again
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (writer == null) {
+                return;
+            }
+            try {
+                snapshot = writer.getBlockChain().snapshot();
+            } finally {
+                chainRegistry.release(chainKey);
+            }
+            int finalizedIndex = finalized.getBlock().getIndex();
+            if (!BlockChain.holdsParent(snapshot, finalized.getBlock())) {
+                return;
+            }
+
+            // a frame for each block
+            for (Block block : snapshot.getBlocks().subList(0, finalizedIndex)) {
+                out.writeByte(BLOCK_FRAME);
+                ChainStore.writeString(out, chainKey);
+                ChainStore.writeBlock(out, block, 0);
+                sentBlocks.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates the SHA256 hash of a block as a value.
+ * The 32 bytes of the hash are held as four longs, most significant
+ * first, instead of a 64 character hex string, so a hash takes a
+ * fraction of the memory and two hashes are compared without
+ * building any string. Equality looks at every bit of both hashes,
+ * so the time it takes does not tell where they first differ. The
+ * proof of work is checked by comparing the hash, as an unsigned 256
+ * bit number, with the target of the block, and the hex string is
+ * only built, once, when the hash is sent to a client or printed.
+ * A difficulty of d hex zeroes is the target 2^(256-4d) - 1.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to write the hash into a buffer
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/** an immutable 256 bit SHA256 hash */
+public final class Hash256 implements Comparable<Hash256> {
+
+    // the number of bytes of a hash
+    public static final int BYTES = 32;
+    // the largest hash, the target every hash meets
+    public static final Hash256 MAX = new Hash256(-1L, -1L, -1L, -1L);
+
+    // the hex digit of each nibble
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // the bits of the hash, most significant first
+    private final long word0;
+    private final long word1;
+    private final long word2;
+    private final long word3;
+    // the hex string of the hash, built the first time it is needed
+    private String hex;
+
+    /** Hash256 constructor, from the four words of the hash, most significant first */
+    private Hash256(long word0, long word1, long word2, long word3) {
+        this.word0 = word0;
+        this.word1 = word1;
+        this.word2 = word2;
+        this.word3 = word3;
+    }
+
+    /** the hash held by the 32 bytes of a SHA256 digest */
+    public static Hash256 of(byte[] digest) {
+        // a digest of another length is not a SHA256 hash
+        if (digest.length != BYTES) {
+            throw new IllegalArgumentException("A hash has " + BYTES + " bytes, not " + digest.length);
+        }
+        return new Hash256(wordAt(digest, 0), wordAt(digest, 8), wordAt(digest, 16), wordAt(digest, 24));
+    }
+
+    /** the hash written as 64 hex digits, as sent to and by the clients */
+    public static Hash256 fromHex(String hex) {
+
+        // a hash has two hex digits per byte
+        if (hex.length() != 2 * BYTES) {
+            throw new IllegalArgumentException("A hash has " + 2 * BYTES + " hex digits: " + hex);
+        }
+        // captures the bytes of the hash
+        byte[] bytes = new byte[BYTES];
+        for (int i = 0; i < BYTES; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Not a hex hash: " + hex);
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return of(bytes);
+    }
+
+    /** the hash holding the given unsigned number, which must be below 2^256 */
+    public static Hash256 valueOf(BigInteger value) {
+
+        // a hash has 256 bits
+        if (value.signum() < 0 || value.bitLength() > 8 * BYTES) {
+            throw new IllegalArgumentException("Not a 256 bit number: " + value);
+        }
+        // the bytes of the number, right aligned, without the sign byte
+        byte[] magnitude = value.toByteArray();
+        byte[] bytes = new byte[BYTES];
+        int length = Math.min(magnitude.length, BYTES);
+        System.arraycopy(magnitude, magnitude.length - length, bytes, BYTES - length, length);
+        return of(bytes);
+    }
+
+    /** the target of a block with the given number of leading hex zeroes, the largest hash that has them */
+    public static Hash256 targetOf(int difficulty) {
+        // each hex digit is four bits, the bits after them are all ones
+        int zeroBits = Math.max(0, Math.min(8 * BYTES, 4 * difficulty));
+        long[] words = new long[4];
+        for (int i = 0; i < 4; i++) {
+            int wordZeroBits = Math.max(0, Math.min(64, zeroBits - 64 * i));
+            words[i] = wordZeroBits == 64 ? 0 : -1L >>> wordZeroBits;
+        }
+        return new Hash256(words[0], words[1], words[2], words[3]);
+    }
+
+    /** the hex string of the hash, or the empty string for no hash, such as the previous hash of the genesis block */
+    public static String hexOf(Hash256 hash) {
+        // returns the empty string if there is no hash
+        return hash == null ? "" : hash.toString();
+    }
+
+    /** reads the big endian word at the given offset */
+    private static long wordAt(byte[] bytes, int offset) {
+        // the eight bytes of the word, most significant first
+        long word = 0;
+        for (int i = 0; i < 8; i++) {
+            word = (word << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return word;
+    }
+
+    /** writes the 32 bytes of the hash, most significant first */
+    public byte[] toBytes() {
+        // captures the bytes of each word
+        byte[] bytes = new byte[BYTES];
+        long[] words = { word0, word1, word2, word3 };
+        for (int i = 0; i < BYTES; i++) {
+            bytes[i] = (byte) (words[i >>> 3] >>> (56 - 8 * (i & 7)));
+        }
+        return bytes;
+    }
+
+    /** writes the 32 bytes of the hash into the buffer, most significant first */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putLong(word0).putLong(word1).putLong(word2).putLong(word3);
+    }
+
+    /** determines the number of leading zero bits of the hash */
+    public int leadingZeroBits() {
+        // the zero bits of the first word that is not zero
+        if (word0 != 0) {
+            return Long.numberOfLeadingZeros(word0);
+        }
+        if (word1 != 0) {
+            return 64 + Long.numberOfLeadingZeros(word1);
+        }
+        if (word2 != 0) {
+            return 128 + Long.numberOfLeadingZeros(word2);
+        }
+        return 192 + Long.numberOfLeadingZeros(word3);
+    }
+
+    /** determines if the hash has at least the given number of leading hex zeroes */
+    public boolean meetsDifficulty(int difficulty) {
+        // each hex digit is four bits
+        return leadingZeroBits() >= 4 * difficulty;
+    }
+
+    /** determines if the hash, as an unsigned number, is at most the given target, the proof of work of a block */
+    public boolean meetsTarget(Hash256 target) {
+        // returns true for a hash at or below the target
+        return compareTo(target) <= 0;
+    }
+
+    /** the hash as an unsigned 256 bit number */
+    public BigInteger toBigInteger() {
+        // returns the positive number of the bytes
+        return new BigInteger(1, toBytes());
+    }
+
+    /** compares both hashes as unsigned 256 bit numbers */
+    @Override
+    public int compareTo(Hash256 that) {
+        // the first word that differs decides
+        if (word0 != that.word0) {
+            return Long.compareUnsigned(word0, that.word0);
+        }
+        if (word1 != that.word1) {
+            return Long.compareUnsigned(word1, that.word1);
+        }
+        if (word2 != that.word2) {
+            return Long.compareUnsigned(word2, that.word2);
+        }
+        return Long.compareUnsigned(word3, that.word3);
+    }
+
+    /** compares every bit of both hashes, taking the same time wherever they differ */
+    @Override
+    public boolean equals(Object other) {
+        // only another hash can be equal
+        if (!(other instanceof Hash256)) {
+            return false;
+        }
+        Hash256 that = (Hash256) other;
+        return ((word0 ^ that.word0) | (word1 ^ that.word1) | (word2 ^ that.word2) | (word3 ^ that.word3)) == 0;
+    }
+
+    /** the leading bits of a proof of work hash are zero, so the last bits, which stay uniform, are used */
+    @Override
+    public int hashCode() {
+        return (int) word3;
+    }
+
+    /** the 64 hex digits of the hash */
+    @Override
+    public String toString() {
+        // the string is built once, a race only builds it twice
+        String result = hex;
+        if (result == null) {
+            result = toHex(toBytes());
+            hex = result;
+        }
+        return result;
+    }
+
+    /** converts bytes to a string of hex digits, two per byte */
+    static String toHex(byte[] data) {
+        // each nibble (4 bits) of the byte array is represented by a hex character
+        char[] digits = new char[2 * data.length];
+        for (int i = 0; i < data.length; i++) {
+            digits[2 * i] = HEX_DIGITS[(data[i] >>> 4) & 0x0F];
+            digits[2 * i + 1] = HEX_DIGITS[data[i] & 0x0F];
+        }
+        return new String(digits);
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates a cache of verified client identities.
+ * The first request of a client has its public key (e and n) parsed
+ * and checked to hash to its client ID. The parsed key is then kept,
+ * keyed by client ID, so later requests sending the same key text
+ * skip both the parsing and the hashing. Only the least recently
+ * used identities are dropped once the cache is full.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to hold the verified identities
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** caches the public keys verified to hash to their client ID */
+public class IdentityCache {
+
+    // the verified identities, from the least to the most recently used
+    private final LinkedHashMap<String, Identity> identities;
+
+    // captures the number of requests whose identity was cached
+    private final AtomicLong hits = new AtomicLong();
+    // captures the number of requests whose identity had to be parsed and hashed
+    private final AtomicLong misses = new AtomicLong();
+
+    /** IdentityCache constructor, holding at most the given number of identities */
+    public IdentityCache(int maxIdentities) {
+        // an access ordered map drops its least recently used identity once full
+        identities = new LinkedHashMap<String, Identity>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Identity> eldest) {
+                return size() > maxIdentities;
+            }
+        };
+    }
+
+    /** determines the identity of the client, or null if the public key does not hash to the client ID */
+    public Identity verify(String clientID, String eText, String nText) {
+
+        // the cached identity of the client
+        Identity identity;
+        synchronized (identities) {
+            identity = identities.get(clientID);
+        }
+
+        // a cached identity is used only for the very same key text, so another key can not borrow it
+        if (identity != null && identity.eText.equals(eText) && identity.nText.equals(nText)) {
+            hits.incrementAndGet();
+            return identity;
+        }
+        misses.incrementAndGet();
+
+        // part of public key
+        BigInteger e;
+        // modulus
+        BigInteger n;
+        try {
+            e = new BigInteger(eText);
+            n = new BigInteger(nText);
+            // a key that is missing or not a number identifies no one
+        } catch (NumberFormatException nfe) {
+            return null;
+        }
+        // concatenation of n and e gives the public key
+        String publicKey = String.valueOf(e).concat(String.valueOf(n));
+
+        // check if the public key hash to the request ID
+        String computedReqID = BlockChainTCPServer.ComputeSHA_256_as_Hex_String(publicKey);
+        if (computedReqID == null || !computedReqID.equalsIgnoreCase(clientID)) {
+            return null;
+        }
+
+        // the verified identity is kept for the later requests of the client
+        identity = new Identity(eText, nText, e, n, publicKey);
+        synchronized (identities) {
+            identities.put(clientID, identity);
+        }
+        return identity;
+    }
+
+    /** determines the number of requests whose identity was cached */
+    public long getHits() {
+        // returns the number of hits
+        return hits.get();
+    }
+
+    /** determines the number of requests whose identity had to be parsed and hashed */
+    public long getMisses() {
+        // returns the number of misses
+        return misses.get();
+    }
+
+    /** a public key verified to hash to its client ID */
+    public static class Identity {
+        // the key text sent by the client
+        private final String eText;
+        private final String nText;
+        // part of public key
+        private final BigInteger e;
+        // modulus
+        private final BigInteger n;
+        // concatenation of e and n, as signed by the client
+        private final String publicKey;
+        // the key checking the signatures of the client, built on first use
+        private volatile PublicKey verificationKey;
+
+        Identity(String eText, String nText, BigInteger e, BigInteger n, String publicKey) {
+            this.eText = eText;
+            this.nText = nText;
+            this.e = e;
+            this.n = n;
+            this.publicKey = publicKey;
+        }
+
+        /** getter method for e */
+        public BigInteger getE() {
+            // returns the exponent of the public key
+            return e;
+        }
+
+        /** getter method for n */
+        public BigInteger getN() {
+            // returns the modulus of the public key
+            return n;
+        }
+
+        /** getter method for the public key */
+        public String getPublicKey() {
+            // returns the concatenation of e and n
+            return publicKey;
+        }
+
+        /** getter method for the RSA public key, built from e and n only once per identity */
+        public PublicKey getVerificationKey() throws GeneralSecurityException {
+            // two threads may both build it, either key is the same
+            if (verificationKey == null) {
+                verificationKey = KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(n, e));
+            }
+            // returns the key
+            return verificationKey;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates a histogram of latencies, in microseconds.
+ * Latencies below 128 microseconds each have their own bucket, and
+ * every power of two above that is split into 64 buckets, so any
+ * percentile is known to within about 1.6% while the whole histogram
+ * stays a few thousand counters. Recording is lock free, so many
+ * threads may record at once.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to count the latencies
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** counts latencies in logarithmic buckets */
+public class LatencyHistogram {
+
+    // the latencies below this many microseconds have a bucket each
+    private static final int LINEAR_BUCKETS = 128;
+    // the bits of the buckets each power of two is split into
+    private static final int SUB_BUCKET_BITS = 6;
+    // the largest latency counted, about 12 days, longer ones are counted as this
+    private static final long MAX_MICROS = (1L << 40) - 1;
+    // the power of two of the first logarithmic bucket
+    private static final int FIRST_EXPONENT = 7;
+
+    // the number of latencies in each bucket
+    private final AtomicLongArray counts = new AtomicLongArray(LINEAR_BUCKETS + (40 - FIRST_EXPONENT) * (1 << SUB_BUCKET_BITS));
+    // captures the number of latencies
+    private final AtomicLong count = new AtomicLong();
+    // captures the sum of the latencies
+    private final AtomicLong sumMicros = new AtomicLong();
+    // captures the longest latency
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /** counts one latency, in microseconds */
+    public void record(long micros) {
+        // the latency within the range of the histogram
+        long value = Math.max(0, Math.min(micros, MAX_MICROS));
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        sumMicros.addAndGet(value);
+        maxMicros.accumulateAndGet(value, Math::max);
+    }
+
+    /** determines the number of latencies counted */
+    public long getCount() {
+        // returns the count
+        return count.get();
+    }
+
+    /** determines the mean latency, in microseconds */
+    public double getMeanMicros() {
+        // returns 0 if nothing was counted
+        long total = count.get();
+        return total == 0 ? 0 : (double) sumMicros.get() / total;
+    }
+
+    /** determines the longest latency, in microseconds */
+    public long getMaxMicros() {
+        // returns the longest latency counted
+        return maxMicros.get();
+    }
+
+    /** determines the latency below which the given percentage of the latencies fall, in microseconds */
+    public long percentileMicros(double percentile) {
+
+        // the rank of the latency, counting from 1
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+
+        // the bucket holding the latency of that rank
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length(); bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                // the upper end of the bucket, never more than the longest latency
+                return Math.min(upperBoundOf(bucket), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    /** determines the bucket of the latency */
+    private static int bucketOf(long value) {
+        // short latencies have a bucket each
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        // the power of two of the latency, and the bits right after its leading bit
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return LINEAR_BUCKETS + (exponent - FIRST_EXPONENT) * (1 << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    /** determines the largest latency counted in the bucket */
+    private static long upperBoundOf(int bucket) {
+        // short latencies have a bucket each
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        // the power of two and the bits right after the leading bit
+        int exponent = FIRST_EXPONENT + (bucket - LINEAR_BUCKETS) / (1 << SUB_BUCKET_BITS);
+        int subBucket = (bucket - LINEAR_BUCKETS) % (1 << SUB_BUCKET_BITS);
+        long lowerBound = (1L << exponent) | ((long) subBucket << (exponent - SUB_BUCKET_BITS));
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
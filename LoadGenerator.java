@@ -0,0 +1,192 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program generates load on the blockchain server and reports
+ * how it behaves. Many simulated clients, each with its own key and
+ * so its own chain, send a mix of operations at a fixed total rate.
+ * The load is open loop: each request is sent at its scheduled time
+ * whether or not the earlier ones were answered, and its latency is
+ * measured from that time, so a slow server can not hide its delays
+ * by slowing the load down. At the end the throughput, the errors,
+ * and the p50, p99 and p99.9 latencies of each operation are shown.
+ *
+ * The load is configured with system properties:
+ *   blockchain.load.clients          the number of simulated clients (16)
+ *   blockchain.load.rate             the requests sent per second, in total (100)
+ *   blockchain.load.durationSeconds  how long the load is sent (30)
+ *   blockchain.load.mix              the weight of each operation, as operation:weight pairs (0:30,1:10,2:30,3:30)
+ *   blockchain.load.difficulty       the difficulty of the added blocks (2)
+ *   blockchain.load.keyFile          the key pool of the clients (loadgen.key)
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to generate and measure the load
+import java.nio.file.Paths;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/** sends an open loop load to the server and reports the latencies of each operation */
+public class LoadGenerator {
+
+    // the operations the load may send
+    private static final int OPERATIONS = 6;
+
+    public static void main(String args[]) throws Exception {
+
+        // the shape of the load
+        int clients = Integer.getInteger("blockchain.load.clients", 16);
+        double rate = Double.parseDouble(System.getProperty("blockchain.load.rate", "100"));
+        long durationSeconds = Long.getLong("blockchain.load.durationSeconds", 30);
+        int[] weights = parseMix(System.getProperty("blockchain.load.mix", "0:30,1:10,2:30,3:30"));
+        int difficulty = Integer.getInteger("blockchain.load.difficulty", 2);
+
+        // each simulated client has its own key, kept in the key pool so the clients are the same across runs
+        List<KeyPair> keys = ClientKeyStore.loadOrGenerate(Paths.get(System.getProperty("blockchain.load.keyFile", "loadgen.key")),
+                clients, Integer.getInteger("blockchain.keyBits", ClientKeyStore.DEFAULT_KEY_BITS));
+        List<BlockChainClient> simulatedClients = new ArrayList<BlockChainClient>();
+        for (int i = 0; i < clients; i++) {
+            simulatedClients.add(new BlockChainClient(keys.get(i)));
+        }
+
+        // the latencies, server errors and failures of each operation
+        LatencyHistogram[] histograms = new LatencyHistogram[OPERATIONS];
+        AtomicLong[] serverErrors = new AtomicLong[OPERATIONS];
+        AtomicLong[] failures = new AtomicLong[OPERATIONS];
+        for (int operation = 0; operation < OPERATIONS; operation++) {
+            histograms[operation] = new LatencyHistogram();
+            serverErrors[operation] = new AtomicLong();
+            failures[operation] = new AtomicLong();
+        }
+
+        System.out.println("Sending " + rate + " requests per second from " + clients + " clients for " + durationSeconds + " seconds");
+
+        // the time between two requests, and the time the load starts and ends
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+        // captures the requests still waiting for their response
+        List<CompletableFuture<?>> pending = new ArrayList<CompletableFuture<?>>();
+
+        // each request is sent at its scheduled time, whatever happened to the earlier ones
+        for (long sent = 0; ; sent++) {
+            long scheduledNanos = startNanos + sent * intervalNanos;
+            if (scheduledNanos >= endNanos) {
+                break;
+            }
+            // waits for the scheduled time
+            long waitNanos;
+            while ((waitNanos = scheduledNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+
+            // a random client sends a random operation of the mix
+            BlockChainClient client = simulatedClients.get(ThreadLocalRandom.current().nextInt(clients));
+            int operation = pickOperation(weights);
+            CompletableFuture<String> response = send(client, operation, difficulty, sent);
+
+            // the latency is measured from the scheduled time, not the time it was actually sent
+            pending.add(response.whenComplete((result, failure) -> {
+                histograms[operation].record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledNanos));
+                if (failure != null && failure.getCause() instanceof BlockChainClient.ServerError) {
+                    serverErrors[operation].incrementAndGet();
+                } else if (failure != null) {
+                    failures[operation].incrementAndGet();
+                }
+            }));
+            // the finished requests are forgotten, so the list stays short
+            if (pending.size() > 10000) {
+                pending.removeIf(CompletableFuture::isDone);
+            }
+        }
+
+        // waits for the last responses
+        for (CompletableFuture<?> future : pending) {
+            try {
+                future.get();
+            } catch (Exception ex) {
+                // already counted
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        for (BlockChainClient client : simulatedClients) {
+            client.close();
+        }
+
+        // the report of each operation
+        System.out.println();
+        System.out.println(String.format("%-10s %9s %9s %9s %9s %10s %10s %10s %10s",
+                "operation", "requests", "per sec", "errors", "failures", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (int operation = 0; operation < OPERATIONS; operation++) {
+            LatencyHistogram histogram = histograms[operation];
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            System.out.println(String.format("%-10d %9d %9.1f %9d %9d %10.2f %10.2f %10.2f %10.2f",
+                    operation, histogram.getCount(), histogram.getCount() / elapsedSeconds,
+                    serverErrors[operation].get(), failures[operation].get(),
+                    histogram.percentileMicros(50) / 1000.0, histogram.percentileMicros(99) / 1000.0,
+                    histogram.percentileMicros(99.9) / 1000.0, histogram.getMaxMicros() / 1000.0));
+        }
+    }
+
+    /** sends the operation from the client */
+    private static CompletableFuture<String> send(BlockChainClient client, int operation, int difficulty, long sequence) {
+        // based on the operation chosen
+        switch (operation) {
+            case 0:
+                return client.status();
+            case 1:
+                return client.add(difficulty, "load " + sequence);
+            case 2:
+                return client.verify();
+            case 3:
+                return client.view();
+            case 4:
+                return client.corrupt(0, "load " + sequence);
+            default:
+                return client.repair();
+        }
+    }
+
+    /** parses the mix, as operation:weight pairs separated by commas, into the weight of each operation */
+    private static int[] parseMix(String mix) {
+        // captures the weight of each operation
+        int[] weights = new int[OPERATIONS];
+        for (String pair : mix.split(",")) {
+            String[] fields = pair.trim().split(":");
+            int operation = Integer.parseInt(fields[0].trim());
+            if (operation < 0 || operation >= OPERATIONS) {
+                throw new IllegalArgumentException("No operation " + operation + " in the mix " + mix);
+            }
+            weights[operation] = Integer.parseInt(fields[1].trim());
+        }
+        return weights;
+    }
+
+    /** picks a random operation, as likely as its weight */
+    private static int pickOperation(int[] weights) {
+        // the sum of the weights
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        // the operation whose range of weights holds a random number
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        for (int operation = 0; operation < OPERATIONS; operation++) {
+            pick -= weights[operation];
+            if (pick < 0) {
+                return operation;
+            }
+        }
+        return OPERATIONS - 1;
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 19, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates the search for the nonce of a block.
+ * The blocks are mined by the threads of the server unless another
+ * miner is set on the chains, such as the coordinator handing the
+ * search out to the mining workers. A miner searches a bounded range
+ * of nonces at a time, so a long search can be checkpointed between
+ * two ranges. The threads of a process may hash several nonces at
+ * once with the Vector API instead, see VectorMiner, which is loaded
+ * by name as it is only compiled with the jdk.incubator.vector module.
+ */
+
+package com.spentyal.andrew;
+
+/** searches for a nonce giving the header of a block a hash that meets its target */
+public interface Miner {
+
+    // returned when no nonce of the range gives a hash at or below the target
+    long NOT_FOUND = -1;
+
+    // the threads of the server, each hashing the header in its own buffer
+    Miner LOCAL = (header, target, firstNonce, count) -> BlockHeader.forThread().load(header).search(target, firstNonce, count);
+
+    // the miner hashing several nonces at once, compiled only with the jdk.incubator.vector module
+    String VECTOR_MINER = "com.spentyal.andrew.VectorMiner";
+
+    /** determines the miner of the threads of this process: the Vector API miner if it was compiled, its module is
+     * added at run time and its hashes are the hashes of MessageDigest, otherwise LOCAL */
+    static Miner vectorOrLocal() {
+        try {
+            return (Miner) Class.forName(VECTOR_MINER).getConstructor().newInstance();
+            // the class or its module is missing, or its hashes differ
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            System.out.println("Vector mining not available, mining with MessageDigest: " + cause);
+            return LOCAL;
+        }
+    }
+
+    /** searches the given number of nonces from the first for one giving the encoded header a hash at or below the
+     * target, returns that nonce or NOT_FOUND */
+    long search(byte[] header, Hash256 target, long firstNonce, long count);
+}
@@ -0,0 +1,264 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 19, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates the checkpoints of long searches for the
+ * nonce of a block. A block being appended is searched a range of
+ * nonces at a time, and after each range without a good hash, the
+ * canonical header of the block and the last nonce searched are
+ * written to a checkpoint file, named after the header without its
+ * nonce. Along with the first checkpoint of a block, the chain it
+ * extends is written to the chain store, so the chain survives a
+ * restart too. When the block is found, its checkpoint is removed,
+ * along with that chain file unless the chain already had one, as
+ * the chain is still in memory.
+ *
+ * After a restart, the block of each checkpoint left is appended to
+ * its chain again, if it still extends the tip of the chain, and its
+ * search resumes from the nonce after the last one searched rather
+ * than from zero. The client that added the block was disconnected by
+ * the restart, and finds the block on the chain once it is mined. A
+ * checkpoint whose chain has moved on is removed.
+ *
+ * A checkpoint file holds the magic number, the layout of the file,
+ * the key of the chain, the header and the last nonce searched.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to checkpoint the searches to disk
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** writes the progress of the searches for the nonces of the blocks being appended, and resumes them after a restart */
+public class MiningCheckpoints {
+
+    // marks the beginning of a checkpoint file
+    private static final int MAGIC = 0x42434B50;
+    // the layout of the checkpoint files
+    private static final int FORMAT_VERSION = 1;
+
+    // the directory holding the checkpoint files
+    private final Path directory;
+    // the number of nonces searched between two checkpoints
+    private final long rangeNonces;
+    // the store the chain extended by a block is written to along with its first checkpoint
+    private final ChainStore chainStore;
+
+    // captures the number of checkpoints written
+    private final AtomicLong checkpoints = new AtomicLong();
+    // captures the number of searches resumed from a checkpoint
+    private final AtomicLong resumedSearches = new AtomicLong();
+
+    /** MiningCheckpoints constructor, writes a checkpoint every given number of nonces, creates the directory if needed */
+    public MiningCheckpoints(String directory, long rangeNonces, ChainStore chainStore) throws IOException {
+        // the directory holding the checkpoint files
+        this.directory = Paths.get(directory);
+        Files.createDirectories(this.directory);
+        // the interval and the store of the chains
+        this.rangeNonces = rangeNonces;
+        this.chainStore = chainStore;
+    }
+
+    /** mines the block appended to the given blocks of a chain, resuming from its checkpoint if there is one, and
+     * writing a checkpoint after every range of nonces searched without a good hash */
+    Hash256 mine(String chainKey, List<Block> parentBlocks, ChainSnapshot base, Block block, Miner miner) {
+
+        // a block whose hash already meets its target needs no search
+        Hash256 blockHash = block.calculateHash();
+        if (block.meetsTarget(blockHash)) {
+            return blockHash;
+        }
+
+        // the block is searched with the canonical header, which names its checkpoint
+        block.setHeaderVersion(BlockHeader.CANONICAL_VERSION);
+        byte[] header = BlockHeader.forThread().encode(block).toBytes();
+        Path file = fileOf(header);
+        // the search resumes after the last nonce searched before the restart, if a nonce is left after it
+        Checkpoint checkpoint = read(file);
+        if (checkpoint != null && Arrays.equals(withoutNonce(checkpoint.header), withoutNonce(header))
+                && checkpoint.searchedThrough >= block.getNonce().longValue() && checkpoint.searchedThrough < Long.MAX_VALUE - 1) {
+            block.setNonce(BigInteger.valueOf(checkpoint.searchedThrough + 1));
+            resumedSearches.incrementAndGet();
+            System.out.println("Resuming the mining of block " + block.getIndex() + " of " + chainKey + " at nonce " + block.getNonce());
+        }
+
+        // the chain the block extends is written once, with the first checkpoint
+        boolean[] chainSaved = new boolean[1];
+        // true if that chain file was created for the checkpoint, rather than replacing the file of a loaded chain
+        boolean[] chainFileCreated = new boolean[1];
+        try {
+            blockHash = block.proofOfWork(miner, rangeNonces, searchedThrough -> {
+                try {
+                    if (!chainSaved[0] && !parentBlocks.isEmpty()) {
+                        chainFileCreated[0] = !chainStore.contains(chainKey);
+                        chainStore.save(chainKey, base.next(new ArrayList<Block>(parentBlocks), block.getPreviousHash()));
+                        chainSaved[0] = true;
+                    }
+                    write(file, chainKey, header, searchedThrough);
+                    checkpoints.incrementAndGet();
+                    // Handle IO Exception, the search goes on without this checkpoint
+                } catch (IOException e) {
+                    System.out.println("IO Exception:" + e.getMessage());
+                }
+            });
+        } finally {
+            // the block is found, or its add failed, so its checkpoint is no longer needed
+            delete(file);
+            // nor is the chain file created with it, which no longer holds the chain in memory, a loaded chain keeps its file
+            if (chainFileCreated[0]) {
+                try {
+                    chainStore.delete(chainKey);
+                    // Handle IO Exception, the file is replaced when the chain is evicted
+                } catch (IOException e) {
+                    System.out.println("IO Exception:" + e.getMessage());
+                }
+            }
+        }
+        return blockHash;
+    }
+
+    /** appends the block of every checkpoint left by the previous run to its chain, which resumes its search */
+    public void resume(ChainRegistry chainRegistry) throws IOException {
+
+        // the checkpoint files, read before any new one is written
+        List<Path> files = new ArrayList<Path>();
+        try (DirectoryStream<Path> checkpointFiles = Files.newDirectoryStream(directory, "*.checkpoint")) {
+            for (Path file : checkpointFiles) {
+                files.add(file);
+            }
+        }
+
+        // each block is appended by the writer of its chain, after any request already queued
+        for (Path file : files) {
+            Checkpoint checkpoint = read(file);
+            if (checkpoint == null) {
+                continue;
+            }
+            ChainWriter writer = chainRegistry.acquire(checkpoint.chainKey);
+            try {
+                writer.submitResumeBlock(BlockHeader.decode(checkpoint.header)).thenAccept(resumed -> {
+                    // a block that no longer extends its chain is given up
+                    if (!resumed) {
+                        System.out.println("Chain " + checkpoint.chainKey + " moved on, discarding the checkpoint " + file.getFileName());
+                        delete(file);
+                    }
+                });
+                // handles InterruptedException, the checkpoint is then resumed on the next start
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                chainRegistry.release(checkpoint.chainKey);
+            }
+        }
+    }
+
+    /** determines the number of checkpoints written */
+    public long getCheckpoints() {
+        // returns the number of checkpoints
+        return checkpoints.get();
+    }
+
+    /** determines the number of searches resumed from a checkpoint */
+    public long getResumedSearches() {
+        // returns the number of searches
+        return resumedSearches.get();
+    }
+
+    /** writes the checkpoint of a search, replacing the earlier one */
+    private void write(Path file, String chainKey, byte[] header, long searchedThrough) throws IOException {
+
+        // the checkpoint is written to a temporary file first
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            ChainStore.writeString(out, chainKey);
+            out.writeInt(header.length);
+            out.write(header);
+            out.writeLong(searchedThrough);
+        }
+        // a restart never finds a partly written checkpoint
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** reads a checkpoint, null if there is none or it can not be read */
+    private static Checkpoint read(Path file) {
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            // the header of the file
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a checkpoint file: " + file);
+            }
+            String chainKey = ChainStore.readString(in);
+            byte[] header = new byte[in.readInt()];
+            in.readFully(header);
+            return new Checkpoint(chainKey, header, in.readLong());
+            // a search without a checkpoint starts from its nonce
+        } catch (NoSuchFileException e) {
+            return null;
+            // Handle IO Exception, the search starts over
+        } catch (IOException e) {
+            System.out.println("IO Exception:" + e.getMessage());
+            return null;
+        }
+    }
+
+    /** removes a checkpoint */
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            // Handle IO Exception, the checkpoint is discarded on the next start
+        } catch (IOException e) {
+            System.out.println("IO Exception:" + e.getMessage());
+        }
+    }
+
+    /** determines the file of the checkpoint of a header, named after the SHA256 hash of the header without its nonce */
+    private Path fileOf(byte[] header) {
+        try {
+            // the nonce changes as the search goes on, the rest of the header does not
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return directory.resolve(Hash256.toHex(digest.digest(withoutNonce(header))) + ".checkpoint");
+            // handles NoSuchAlgorithmException
+        } catch (NoSuchAlgorithmException nsa) {
+            throw new IllegalStateException("No such algorithm exception thrown " + nsa);
+        }
+    }
+
+    /** determines the bytes of a header before its nonce */
+    private static byte[] withoutNonce(byte[] header) {
+        // the nonce is the last field
+        return Arrays.copyOf(header, header.length - BlockHeader.NONCE_BYTES);
+    }
+
+    /** the checkpoint of a search */
+    private static class Checkpoint {
+        // the chain the block is appended to
+        final String chainKey;
+        // the canonical header of the block
+        final byte[] header;
+        // the last nonce searched, every nonce from the nonce of the header up to it was searched
+        final long searchedThrough;
+
+        Checkpoint(String chainKey, byte[] header, long searchedThrough) {
+            this.chainKey = chainKey;
+            this.header = header;
+            this.searchedThrough = searchedThrough;
+        }
+    }
+}
@@ -0,0 +1,394 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 19, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates the coordination of the mining workers.
+ * A range of nonces to search becomes a job: the canonical header of
+ * the block is the template every worker hashes, and the nonces are
+ * handed out in disjoint ranges, each leased to one worker at a time.
+ * A worker searches its lease and reports either a nonce whose hash
+ * meets the target, or that none of the range does, and is then
+ * leased the next range. The first solution found is checked by the
+ * coordinator and accepted, and every other lease of the job is
+ * cancelled. A worker that does not report within the lease timeout,
+ * or disconnects, is dropped and its range is leased again to the
+ * next worker asking for one. Several chains mine at once, so the
+ * jobs are leased oldest first. A job covers the range of nonces the
+ * miner is asked to search, so a long search is checkpointed between
+ * two jobs. With no worker connected, the range is searched by the
+ * thread that asked for it, as before.
+ *
+ * The stream starts with the magic number and protocol version, sent
+ * by both sides, followed by frames:
+ *   lease   to the worker: job, 32 byte target, header template, first
+ *           nonce and number of nonces to search
+ *   cancel  to the worker: job, whose lease is no longer needed
+ *   result  to the coordinator: job, whether a nonce was found, and
+ *           the nonce
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to hand out the mining to the workers
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** mines the blocks by leasing ranges of their nonces to the workers connected */
+public class MiningCoordinator implements Miner {
+
+    // marks the beginning of a mining stream
+    static final int MAGIC = 0x424D494E;
+    // the layout of the frames
+    static final int PROTOCOL_VERSION = 2;
+    // a frame leasing a range of nonces to a worker
+    static final int LEASE_FRAME = 1;
+    // a frame cancelling the lease of a job already solved
+    static final int CANCEL_FRAME = 2;
+    // a frame reporting the search of a lease
+    static final int RESULT_FRAME = 3;
+
+    // the number of nonces of a lease
+    private final long leaseNonces;
+    // the time a worker has to report on its lease, in milliseconds
+    private final long leaseTimeoutMillis;
+    // searches the ranges on the thread asking for them when no worker is connected
+    private final Miner localMiner;
+    // the connected workers
+    private final List<WorkerLink> workers = new CopyOnWriteArrayList<WorkerLink>();
+    // the jobs being mined, oldest first, guarded by this coordinator
+    private final List<Job> jobs = new ArrayList<Job>();
+    // the number of the last job, guarded by this coordinator
+    private long lastJobId;
+
+    // captures the number of leases handed out
+    private final AtomicLong leases = new AtomicLong();
+    // captures the number of leases handed out again after their worker was lost
+    private final AtomicLong reissuedLeases = new AtomicLong();
+    // captures the number of blocks solved by the workers
+    private final AtomicLong solvedBlocks = new AtomicLong();
+
+    /** MiningCoordinator constructor, leasing the given number of nonces at a time, searching with the given miner
+     * while no worker is connected */
+    public MiningCoordinator(long leaseNonces, long leaseTimeoutMillis, Miner localMiner) {
+        // the size and timeout of the leases
+        this.leaseNonces = leaseNonces;
+        this.leaseTimeoutMillis = leaseTimeoutMillis;
+        // the miner of the threads of the server
+        this.localMiner = localMiner;
+    }
+
+    /** starts accepting workers on the given address and port */
+    public void start(InetAddress bindAddress, int port) throws IOException {
+
+        // the socket the workers connect to
+        ServerSocket listenSocket = new ServerSocket(port, 50, bindAddress);
+        // the workers are accepted while the server serves the clients
+        Thread acceptor = new Thread(() -> acceptWorkers(listenSocket), "mining-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        System.out.println("Coordinating mining workers on port " + port);
+    }
+
+    /** accepts workers, each served by its own thread */
+    private void acceptWorkers(ServerSocket listenSocket) {
+        while (true) {
+            try {
+                WorkerLink link = new WorkerLink(listenSocket.accept());
+                Thread thread = new Thread(link::serve, "mining-worker-link");
+                thread.setDaemon(true);
+                thread.start();
+                // Handle IO Exception
+            } catch (IOException e) {
+                System.out.println("IO Exception:" + e.getMessage());
+            }
+        }
+    }
+
+    /** searches the range on the workers, or on this thread if there is none */
+    @Override
+    public long search(byte[] header, Hash256 target, long firstNonce, long count) {
+
+        // without workers the range is searched here
+        if (workers.isEmpty()) {
+            return localMiner.search(header, target, firstNonce, count);
+        }
+
+        // the job, leased until a worker solves it or every nonce of the range is searched
+        Job job = new Job(header, target.toBytes(), firstNonce, firstNonce + count);
+        synchronized (this) {
+            job.id = ++lastJobId;
+            jobs.add(job);
+            notifyAll();
+            try {
+                // until a worker solves the job, the range is searched, or every worker is lost
+                while (job.solution == null && !job.isSearched() && !workers.isEmpty()) {
+                    wait(leaseTimeoutMillis);
+                }
+                // handles InterruptedException, the range is then searched on this thread
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            job.done = true;
+            jobs.remove(job);
+        }
+        // the leases still searching the job are no longer needed
+        cancelLeases(job);
+
+        // every worker lost, the search goes on here
+        if (job.solution != null) {
+            return job.solution;
+        }
+        return job.isSearched() ? Miner.NOT_FOUND : localMiner.search(header, target, firstNonce, count);
+    }
+
+    /** hands out the next range of the oldest job with nonces left, waiting for a job if there is none */
+    private synchronized Lease nextLease() throws InterruptedException {
+        while (true) {
+            for (Job job : jobs) {
+                // a range lost with its worker is leased again first
+                long[] range = job.returned.poll();
+                if (range == null && job.nextNonce < job.endNonce) {
+                    range = new long[] { job.nextNonce, Math.min(leaseNonces, job.endNonce - job.nextNonce) };
+                    job.nextNonce += range[1];
+                }
+                if (range != null) {
+                    leases.incrementAndGet();
+                    job.leased++;
+                    return new Lease(job, range[0], range[1]);
+                }
+            }
+            wait();
+        }
+    }
+
+    /** records the result of a lease, returns true if it solved its job */
+    private synchronized boolean complete(Lease lease, boolean found, long nonce) {
+        // a solution is accepted once, and only if its hash meets the target
+        Job job = lease.job;
+        job.leased--;
+        if (!found || job.done) {
+            // the job waiting notices once its whole range is searched
+            if (job.isSearched()) {
+                notifyAll();
+            }
+            return false;
+        }
+        BlockHeader header = BlockHeader.forThread().load(job.template);
+        header.setNonce(nonce);
+        if (!header.hashMeetsTarget(job.target)) {
+            // the range is leased again to another worker
+            System.out.println("Mining worker sent a nonce that does not solve job " + job.id);
+            job.returned.add(new long[] { lease.start, lease.count });
+            notifyAll();
+            return false;
+        }
+        job.solution = nonce;
+        job.done = true;
+        solvedBlocks.incrementAndGet();
+        notifyAll();
+        return true;
+    }
+
+    /** returns the range of the lease of a lost worker, if it had one, to be leased again */
+    private synchronized void lose(Lease lease) {
+        if (lease != null) {
+            lease.job.leased--;
+        }
+        if (lease != null && !lease.job.done) {
+            lease.job.returned.add(new long[] { lease.start, lease.count });
+            reissuedLeases.incrementAndGet();
+        }
+        // a job waiting for a worker notices when the last one is lost
+        notifyAll();
+    }
+
+    /** cancels the leases of the job held by the workers */
+    private void cancelLeases(Job job) {
+        for (WorkerLink worker : workers) {
+            Lease lease = worker.current;
+            if (lease != null && lease.job == job) {
+                worker.cancel(job.id);
+            }
+        }
+    }
+
+    /** determines the number of workers connected */
+    public int getWorkers() {
+        // returns the number of workers
+        return workers.size();
+    }
+
+    /** determines the number of leases handed out */
+    public long getLeases() {
+        // returns the number of leases
+        return leases.get();
+    }
+
+    /** determines the number of leases handed out again after their worker was lost */
+    public long getReissuedLeases() {
+        // returns the number of leases
+        return reissuedLeases.get();
+    }
+
+    /** determines the number of blocks solved by the workers */
+    public long getSolvedBlocks() {
+        // returns the number of blocks
+        return solvedBlocks.get();
+    }
+
+    /** a range of the nonces of a block being searched */
+    private static class Job {
+        // the number of the job, sent with its leases
+        long id;
+        // the canonical header of the block, with the nonce last
+        final byte[] template;
+        // the bytes of the largest proper hash
+        final byte[] target;
+        // the first nonce not leased yet
+        long nextNonce;
+        // the nonce after the range of the job
+        final long endNonce;
+        // the ranges lost with their workers, first and number of nonces, leased again first
+        final Deque<long[]> returned = new ArrayDeque<long[]>();
+        // the number of leases being searched
+        int leased;
+        // the nonce found, null until the job is solved
+        Long solution;
+        // true once the job needs no more leases
+        boolean done;
+
+        Job(byte[] template, byte[] target, long firstNonce, long endNonce) {
+            this.template = template;
+            this.target = target;
+            this.nextNonce = firstNonce;
+            this.endNonce = endNonce;
+        }
+
+        /** determines if every nonce of the range was searched without a solution */
+        boolean isSearched() {
+            // returns true once nothing is left to lease or being searched
+            return nextNonce == endNonce && returned.isEmpty() && leased == 0;
+        }
+    }
+
+    /** a range of the nonces of a job, leased to one worker */
+    private static class Lease {
+        // the job of the nonces
+        final Job job;
+        // the first nonce of the range
+        final long start;
+        // the number of nonces of the range
+        final long count;
+
+        Lease(Job job, long start, long count) {
+            this.job = job;
+            this.start = start;
+            this.count = count;
+        }
+    }
+
+    /** the connection to one worker */
+    private class WorkerLink {
+        // the socket of the worker
+        private final Socket socket;
+        // the frames to the worker, written by its thread and by the cancels
+        private DataOutputStream out;
+        // the lease the worker is searching, null while it has none
+        private volatile Lease current;
+
+        WorkerLink(Socket socket) {
+            this.socket = socket;
+        }
+
+        /** leases ranges to the worker until it is lost */
+        void serve() {
+
+            try (Socket worker = socket;
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(worker.getInputStream()))) {
+
+                // both sides open with the magic number and protocol version
+                out = new DataOutputStream(new BufferedOutputStream(worker.getOutputStream()));
+                worker.setTcpNoDelay(true);
+                synchronized (this) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(PROTOCOL_VERSION);
+                    out.flush();
+                }
+                if (in.readInt() != MAGIC || in.readInt() != PROTOCOL_VERSION) {
+                    throw new IOException("Not a mining worker: " + worker.getRemoteSocketAddress());
+                }
+                // a worker that does not report within the timeout is lost
+                worker.setSoTimeout((int) leaseTimeoutMillis);
+                workers.add(this);
+                System.out.println("Mining worker connected: " + worker.getRemoteSocketAddress());
+
+                while (true) {
+                    // the next range, sent with the template of its job
+                    Lease lease = nextLease();
+                    current = lease;
+                    synchronized (this) {
+                        out.writeByte(LEASE_FRAME);
+                        out.writeLong(lease.job.id);
+                        out.write(lease.job.target);
+                        out.writeInt(lease.job.template.length);
+                        out.write(lease.job.template);
+                        out.writeLong(lease.start);
+                        out.writeLong(lease.count);
+                        out.flush();
+                    }
+
+                    // the worker reports on every lease, cancelled or not
+                    if (in.readByte() != RESULT_FRAME || in.readLong() != lease.job.id) {
+                        throw new IOException("Unexpected result from " + worker.getRemoteSocketAddress());
+                    }
+                    boolean found = in.readBoolean();
+                    long nonce = in.readLong();
+                    current = null;
+                    if (complete(lease, found, nonce)) {
+                        cancelLeases(lease.job);
+                    }
+                }
+
+                // handles a worker that did not report on its lease in time
+            } catch (SocketTimeoutException e) {
+                System.out.println("Mining worker timed out: " + socket.getRemoteSocketAddress());
+                // handles the worker closing the stream
+            } catch (EOFException e) {
+                System.out.println("Mining worker disconnected: " + socket.getRemoteSocketAddress());
+                // Handle IO Exception
+            } catch (IOException e) {
+                System.out.println("IO Exception:" + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // the lease of a lost worker is handed out again
+                workers.remove(this);
+                Lease lease = current;
+                current = null;
+                lose(lease);
+            }
+        }
+
+        /** tells the worker its lease of the job is no longer needed */
+        synchronized void cancel(long jobId) {
+            try {
+                out.writeByte(CANCEL_FRAME);
+                out.writeLong(jobId);
+                out.flush();
+                // Handle IO Exception, the worker is lost and its thread finds out
+            } catch (IOException e) {
+                System.out.println("IO Exception:" + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 19, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates a mining worker, a process searching the
+ * nonces leased to it by the mining coordinator of a server. Each
+ * lease is split between the threads of the worker, each hashing the
+ * header template with every nonce of its share of chunks of 4096
+ * nonces, with the Vector API if started with
+ * -Dblockchain.vectorMining=true, see VectorMiner, until one of them
+ * finds a hash at or below the target of the block, the range is
+ * searched, or the coordinator cancels the lease because another
+ * worker solved the block first. The worker then reports on the lease
+ * and is leased the next range. A lost coordinator is retried every
+ * second. It is started, once per machine, with the address of the
+ * coordinator and the number of threads:
+ *   java com.spentyal.andrew.MiningWorker localhost 7817 8
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to search the leases of the coordinator
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** searches the nonce ranges leased by a mining coordinator */
+public class MiningWorker {
+
+    // the nonces a thread tries between two checks for a cancel, the chunks the lease is split into
+    private static final int CANCEL_CHECK_NONCES = 4096;
+    // marks that no nonce was found
+    private static final long NOT_FOUND = -1;
+
+    // the address of the coordinator
+    private final InetSocketAddress coordinator;
+    // the number of threads searching each lease
+    private final int threads;
+    // hashes the nonces of each chunk
+    private final Miner miner;
+    // the threads searching the leases
+    private final ExecutorService searchPool;
+    // the job whose lease was cancelled by the coordinator
+    private volatile long cancelledJob;
+
+    /** MiningWorker constructor, searching each lease on the given number of threads with the given miner */
+    public MiningWorker(InetSocketAddress coordinator, int threads, Miner miner) {
+
+        // the coordinator leasing the nonces
+        this.coordinator = coordinator;
+        this.threads = threads;
+        this.miner = miner;
+        // the searching threads do not keep the process running
+        searchPool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "mining-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String args[]) {
+
+        // the coordinator and the threads, defaulting to the local server and every core
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7817;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        Miner miner = Boolean.getBoolean("blockchain.vectorMining") ? Miner.vectorOrLocal() : Miner.LOCAL;
+        new MiningWorker(new InetSocketAddress(host, port), threads, miner).run();
+    }
+
+    /** works for the coordinator, connecting again every second while it is lost */
+    public void run() {
+        while (true) {
+            try {
+                work();
+                // handles the coordinator closing the stream
+            } catch (EOFException e) {
+                System.out.println("Coordinator " + coordinator + " closed the stream");
+                // Handle IO Exception, the coordinator is retried
+            } catch (IOException e) {
+                System.out.println("Coordinator " + coordinator + " lost: " + e.getMessage());
+            }
+            try {
+                // the coordinator is retried every second
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /** searches the leases of the coordinator until it is lost */
+    private void work() throws IOException {
+
+        try (Socket socket = new Socket()) {
+            // both sides open with the magic number and protocol version
+            socket.connect(coordinator, 5000);
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(MiningCoordinator.MAGIC);
+            out.writeInt(MiningCoordinator.PROTOCOL_VERSION);
+            out.flush();
+            if (in.readInt() != MiningCoordinator.MAGIC || in.readInt() != MiningCoordinator.PROTOCOL_VERSION) {
+                throw new IOException("Not a mining coordinator");
+            }
+            System.out.println("Mining for " + coordinator + " on " + threads + " threads");
+
+            // the lease being searched, the frames are read meanwhile so a cancel arrives at once
+            ExecutorService leaseRunner = Executors.newSingleThreadExecutor();
+            // set once the coordinator is lost, which stops the leases of this connection on every searching thread
+            AtomicBoolean abandoned = new AtomicBoolean();
+            try {
+                while (true) {
+                    int frame = in.readByte();
+                    if (frame == MiningCoordinator.CANCEL_FRAME) {
+                        cancelledJob = in.readLong();
+                    } else if (frame == MiningCoordinator.LEASE_FRAME) {
+                        long jobId = in.readLong();
+                        byte[] targetBytes = new byte[Hash256.BYTES];
+                        in.readFully(targetBytes);
+                        Hash256 target = Hash256.of(targetBytes);
+                        byte[] template = new byte[in.readInt()];
+                        in.readFully(template);
+                        long start = in.readLong();
+                        long count = in.readLong();
+                        leaseRunner.execute(() -> report(out, jobId, search(jobId, template, target, start, count, abandoned)));
+                    } else {
+                        throw new IOException("Unknown frame " + frame);
+                    }
+                }
+            } finally {
+                // a lease of a lost coordinator is abandoned, so the next lease is not queued behind it
+                abandoned.set(true);
+                cancelledJob = -1;
+                leaseRunner.shutdownNow();
+            }
+        }
+    }
+
+    /** searches the lease on every thread until the lease is searched, cancelled or abandoned, returns the nonce found or NOT_FOUND */
+    private long search(long jobId, byte[] template, Hash256 target, long start, long count, AtomicBoolean abandoned) {
+
+        // the first nonce found by any thread, which stops the others
+        AtomicLong found = new AtomicLong(NOT_FOUND);
+        List<Future<?>> shares = new ArrayList<Future<?>>();
+        for (int t = 0; t < threads; t++) {
+            int share = t;
+            shares.add(searchPool.submit(() -> {
+                // each thread searches every threads-th chunk of the lease
+                for (long offset = (long) share * CANCEL_CHECK_NONCES; offset < count; offset += (long) threads * CANCEL_CHECK_NONCES) {
+                    long nonce = miner.search(template, target, start + offset, Math.min(CANCEL_CHECK_NONCES, count - offset));
+                    if (nonce != Miner.NOT_FOUND) {
+                        found.compareAndSet(NOT_FOUND, nonce);
+                        return;
+                    }
+                    // another thread found a nonce, the coordinator cancelled the lease or the coordinator is lost
+                    if (found.get() != NOT_FOUND || cancelledJob == jobId || abandoned.get()) {
+                        return;
+                    }
+                }
+            }));
+        }
+
+        // every share is searched or stopped
+        for (Future<?> share : shares) {
+            try {
+                share.get();
+                // handles the search being abandoned
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return NOT_FOUND;
+            } catch (ExecutionException e) {
+                System.out.println("Exception:" + e.getMessage());
+            }
+        }
+        return found.get();
+    }
+
+    /** reports on the lease to the coordinator */
+    private void report(DataOutputStream out, long jobId, long nonce) {
+        try {
+            // a nonce found, or the whole range searched or cancelled
+            out.writeByte(MiningCoordinator.RESULT_FRAME);
+            out.writeLong(jobId);
+            out.writeBoolean(nonce != NOT_FOUND);
+            out.writeLong(nonce);
+            out.flush();
+            if (nonce != NOT_FOUND) {
+                System.out.println("Solved job " + jobId + " with nonce " + nonce);
+            }
+            // Handle IO Exception, the coordinator is lost and the reading thread finds out
+        } catch (IOException e) {
+            System.out.println("IO Exception:" + e.getMessage());
+        }
+    }
+}
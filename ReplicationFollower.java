@@ -0,0 +1,211 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates the follower side of the replication.
+ * A follower connects to the first leader it can reach, of the ones
+ * configured, and publishes every version the leader streams to it
+ * into its own chains, from which it serves the read operations.
+ * The replication lag is the time between the leader publishing a
+ * version and the follower publishing it, and is reported along
+ * with the time since the leader was last heard from. A lost leader
+ * is retried every second. If configured, a follower that has not
+ * heard from any leader for long enough promotes itself to leader,
+ * so the other followers, which list it among their leaders, follow
+ * it instead. On one host the followers can all list the leader's
+ * replication port: it is free once the leader is lost, and only
+ * the first follower to take it is promoted.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to receive the chains from the leader
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/** follows a leader, publishing every version it streams into the chains of this server */
+public class ReplicationFollower {
+
+    // the time allowed to connect to a leader, in milliseconds
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    // the leader is lost once it missed this many heartbeats
+    private static final int MISSED_HEARTBEATS = 5;
+
+    // the chains of this server, replicas of the leader's chains
+    private final ChainRegistry chainRegistry;
+    // the replication addresses of the leaders, tried in order
+    private final List<InetSocketAddress> leaders;
+    // the time without any leader after which this follower promotes itself, 0 for never
+    private final long promoteAfterMillis;
+    // makes this server the leader, false if another follower already is
+    private final BooleanSupplier promotion;
+
+    // true while a leader is streaming to this follower
+    private volatile boolean connected;
+    // the time the leader was last heard from
+    private volatile long lastContactMillis = System.currentTimeMillis();
+    // the time between the leader publishing the last version applied and this follower publishing it
+    private volatile long lagMillis;
+    // captures the number of delta frames applied
+    private final AtomicLong appliedDeltas = new AtomicLong();
+
+    /** ReplicationFollower constructor, for leaders given as comma separated host:port replication addresses */
+    public ReplicationFollower(ChainRegistry chainRegistry, String leaders, long promoteAfterMillis, BooleanSupplier promotion) {
+
+        // the chains of this server
+        this.chainRegistry = chainRegistry;
+        // the address of each leader
+        this.leaders = new ArrayList<InetSocketAddress>();
+        for (String leader : leaders.split(",")) {
+            String[] hostAndPort = leader.trim().split(":");
+            this.leaders.add(new InetSocketAddress(hostAndPort[0], Integer.parseInt(hostAndPort[1])));
+        }
+        // the promotion of this follower
+        this.promoteAfterMillis = promoteAfterMillis;
+        this.promotion = promotion;
+    }
+
+    /** starts following the leaders */
+    public void start() {
+        // the chains are received while this server serves the clients
+        Thread follower = new Thread(this::follow, "replication-follower");
+        follower.setDaemon(true);
+        follower.start();
+    }
+
+    /** follows the first leader reachable, until this follower is promoted */
+    private void follow() {
+
+        while (true) {
+            // each leader in turn
+            for (InetSocketAddress leader : leaders) {
+                try {
+                    followLeader(leader);
+                    // handles the leader closing the stream
+                } catch (EOFException e) {
+                    System.out.println("Leader " + leader + " closed the stream");
+                    // Handle IO Exception, the next leader is tried
+                } catch (IOException e) {
+                    System.out.println("Leader " + leader + " lost: " + e.getMessage());
+                } finally {
+                    connected = false;
+                }
+            }
+
+            // no leader for long enough, this follower becomes the leader unless another follower did first
+            if (promoteAfterMillis > 0 && System.currentTimeMillis() - lastContactMillis > promoteAfterMillis) {
+                System.out.println("No leader for " + promoteAfterMillis + " milliseconds, promoting this follower");
+                if (promotion.getAsBoolean()) {
+                    return;
+                }
+                lastContactMillis = System.currentTimeMillis();
+            }
+            try {
+                // the leaders are retried every second
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /** receives the stream of the leader until it is lost */
+    private void followLeader(InetSocketAddress leader) throws IOException {
+
+        try (Socket socket = new Socket()) {
+            // a leader silent for several heartbeats is lost
+            socket.connect(leader, CONNECT_TIMEOUT_MILLIS);
+            socket.setSoTimeout((int) (MISSED_HEARTBEATS * ReplicationLeader.HEARTBEAT_MILLIS));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            // both sides open with the magic number and protocol version
+            out.writeInt(ReplicationLeader.MAGIC);
+            out.writeInt(ReplicationLeader.PROTOCOL_VERSION);
+            out.flush();
+            if (in.readInt() != ReplicationLeader.MAGIC || in.readInt() != ReplicationLeader.PROTOCOL_VERSION) {
+                throw new IOException("Not a leader");
+            }
+            connected = true;
+            lastContactMillis = System.currentTimeMillis();
+            System.out.println("Following leader " + leader);
+
+            // each frame of the leader
+            while (true) {
+                int frame = in.readByte();
+                lastContactMillis = System.currentTimeMillis();
+                if (frame == ReplicationLeader.HEARTBEAT_FRAME) {
+                    in.readLong();
+                } else if (frame == ReplicationLeader.DELTA_FRAME) {
+                    applyDelta(in);
+                } else {
+                    throw new IOException("Unknown frame " + frame);
+                }
+            }
+        }
+    }
+
+    /** publishes the version sent in a delta frame into the replica of its chain */
+    private void applyDelta(DataInputStream in) throws IOException {
+
+        // the chain, its version and the time the leader published it
+        String chainKey = ChainStore.readString(in);
+        long version = in.readLong();
+        long publishedAtMillis = in.readLong();
+        // the blocks from the given index on, with the version in which each was last changed
+        int from = in.readInt();
+        int count = in.readInt();
+        List<Block> blocks = new ArrayList<Block>(count);
+        long[] modifiedAt = new long[count];
+        for (int i = 0; i < count; i++) {
+            blocks.add(ChainStore.readBlock(in, modifiedAt, i));
+        }
+        Hash256 chainHash = ChainStore.readHash(in);
+
+        // the replica is not evicted while it is replaced
+        ChainWriter writer = chainRegistry.acquire(chainKey);
+        try {
+            // a replica missing the blocks before the index is out of step, the leader sends every chain again on reconnecting
+            if (!writer.getBlockChain().replicate(from, blocks, modifiedAt, chainHash, version)) {
+                throw new IOException("Replica of " + chainKey + " is missing blocks before " + from);
+            }
+        } finally {
+            chainRegistry.release(chainKey);
+        }
+
+        // the lag of this version
+        lagMillis = System.currentTimeMillis() - publishedAtMillis;
+        appliedDeltas.incrementAndGet();
+    }
+
+    /** determines if a leader is streaming to this follower */
+    public boolean isConnected() {
+        // returns true while connected
+        return connected;
+    }
+
+    /** determines the time between the leader publishing the last version applied and this follower publishing it */
+    public long getLagMillis() {
+        // returns the lag in milliseconds
+        return lagMillis;
+    }
+
+    /** determines the time since the leader was last heard from */
+    public long getMillisSinceContact() {
+        // returns the time in milliseconds
+        return System.currentTimeMillis() - lastContactMillis;
+    }
+
+    /** determines the number of delta frames applied */
+    public long getAppliedDeltas() {
+        // returns the number of deltas
+        return appliedDeltas.get();
+    }
+}
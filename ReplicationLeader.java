@@ -0,0 +1,258 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates the leader side of the replication.
+ * The leader accepts the mutations, and every version it publishes
+ * is streamed to the follower servers over TCP, so they can serve
+ * the read operations from their own copy of the chains. Each
+ * follower has its own connection and sending thread. Only the
+ * latest version of a chain waiting to be sent is kept, so a slow
+ * follower receives fewer, larger frames rather than holding the
+ * leader back, and each frame holds only the blocks added or
+ * changed since the version the follower already has. A follower
+ * that connects first receives every chain, resident or on disk.
+ * When nothing changes a heartbeat is sent every second, so a
+ * follower can tell a quiet leader from a lost one.
+ *
+ * The stream starts with the magic number and protocol version,
+ * sent by both sides, followed by frames from the leader:
+ *   delta      chain key, version, the time the version was
+ *              published, the index of the first block sent, the
+ *              blocks from there on as in the chain files, and
+ *              the chain hash
+ *   heartbeat  the time on the leader
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to stream the chains to the followers
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** streams every version published on the chains of the leader to its followers */
+public class ReplicationLeader {
+
+    // marks the beginning of a replication stream
+    static final int MAGIC = 0x4252504C;
+    // the layout of the frames
+    static final int PROTOCOL_VERSION = 2;
+    // a frame holding the blocks of a chain changed since the version the follower has
+    static final int DELTA_FRAME = 1;
+    // a frame sent when nothing changed
+    static final int HEARTBEAT_FRAME = 2;
+    // the time between two heartbeats, in milliseconds
+    static final long HEARTBEAT_MILLIS = 1000;
+
+    // the chains streamed to the followers
+    private final ChainRegistry chainRegistry;
+    // the connected followers
+    private final List<FollowerLink> followers = new CopyOnWriteArrayList<FollowerLink>();
+    // captures the number of delta frames sent
+    private final AtomicLong sentDeltas = new AtomicLong();
+
+    /** ReplicationLeader constructor, streams the chains of the given registry */
+    public ReplicationLeader(ChainRegistry chainRegistry) {
+        // the chains of the leader
+        this.chainRegistry = chainRegistry;
+    }
+
+    /** starts accepting followers on the given address and port */
+    public void start(InetAddress bindAddress, int port) throws IOException {
+
+        // the socket the followers connect to
+        ServerSocket listenSocket = new ServerSocket(port, 50, bindAddress);
+        // every version published from now on is queued for the followers
+        chainRegistry.addPublishListener(this::published);
+
+        // the followers are accepted while the leader serves the clients
+        Thread acceptor = new Thread(() -> acceptFollowers(listenSocket), "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        System.out.println("Replicating to followers on port " + port);
+    }
+
+    /** accepts followers, each streamed by its own thread */
+    private void acceptFollowers(ServerSocket listenSocket) {
+        while (true) {
+            try {
+                // a follower is registered before its catch up, so no version published in between is missed
+                FollowerLink link = new FollowerLink(listenSocket.accept());
+                followers.add(link);
+                Thread sender = new Thread(link::stream, "replication-sender");
+                sender.setDaemon(true);
+                sender.start();
+                // Handle IO Exception
+            } catch (IOException e) {
+                System.out.println("IO Exception:" + e.getMessage());
+            }
+        }
+    }
+
+    /** queues the version just published for every follower */
+    private void published(String chainKey, ChainSnapshot snapshot) {
+        // the time the version was published, for the follower to measure its lag
+        long publishedAtMillis = System.currentTimeMillis();
+        for (FollowerLink link : followers) {
+            link.enqueue(chainKey, snapshot, publishedAtMillis);
+        }
+    }
+
+    /** determines the number of connected followers */
+    public int getFollowers() {
+        // returns the number of followers
+        return followers.size();
+    }
+
+    /** determines the number of delta frames sent to the followers */
+    public long getSentDeltas() {
+        // returns the number of deltas
+        return sentDeltas.get();
+    }
+
+    /** a version waiting to be sent to a follower */
+    private static class PendingVersion {
+        // the version of the chain
+        final ChainSnapshot snapshot;
+        // the time the oldest version it replaces was published
+        final long publishedAtMillis;
+
+        PendingVersion(ChainSnapshot snapshot, long publishedAtMillis) {
+            this.snapshot = snapshot;
+            this.publishedAtMillis = publishedAtMillis;
+        }
+    }
+
+    /** the connection to one follower */
+    private class FollowerLink {
+        // the socket of the follower
+        private final Socket socket;
+        // the latest version of each chain waiting to be sent, guarded by this link
+        private Map<String, PendingVersion> pending = new LinkedHashMap<String, PendingVersion>();
+        // the version and height of each chain the follower holds, used only by the sending thread
+        private final Map<String, long[]> sent = new HashMap<String, long[]>();
+
+        FollowerLink(Socket socket) {
+            this.socket = socket;
+        }
+
+        /** queues the version for this follower, replacing any older version of the chain still waiting */
+        synchronized void enqueue(String chainKey, ChainSnapshot snapshot, long publishedAtMillis) {
+            PendingVersion waiting = pending.get(chainKey);
+            if (waiting == null) {
+                pending.put(chainKey, new PendingVersion(snapshot, publishedAtMillis));
+            } else if (waiting.snapshot.getVersion() < snapshot.getVersion()) {
+                // the lag is measured from the oldest version the follower has not received
+                pending.put(chainKey, new PendingVersion(snapshot, waiting.publishedAtMillis));
+            }
+            notifyAll();
+        }
+
+        /** takes every version waiting, waiting up to the given time if there is none */
+        synchronized Map<String, PendingVersion> take(long timeoutMillis) throws InterruptedException {
+            if (pending.isEmpty()) {
+                wait(timeoutMillis);
+            }
+            Map<String, PendingVersion> taken = pending;
+            pending = new LinkedHashMap<String, PendingVersion>();
+            return taken;
+        }
+
+        /** streams the chains to the follower until it disconnects */
+        void stream() {
+
+            try (Socket follower = socket;
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(follower.getInputStream()));
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(follower.getOutputStream()))) {
+
+                // both sides open with the magic number and protocol version
+                follower.setTcpNoDelay(true);
+                out.writeInt(MAGIC);
+                out.writeInt(PROTOCOL_VERSION);
+                out.flush();
+                if (in.readInt() != MAGIC || in.readInt() != PROTOCOL_VERSION) {
+                    throw new IOException("Not a follower: " + follower.getRemoteSocketAddress());
+                }
+                System.out.println("Follower connected: " + follower.getRemoteSocketAddress());
+
+                // the follower first receives every chain, an evicted chain read from its file without loading it back
+                for (String chainKey : chainRegistry.chainKeys()) {
+                    ChainSnapshot snapshot = chainRegistry.snapshotOf(chainKey);
+                    // a chain listed may be gone, it is never created here
+                    if (snapshot != null) {
+                        enqueue(chainKey, snapshot, System.currentTimeMillis());
+                    }
+                }
+
+                // then every version published, or a heartbeat when there is none
+                while (true) {
+                    Map<String, PendingVersion> versions = take(HEARTBEAT_MILLIS);
+                    if (versions.isEmpty()) {
+                        out.writeByte(HEARTBEAT_FRAME);
+                        out.writeLong(System.currentTimeMillis());
+                    }
+                    for (Map.Entry<String, PendingVersion> version : versions.entrySet()) {
+                        writeDelta(out, version.getKey(), version.getValue());
+                    }
+                    out.flush();
+                }
+
+                // Handle IO Exception, the follower reconnects and is sent every chain again
+            } catch (IOException e) {
+                System.out.println("Follower disconnected: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                followers.remove(this);
+            }
+        }
+
+        /** writes the blocks of the chain added or changed since the version the follower holds */
+        private void writeDelta(DataOutputStream out, String chainKey, PendingVersion version) throws IOException {
+
+            // the version to send, and the version and height the follower holds
+            ChainSnapshot snapshot = version.snapshot;
+            long[] held = sent.get(chainKey);
+            if (held != null && held[0] >= snapshot.getVersion()) {
+                return;
+            }
+
+            // the blocks after the follower's height, and any block below it changed since its version
+            int from = 0;
+            if (held != null) {
+                from = (int) Math.min(held[1], snapshot.size());
+                for (int i = 0; i < from; i++) {
+                    if (snapshot.getModifiedAt(i) > held[0]) {
+                        from = i;
+                        break;
+                    }
+                }
+            }
+
+            // the frame of the delta
+            out.writeByte(DELTA_FRAME);
+            ChainStore.writeString(out, chainKey);
+            out.writeLong(snapshot.getVersion());
+            out.writeLong(version.publishedAtMillis);
+            out.writeInt(from);
+            out.writeInt(snapshot.size() - from);
+            for (int i = from; i < snapshot.size(); i++) {
+                ChainStore.writeBlock(out, snapshot.getBlocks().get(i), snapshot.getModifiedAt(i));
+            }
+            ChainStore.writeHash(out, snapshot.getChainHash());
+
+            // the follower now holds this version
+            sent.put(chainKey, new long[] { snapshot.getVersion(), snapshot.size() });
+            sentDeltas.incrementAndGet();
+        }
+    }
+}
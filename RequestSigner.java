@@ -0,0 +1,88 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates how a client signs its requests while
+ * reusing the digest of what every request has in common. Each
+ * combined request starts with the client ID and the public key,
+ * about three hundred characters with the default 800-bit key, and
+ * ends with the few characters of the operation. The SHA-256 state after the
+ * common prefix is computed once and cloned for each request, and
+ * the digest is then signed with the private key (PKCS #1 v1.5),
+ * which gives exactly the signature SHA256withRSA would.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to sign the requests
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Base64;
+
+/** signs the requests of one client, hashing the client ID and public key only once */
+public class RequestSigner {
+
+    // the DER encoding of the SHA-256 algorithm that precedes the digest in the signed value
+    private static final byte[] SHA_256_DIGEST_INFO = {
+            0x30, 0x31, 0x30, 0x0d, 0x06, 0x09, 0x60, (byte) 0x86, 0x48, 0x01, 0x65, 0x03, 0x04, 0x02, 0x01, 0x05, 0x00, 0x04, 0x20 };
+
+    // the private key signing the requests
+    private final PrivateKey privateKey;
+    // the digest of the client ID and the public key, cloned for each request
+    private final MessageDigest prefixDigest;
+    // the signer of each thread, as a Signature is not thread safe
+    private final ThreadLocal<Signature> signer;
+
+    /** RequestSigner constructor, for the client with the given ID and combined public key */
+    public RequestSigner(String clientID, String combinedPublicKey, PrivateKey privateKey) throws GeneralSecurityException {
+
+        // the private key signing the requests
+        this.privateKey = privateKey;
+        // hashes the prefix shared by every request once
+        prefixDigest = MessageDigest.getInstance("SHA-256");
+        prefixDigest.update(clientID.concat(combinedPublicKey).getBytes(StandardCharsets.UTF_8));
+        // makes sure the digest can be cloned before it is relied on
+        try {
+            prefixDigest.clone();
+        } catch (CloneNotSupportedException cnse) {
+            throw new GeneralSecurityException("SHA-256 digest can not be cloned", cnse);
+        }
+        // RSA over an already computed digest
+        signer = ThreadLocal.withInitial(() -> {
+            try {
+                return Signature.getInstance("NONEwithRSA");
+            } catch (GeneralSecurityException gse) {
+                throw new IllegalStateException(gse);
+            }
+        });
+    }
+
+    /** signs the combined request made of the client ID, the public key and the given rest of the request */
+    public String sign(String restOfRequest) throws GeneralSecurityException {
+
+        // the digest of the whole request, continued from the digest of the prefix
+        MessageDigest digest;
+        try {
+            synchronized (prefixDigest) {
+                digest = (MessageDigest) prefixDigest.clone();
+            }
+            // checked in the constructor
+        } catch (CloneNotSupportedException cnse) {
+            throw new IllegalStateException(cnse);
+        }
+        byte[] hashBytes = digest.digest(restOfRequest.getBytes(StandardCharsets.UTF_8));
+
+        // the signed value is the algorithm followed by the digest
+        Signature signature = signer.get();
+        signature.initSign(privateKey);
+        signature.update(SHA_256_DIGEST_INFO);
+        signature.update(hashBytes);
+
+        // return the signature as a Base64 string
+        return Base64.getEncoder().encodeToString(signature.sign());
+    }
+}
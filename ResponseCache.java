@@ -0,0 +1,105 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates a response cache for a blockchain.
+ * The responses of the read operations (status, verify and view)
+ * only change when the chain changes, so each response is kept
+ * as the bytes sent to the client, along with the version and the
+ * chain hash of the chain it was computed from. It is served as is
+ * until a mutation publishes a new version of the chain. A replica
+ * may be sent a lower version by a new leader, with other blocks, so
+ * a response is served only for the same version and chain hash.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to hold the cached responses
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** caches the responses of the read operations of one blockchain */
+public class ResponseCache {
+
+    // the operations whose responses are cached: view status, verify and view the chain
+    private static final int[] CACHED_OPERATIONS = { 0, 2, 3 };
+
+    // the cached response of each operation, indexed by operation
+    private final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<Entry>(4);
+
+    // captures the number of responses served from the cache
+    private static final AtomicLong hits = new AtomicLong();
+    // captures the number of responses computed because the cache held none for the version
+    private static final AtomicLong misses = new AtomicLong();
+
+    /** determines if the response of the operation is cached */
+    public static boolean isCached(int operation) {
+        // for each cached operation
+        for (int cachedOperation : CACHED_OPERATIONS) {
+            if (cachedOperation == operation) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** determines the cached response of the operation for the given version of the chain, or null if there is none */
+    public byte[] get(int operation, ChainSnapshot snapshot) {
+
+        // the cached response of the operation
+        Entry entry = entries.get(operation);
+        // if it was computed from this version, and not from a version of the same number with other blocks
+        if (entry != null && entry.version == snapshot.getVersion() && Objects.equals(entry.chainHash, snapshot.getChainHash())) {
+            hits.incrementAndGet();
+            return entry.response;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /** caches the response of the operation, computed from the given version of the chain */
+    public void put(int operation, ChainSnapshot snapshot, byte[] response) {
+
+        // a response of an older version never replaces one of a newer version
+        entries.accumulateAndGet(operation, new Entry(snapshot.getVersion(), snapshot.getChainHash(), response),
+                (existing, computed) -> existing != null && existing.version > computed.version ? existing : computed);
+    }
+
+    /** drops every cached response, once the chain is moved back to a lower version */
+    public void clear() {
+        // for each operation
+        for (int operation = 0; operation < entries.length(); operation++) {
+            entries.set(operation, null);
+        }
+    }
+
+    /** determines the number of responses served from the cache, across all chains */
+    public static long getHits() {
+        // returns the number of hits
+        return hits.get();
+    }
+
+    /** determines the number of responses computed because they were not cached, across all chains */
+    public static long getMisses() {
+        // returns the number of misses
+        return misses.get();
+    }
+
+    /** a response and the version of the chain it was computed from */
+    private static class Entry {
+        // the version of the chain
+        final long version;
+        // the chain hash of the version, null for an empty chain
+        final Hash256 chainHash;
+        // the bytes sent to the client
+        final byte[] response;
+
+        Entry(long version, Hash256 chainHash, byte[] response) {
+            this.version = version;
+            this.chainHash = chainHash;
+            this.response = response;
+        }
+    }
+}
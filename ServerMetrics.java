@@ -0,0 +1,221 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates the metrics of the server. It counts
+ * the requests and their latencies per operation, the requests
+ * that could not be parsed, failing authentication or turned away
+ * by admission control, the blocks mined with the nonces tried and
+ * the time taken per block, and the time taken to validate a chain. The other parts of the
+ * server register gauges, such as the open connections, the queued
+ * work and the size of the chains, which are read only when the
+ * metrics are. Every metric is a named long, exported as an
+ * attribute of one JMX MBean and sent by the stats operation.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to count the metrics and export them through JMX
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import javax.management.*;
+
+/** the registry of the metrics of the server */
+public class ServerMetrics implements DynamicMBean {
+
+    // the operation that sends the metrics to the client
+    static final int STATS_OPERATION = 10;
+    // the operations whose requests are counted, indexed by operation
+    private static final int OPERATIONS = STATS_OPERATION + 1;
+
+    // the metrics of the server
+    private static final ServerMetrics instance = new ServerMetrics();
+
+    // the latency of the requests of each operation
+    private final LatencyHistogram[] requestLatencies = new LatencyHistogram[OPERATIONS];
+    // captures the number of requests that could not be parsed, which have no operation
+    private final AtomicLong unparsedRequests = new AtomicLong();
+    // captures the number of requests whose public key or sign was rejected
+    private final AtomicLong authFailures = new AtomicLong();
+    // captures the number of requests turned away by admission control
+    private final AtomicLong rejectedRequests = new AtomicLong();
+    // captures the number of blocks mined
+    private final LatencyHistogram miningLatencies = new LatencyHistogram();
+    // captures the number of nonces tried while mining
+    private final AtomicLong noncesTried = new AtomicLong();
+    // the time taken to validate a chain
+    private final LatencyHistogram validationLatencies = new LatencyHistogram();
+
+    // every metric, by name, in the order it was registered
+    private final Map<String, LongSupplier> metrics = new LinkedHashMap<String, LongSupplier>();
+
+    /** ServerMetrics constructor, registers the metrics counted here */
+    private ServerMetrics() {
+
+        // the requests of each operation, except exit which never reaches the server
+        for (int operation = 0; operation < OPERATIONS; operation++) {
+            requestLatencies[operation] = new LatencyHistogram();
+            if (operation != 6) {
+                registerHistogram("requests." + operation, requestLatencies[operation]);
+            }
+        }
+        register("requests.unparsed", unparsedRequests::get);
+        register("auth.failures", authFailures::get);
+        register("admission.rejected", rejectedRequests::get);
+        // the mining of blocks
+        registerHistogram("mining.blocks", miningLatencies);
+        register("mining.nonces", noncesTried::get);
+        // the validation of chains
+        registerHistogram("validation", validationLatencies);
+    }
+
+    /** getter method for the metrics of the server */
+    public static ServerMetrics getInstance() {
+        // returns the single registry
+        return instance;
+    }
+
+    /** exports the metrics as an MBean of the platform MBean server */
+    public void exportToJmx() throws JMException {
+        // the MBean shows up in JConsole and any JMX client under this name
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("com.spentyal.andrew:type=ServerMetrics"));
+    }
+
+    /** registers a metric, read from the supplier whenever the metrics are read */
+    public synchronized void register(String name, LongSupplier supplier) {
+        // a name may be registered once
+        if (metrics.putIfAbsent(name, supplier) != null) {
+            throw new IllegalArgumentException("Metric already registered: " + name);
+        }
+    }
+
+    /** registers the count and the percentiles of the histogram, in microseconds */
+    private void registerHistogram(String name, LatencyHistogram histogram) {
+        register(name + ".count", histogram::getCount);
+        register(name + ".p50Micros", () -> histogram.percentileMicros(50));
+        register(name + ".p99Micros", () -> histogram.percentileMicros(99));
+        register(name + ".p999Micros", () -> histogram.percentileMicros(99.9));
+        register(name + ".maxMicros", histogram::getMaxMicros);
+    }
+
+    /** counts a request of the operation, served in the given time */
+    public void recordRequest(int operation, long nanos) {
+        // requests of unknown operations are not counted
+        if (operation >= 0 && operation < OPERATIONS) {
+            requestLatencies[operation].record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        }
+    }
+
+    /** counts a request that could not be parsed */
+    public void recordUnparsedRequest() {
+        unparsedRequests.incrementAndGet();
+    }
+
+    /** counts a request whose public key or sign was rejected */
+    public void recordAuthFailure() {
+        authFailures.incrementAndGet();
+    }
+
+    /** counts a request turned away by admission control */
+    public void recordRejectedRequest() {
+        rejectedRequests.incrementAndGet();
+    }
+
+    /** counts a block mined by trying the given number of nonces, in the given time */
+    public void recordMining(long nonces, long nanos) {
+        noncesTried.addAndGet(nonces);
+        miningLatencies.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /** counts a validation of a chain, done in the given time */
+    public void recordValidation(long nanos) {
+        validationLatencies.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /** reads every metric */
+    public synchronized Map<String, Long> snapshot() {
+        // captures the value of each metric
+        Map<String, Long> values = new LinkedHashMap<String, Long>();
+        for (Map.Entry<String, LongSupplier> metric : metrics.entrySet()) {
+            values.put(metric.getKey(), metric.getValue().getAsLong());
+        }
+        return values;
+    }
+
+    /** determines the JSON string representation of the metrics, as sent by the stats operation */
+    public String statsJSONString() {
+
+        // captures the response JSON string
+        String blockChainString = "";
+        blockChainString = blockChainString.concat("{");
+        // captures the operation
+        blockChainString = blockChainString.concat("\"Operation\" : ").concat(String.valueOf(STATS_OPERATION));
+        // captures each metric
+        for (Map.Entry<String, Long> metric : snapshot().entrySet()) {
+            blockChainString = blockChainString.concat(",\"").concat(metric.getKey()).concat("\" : ").concat(String.valueOf(metric.getValue()));
+        }
+        blockChainString = blockChainString.concat("}");
+
+        // returns the JSON representation of the metrics
+        return blockChainString;
+    }
+
+    @Override
+    public synchronized Object getAttribute(String attribute) throws AttributeNotFoundException {
+        // the metric with the name of the attribute
+        LongSupplier metric = metrics.get(attribute);
+        if (metric == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return metric.getAsLong();
+    }
+
+    @Override
+    public synchronized AttributeList getAttributes(String[] attributes) {
+        // the attributes that are metrics
+        AttributeList values = new AttributeList();
+        for (String attribute : attributes) {
+            LongSupplier metric = metrics.get(attribute);
+            if (metric != null) {
+                values.add(new Attribute(attribute, metric.getAsLong()));
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        // the metrics are read only
+        throw new AttributeNotFoundException("Metrics are read only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        // the metrics are read only, so none is set
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        // the MBean has no operations
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public synchronized MBeanInfo getMBeanInfo() {
+        // each metric is a read only long attribute
+        List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+        for (String name : metrics.keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, "long", name, true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "Metrics of the blockchain server",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+}
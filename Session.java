@@ -0,0 +1,122 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates the session of one client connection.
+ * The client authenticates once per connection with a request signed
+ * by its RSA key (operation 7). The server replies with a random
+ * secret encrypted with the client's public key, and both sides
+ * derive the session key from it with HMAC-SHA256. Every later
+ * request on the connection carries a sequence number and an
+ * HMAC-SHA256 tag of the request, instead of an RSA signature.
+ * The sequence number must grow by one per request, so a request
+ * can not be replayed on the connection.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to establish and check a session
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/** the session of one client connection */
+public class Session {
+
+    // the operation that establishes a session
+    static final int HANDSHAKE_OPERATION = 7;
+    // the length of the random secret, in bytes
+    private static final int SECRET_BYTES = 32;
+    // the source of the random secrets
+    private static final SecureRandom random = new SecureRandom();
+
+    // the client that established the session, null until the handshake is done
+    private String clientID;
+    // the verified identity of the client
+    private IdentityCache.Identity identity;
+    // computes the tags with the session key
+    private Mac mac;
+    // the sequence number the next request must carry
+    private long nextSequence;
+
+    /** establishes the session for the client, returning the secret encrypted with its public key */
+    public String establish(String clientID, IdentityCache.Identity identity) throws GeneralSecurityException {
+
+        // a new random secret
+        byte[] secret = new byte[SECRET_BYTES];
+        random.nextBytes(secret);
+
+        // only the holder of the private key can decrypt the secret
+        Cipher cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, identity.getVerificationKey());
+        String encryptedSecret = Base64.getEncoder().encodeToString(cipher.doFinal(secret));
+
+        // the session starts with sequence number 0
+        this.clientID = clientID;
+        this.identity = identity;
+        this.mac = newMac(deriveKey(secret, clientID));
+        this.nextSequence = 0;
+
+        // returns the encrypted secret, sent to the client
+        return encryptedSecret;
+    }
+
+    /** determines if the session was established */
+    public boolean isEstablished() {
+        // returns true once the handshake is done
+        return clientID != null;
+    }
+
+    /** getter method for the identity of the client that established the session */
+    public IdentityCache.Identity getIdentity() {
+        // returns the verified identity
+        return identity;
+    }
+
+    /** checks the tag of a request of the given client, sent with the given sequence number */
+    public boolean verify(String clientID, long sequence, String combinedRequest, String tag) {
+
+        // the request must come from the client of the session, in sequence
+        if (!isEstablished() || !this.clientID.equals(clientID) || sequence != nextSequence) {
+            return false;
+        }
+
+        // the tags are compared in constant time
+        byte[] expectedTag = tagOf(mac, sequence, combinedRequest).getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(expectedTag, tag.getBytes(StandardCharsets.UTF_8))) {
+            return false;
+        }
+
+        // the next request must carry the next sequence number
+        nextSequence++;
+        return true;
+    }
+
+    /** derives the session key from the secret, binding it to the client */
+    static byte[] deriveKey(byte[] secret, String clientID) throws GeneralSecurityException {
+        // HMAC-SHA256 of the client ID, keyed with the secret
+        return newMac(secret).doFinal(clientID.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** creates an HMAC-SHA256 with the given key */
+    static Mac newMac(byte[] key) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac;
+    }
+
+    /** computes the hex tag of the request sent with the given sequence number */
+    static String tagOf(Mac mac, long sequence, String combinedRequest) {
+        // the sequence number comes first, so no two requests have the same input
+        byte[] tag = mac.doFinal(String.valueOf(sequence).concat(combinedRequest).getBytes(StandardCharsets.UTF_8));
+        // returns the tag as 64 hex digits
+        return String.format("%064x", new BigInteger(1, tag));
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 18, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates a batch of transactions sent in one
+ * request (operation 8). Each item of the batch is a transaction,
+ * its difficulty, and its own signature of the request that would
+ * add it alone (operation 1), so every item is checked as if it
+ * was sent by itself. The items are carried in the transaction
+ * field of the request: the fields of an item are separated by
+ * semicolons and the items by vertical bars, with the transaction
+ * Base64 encoded so it may be carried whatever it holds. A decoded
+ * transaction must still be text a single add could carry: control
+ * characters and the delimiters of the JSON responses would break
+ * every later view of the chain, so such an item fails alone.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to encode and decode the items of a batch
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.StringJoiner;
+
+/** the items of a batch of transactions */
+public class TransactionBatch {
+
+    // the operation that adds a batch of transactions
+    static final int BATCH_OPERATION = 8;
+    // separates the items of the batch
+    private static final String ITEM_SEPARATOR = "|";
+    // separates the fields of an item
+    private static final String FIELD_SEPARATOR = ";";
+    // the fewest bytes of an item that may be verified: a difficulty, the separators and the
+    // Base64 sign of the smallest key, 512 bits
+    static final int MIN_ITEM_BYTES = 92;
+
+    /** encodes one item, signed the way an add of the transaction alone is signed */
+    public static String encodeItem(int difficulty, String transaction, String sign) {
+        // the difficulty, the encoded transaction and the sign
+        return String.valueOf(difficulty).concat(FIELD_SEPARATOR)
+                .concat(Base64.getEncoder().encodeToString(transaction.getBytes(StandardCharsets.UTF_8)))
+                .concat(FIELD_SEPARATOR).concat(sign);
+    }
+
+    /** encodes the items of the batch, as sent in the transaction field */
+    public static String encode(List<String> encodedItems) {
+        // the items separated by vertical bars
+        StringJoiner joiner = new StringJoiner(ITEM_SEPARATOR);
+        for (String encodedItem : encodedItems) {
+            joiner.add(encodedItem);
+        }
+        return joiner.toString();
+    }
+
+    /** decodes the items of the batch, or returns null if the text is not a batch */
+    public static List<Item> decode(String text) {
+
+        // captures the items of the batch
+        List<Item> items = new ArrayList<Item>();
+        // an empty batch adds nothing
+        if (text.isEmpty()) {
+            return items;
+        }
+
+        try {
+            // for each item of the batch
+            for (String encodedItem : text.split("\\" + ITEM_SEPARATOR, -1)) {
+                String[] fields = encodedItem.split(FIELD_SEPARATOR, -1);
+                if (fields.length != 3) {
+                    return null;
+                }
+                int difficulty = Integer.parseInt(fields[0]);
+                String transaction = new String(Base64.getDecoder().decode(fields[1]), StandardCharsets.UTF_8);
+                items.add(new Item(difficulty, transaction, fields[2], transactionAllowed(transaction)));
+            }
+            // a difficulty that is not a number or a transaction that is not Base64
+        } catch (IllegalArgumentException iae) {
+            return null;
+        }
+        return items;
+    }
+
+    /** determines if the transaction could be sent in a single add, without a control character or a JSON delimiter */
+    static boolean transactionAllowed(String transaction) {
+        // for each character of the transaction
+        for (int i = 0; i < transaction.length(); i++) {
+            char c = transaction.charAt(i);
+            if (Character.isISOControl(c) || c == '"' || c == ',' || c == ':') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** one transaction of a batch */
+    public static class Item {
+        // the difficulty of the block
+        private final int difficulty;
+        // the transaction data of the block
+        private final String transaction;
+        // the sign of the add of this transaction alone
+        private final String sign;
+        // true if the transaction may be stored in a block
+        private final boolean allowed;
+
+        Item(int difficulty, String transaction, String sign, boolean allowed) {
+            this.difficulty = difficulty;
+            this.transaction = transaction;
+            this.sign = sign;
+            this.allowed = allowed;
+        }
+
+        /** getter method for the difficulty */
+        public int getDifficulty() {
+            // returns the difficulty of the block
+            return difficulty;
+        }
+
+        /** getter method for the transaction */
+        public String getTransaction() {
+            // returns the transaction data of the block
+            return transaction;
+        }
+
+        /** getter method for the sign */
+        public String getSign() {
+            // returns the sign of the item
+            return sign;
+        }
+
+        /** determines if the transaction may be stored in a block */
+        public boolean isAllowed() {
+            // returns true if the transaction holds no control character or JSON delimiter
+            return allowed;
+        }
+    }
+}
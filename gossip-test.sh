@@ -0,0 +1,98 @@
+#!/bin/bash
+#
+# Author: Sai Manogna Pentyala
+# Last Modified: October 19, 2026
+# Andrew: spentyal
+#
+# This script tests the gossip between three server nodes on this
+# machine. Each node peers with the other two. One client adds
+# transactions on every node, including two competing blocks mined
+# at the same time on two nodes, and then a block on the third node,
+# which makes one of the two branches the heaviest. The test passes
+# once the three nodes hold the same chain, with every transaction
+# on it exactly once: the transaction of the orphaned block is mined
+# again by the node that mined it. It exits with 0 if the test
+# passes, otherwise with 1.
+#
+# usage: ./gossip-test.sh    (needs JDK 17, with javac and jshell)
+
+set -eu
+cd "$(dirname "$0")"
+
+# the classes, chains and logs of the test, removed at the end
+WORK=$(mktemp -d)
+PIDS=()
+cleanup() {
+    for pid in "${PIDS[@]}"; do
+        kill "$pid" 2>/dev/null || true
+    done
+    rm -rf "$WORK"
+}
+trap cleanup EXIT
+
+javac -encoding UTF-8 -d "$WORK/classes" *.java
+
+# node i serves the clients on port 7776+i and gossips on port 7796+i,
+# finalizing the blocks two below the best tip, so the trees are pruned
+for i in 1 2 3; do
+    peers=""
+    for j in 1 2 3; do
+        if [ "$j" != "$i" ]; then
+            peers="${peers:+$peers,}localhost:$((7796 + j))"
+        fi
+    done
+    java -cp "$WORK/classes" \
+        -Dblockchain.port=$((7776 + i)) \
+        -Dblockchain.gossipPort=$((7796 + i)) \
+        -Dblockchain.peers="$peers" \
+        -Dblockchain.finalityDepth=2 \
+        -Dblockchain.chainStoreDir="$WORK/chains$i" \
+        -Dblockchain.checkpointDir="$WORK/checkpoints$i" \
+        com.spentyal.andrew.BlockChainTCPServer > "$WORK/node$i.log" 2>&1 &
+    PIDS+=($!)
+done
+# the nodes connect to each other within a few retries
+sleep 3
+
+# the client, run by jshell, sets the exit status
+cat > "$WORK/client.jsh" <<'EOF'
+import com.spentyal.andrew.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// the same client on every node, so every node holds the same chain
+java.security.KeyPair keyPair = ClientKeyStore.generate(1, 800).get(0);
+BlockChainClient[] nodes = new BlockChainClient[3];
+for (int i = 0; i < 3; i++) nodes[i] = new BlockChainClient("localhost", 7777 + i, keyPair, 2, 5000, 60000, 5000);
+
+// a block on each node in turn, then two competing blocks, then a block on the third node
+List<String> transactions = new ArrayList<String>();
+for (int i = 0; i < 3; i++) { nodes[i].add(2, "node" + i).get(); transactions.add("node" + i); Thread.sleep(500); }
+CompletableFuture<String> forkA = nodes[0].add(6, "forkA"), forkB = nodes[1].add(6, "forkB");
+forkA.get(); forkB.get(); transactions.add("forkA"); transactions.add("forkB");
+Thread.sleep(500);
+nodes[2].add(2, "after"); transactions.add("after");
+
+// counts the blocks of the chain holding the transaction
+int occurrences(String view, String transaction) { int count = 0; for (int at = view.indexOf("\"Tx \": \"" + transaction + "\""); at >= 0; at = view.indexOf("\"Tx \": \"" + transaction + "\"", at + 1)) count++; return count; }
+
+// waits up to a minute for the nodes to agree
+boolean converged = false;
+for (int attempt = 0; attempt < 120 && !converged; attempt++) {
+    Thread.sleep(500);
+    String[] views = new String[3];
+    for (int i = 0; i < 3; i++) views[i] = nodes[i].view().get();
+    converged = views[0].equals(views[1]) && views[1].equals(views[2]);
+    for (String transaction : transactions) converged = converged && occurrences(views[0], transaction) == 1;
+}
+System.out.println(converged ? "PASS: the three nodes hold the same chain" : "FAIL: the nodes did not converge");
+/exit converged ? 0 : 1
+EOF
+if jshell --class-path "$WORK/classes" "$WORK/client.jsh"; then
+    # the forks the nodes resolved
+    grep -h "Reorganized\|Requeued" "$WORK"/node*.log || true
+    exit 0
+fi
+# the logs of the nodes show why they did not converge
+tail -n 20 "$WORK"/node*.log
+exit 1
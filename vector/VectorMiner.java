@@ -0,0 +1,383 @@
+/**
+ * Author: Sai Manogna Pentyala
+ * Last Modified: October 19, 2026
+ * Andrew: spentyal
+ *
+ * This program demonstrates a search for the nonce of a block that
+ * hashes several nonces at once, one per lane of the SIMD vectors of
+ * the machine: 4 lanes with 128 bit vectors, 8 with AVX2 and 16 with
+ * AVX-512. Only the nonce changes from one header to the next, so the
+ * 64 byte message blocks of SHA256 before the nonce are compressed
+ * once, and only the last one or two blocks, holding the nonce and
+ * the padding, are compressed for each nonce, lane by lane with the
+ * jdk.incubator.vector API. The first word of each hash is compared
+ * with the target in the lanes, the rest only for the lanes that
+ * pass. The lanes are fixed for the process, so the vector operations
+ * compile to SIMD instructions: as many as the widest vectors of the
+ * machine hold, unless -Dblockchain.vectorLanes asks for 4, 8 or 16.
+ *
+ * The miner checks, when it is created, that the hashes of its lanes
+ * are bit for bit the hashes of MessageDigest for headers of every
+ * length the nonce can fall at, and every nonce it finds is hashed
+ * again with MessageDigest before it is returned. A nonce that does
+ * not check out turns the miner off, and the searches go on with
+ * MessageDigest.
+ *
+ * It is compiled, and run, only with the incubator module:
+ *   javac --add-modules jdk.incubator.vector -d out *.java vector/*.java
+ *   java --add-modules jdk.incubator.vector -Dblockchain.vectorMining=true ...
+ * and is loaded by name, see Miner.vectorOrLocal(), so the other
+ * classes compile and run without it.
+ */
+
+package com.spentyal.andrew;
+
+// imports needed to hash the nonces in the lanes of the vectors
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Random;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/** searches the nonces of a header several at a time, one per lane of the vectors */
+public class VectorMiner implements Miner {
+
+    // the round constants of SHA256
+    private static final int[] K = {
+            0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+            0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+            0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+            0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+            0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+            0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+            0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+            0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2 };
+    // the hash SHA256 starts from
+    private static final int[] INITIAL_HASH = {
+            0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19 };
+    // the bytes of a message block
+    private static final int BLOCK_BYTES = 64;
+    // the words of a message block, and of its schedule
+    private static final int BLOCK_WORDS = 16;
+    private static final int ROUNDS = 64;
+
+    // the vectors, one int lane per nonce, a constant so the vector operations compile to SIMD instructions
+    private static final VectorSpecies<Integer> SPECIES = speciesOf(Integer.getInteger("blockchain.vectorLanes", 0));
+    // the number of nonces hashed at once
+    private static final int LANES = SPECIES.length();
+
+    // set once a nonce found does not check out with MessageDigest
+    private volatile boolean disabled;
+
+    /** VectorMiner constructor, hashing the nonces of blockchain.vectorLanes at once, or of the widest vectors */
+    public VectorMiner() {
+        // the lanes must hash as MessageDigest does before they mine anything
+        selfTest();
+        System.out.println("Mining with the Vector API, " + LANES + " nonces at once");
+    }
+
+    /** determines the vectors holding 4, 8 or 16 ints, or as many as the widest vectors of the machine hold for 0 */
+    private static VectorSpecies<Integer> speciesOf(int lanes) {
+        // the shape of the vectors, in bits
+        if (lanes == 0) {
+            return IntVector.SPECIES_PREFERRED;
+        } else if (lanes == 4 || lanes == 8 || lanes == 16) {
+            return VectorSpecies.of(int.class, VectorShape.forBitSize(32 * lanes));
+        }
+        throw new IllegalArgumentException("A vector miner hashes 4, 8 or 16 nonces at once, not " + lanes);
+    }
+
+    /** searches the range a vector of nonces at a time, the nonces left over with MessageDigest */
+    @Override
+    public long search(byte[] header, Hash256 target, long firstNonce, long count) {
+
+        // once turned off, every search is made with MessageDigest
+        if (disabled) {
+            return Miner.LOCAL.search(header, target, firstNonce, count);
+        }
+
+        // the blocks before the nonce are compressed once for the whole range
+        Template template = new Template(header);
+        byte[] targetBytes = target.toBytes();
+        int[] targetWords = wordsOf(targetBytes);
+        int[] hashes = new int[8 * LANES];
+        long batches = count / LANES;
+        for (long batch = 0; batch < batches; batch++) {
+            long batchNonce = firstNonce + batch * LANES;
+            hash(template, batchNonce, hashes);
+            // the first word of each hash decides, unless it equals the first word of the target
+            IntVector firstWords = IntVector.fromArray(SPECIES, hashes, 0);
+            if (!firstWords.compare(VectorOperators.UNSIGNED_LE, targetWords[0]).anyTrue()) {
+                continue;
+            }
+            // the lanes that may meet the target, lowest nonce first
+            for (int lane = 0; lane < LANES; lane++) {
+                if (laneMeetsTarget(hashes, lane, targetWords)) {
+                    return verified(header, target, targetBytes, batchNonce + lane, firstNonce, count);
+                }
+            }
+        }
+
+        // the nonces that do not fill a vector
+        long searched = batches * LANES;
+        return searched == count ? Miner.NOT_FOUND : Miner.LOCAL.search(header, target, firstNonce + searched, count - searched);
+    }
+
+    /** hashes the found nonce again with MessageDigest, returns it if it meets the target, otherwise turns the miner
+     * off and searches the range with MessageDigest */
+    private long verified(byte[] header, Hash256 target, byte[] targetBytes, long nonce, long firstNonce, long count) {
+
+        // the hash of MessageDigest for the nonce
+        BlockHeader scalarHeader = BlockHeader.forThread().load(header);
+        scalarHeader.setNonce(nonce);
+        if (scalarHeader.hashMeetsTarget(targetBytes)) {
+            return nonce;
+        }
+        // the lanes hashed differently, nothing they found is trusted
+        System.out.println("Vector hash of nonce " + nonce + " differs from MessageDigest, mining with MessageDigest");
+        disabled = true;
+        return Miner.LOCAL.search(header, target, firstNonce, count);
+    }
+
+    /** determines if the hash of the lane, as an unsigned number, is at most the target */
+    private boolean laneMeetsTarget(int[] hashes, int lane, int[] targetWords) {
+        // the first word that differs decides
+        for (int i = 0; i < 8; i++) {
+            int compared = Integer.compareUnsigned(hashes[i * LANES + lane], targetWords[i]);
+            if (compared != 0) {
+                return compared < 0;
+            }
+        }
+        return true;
+    }
+
+    /** hashes the header with each nonce of the vector from the given one, word i of the hash of lane j at i*lanes+j */
+    private void hash(Template template, long batchNonce, int[] hashes) {
+
+        // the words holding the nonce, each lane with its own
+        for (int lane = 0; lane < LANES; lane++) {
+            putLong(template.scratch, template.nonceOffset, batchNonce + lane);
+            for (int word = template.firstNonceWord; word <= template.lastNonceWord; word++) {
+                template.schedules[word / BLOCK_WORDS][(word % BLOCK_WORDS) * LANES + lane] = wordAt(template.scratch, 4 * word);
+            }
+        }
+
+        // the tail blocks compressed in turn, from the hash of the blocks before the nonce
+        System.arraycopy(template.midstate, 0, hashes, 0, hashes.length);
+        for (int block = 0; block < template.schedules.length; block++) {
+            // a block without the nonce has its schedule expanded once
+            if (template.holdsNonce(block)) {
+                expand(template.schedules[block]);
+            }
+            compress(hashes, template.schedules[block]);
+        }
+    }
+
+    /** expands the first 16 words of the schedule of a block into the 64 words of its rounds, every lane at once */
+    private void expand(int[] schedule) {
+        for (int t = BLOCK_WORDS; t < ROUNDS; t++) {
+            IntVector w15 = IntVector.fromArray(SPECIES, schedule, (t - 15) * LANES);
+            IntVector w2 = IntVector.fromArray(SPECIES, schedule, (t - 2) * LANES);
+            IntVector s0 = w15.lanewise(VectorOperators.ROR, 7).lanewise(VectorOperators.XOR, w15.lanewise(VectorOperators.ROR, 18))
+                    .lanewise(VectorOperators.XOR, w15.lanewise(VectorOperators.LSHR, 3));
+            IntVector s1 = w2.lanewise(VectorOperators.ROR, 17).lanewise(VectorOperators.XOR, w2.lanewise(VectorOperators.ROR, 19))
+                    .lanewise(VectorOperators.XOR, w2.lanewise(VectorOperators.LSHR, 10));
+            IntVector.fromArray(SPECIES, schedule, (t - 16) * LANES).add(s0)
+                    .add(IntVector.fromArray(SPECIES, schedule, (t - 7) * LANES)).add(s1)
+                    .intoArray(schedule, t * LANES);
+        }
+    }
+
+    /** compresses a message block into the hash of every lane, word i of lane j at i*lanes+j */
+    private void compress(int[] state, int[] schedule) {
+
+        // the working variables of the rounds
+        IntVector a = IntVector.fromArray(SPECIES, state, 0);
+        IntVector b = IntVector.fromArray(SPECIES, state, LANES);
+        IntVector c = IntVector.fromArray(SPECIES, state, 2 * LANES);
+        IntVector d = IntVector.fromArray(SPECIES, state, 3 * LANES);
+        IntVector e = IntVector.fromArray(SPECIES, state, 4 * LANES);
+        IntVector f = IntVector.fromArray(SPECIES, state, 5 * LANES);
+        IntVector g = IntVector.fromArray(SPECIES, state, 6 * LANES);
+        IntVector h = IntVector.fromArray(SPECIES, state, 7 * LANES);
+
+        for (int t = 0; t < ROUNDS; t++) {
+            IntVector s1 = e.lanewise(VectorOperators.ROR, 6).lanewise(VectorOperators.XOR, e.lanewise(VectorOperators.ROR, 11))
+                    .lanewise(VectorOperators.XOR, e.lanewise(VectorOperators.ROR, 25));
+            IntVector ch = g.lanewise(VectorOperators.XOR, e.and(f.lanewise(VectorOperators.XOR, g)));
+            IntVector temp1 = h.add(s1).add(ch).add(K[t]).add(IntVector.fromArray(SPECIES, schedule, t * LANES));
+            IntVector s0 = a.lanewise(VectorOperators.ROR, 2).lanewise(VectorOperators.XOR, a.lanewise(VectorOperators.ROR, 13))
+                    .lanewise(VectorOperators.XOR, a.lanewise(VectorOperators.ROR, 22));
+            IntVector maj = a.and(b).or(c.and(a.or(b)));
+            h = g;
+            g = f;
+            f = e;
+            e = d.add(temp1);
+            d = c;
+            c = b;
+            b = a;
+            a = temp1.add(s0).add(maj);
+        }
+
+        // the block is added to the hash it started from
+        a.add(IntVector.fromArray(SPECIES, state, 0)).intoArray(state, 0);
+        b.add(IntVector.fromArray(SPECIES, state, LANES)).intoArray(state, LANES);
+        c.add(IntVector.fromArray(SPECIES, state, 2 * LANES)).intoArray(state, 2 * LANES);
+        d.add(IntVector.fromArray(SPECIES, state, 3 * LANES)).intoArray(state, 3 * LANES);
+        e.add(IntVector.fromArray(SPECIES, state, 4 * LANES)).intoArray(state, 4 * LANES);
+        f.add(IntVector.fromArray(SPECIES, state, 5 * LANES)).intoArray(state, 5 * LANES);
+        g.add(IntVector.fromArray(SPECIES, state, 6 * LANES)).intoArray(state, 6 * LANES);
+        h.add(IntVector.fromArray(SPECIES, state, 7 * LANES)).intoArray(state, 7 * LANES);
+    }
+
+    /** compares the hashes of the lanes with the hashes of MessageDigest for headers of every length modulo a block */
+    private void selfTest() {
+
+        // random headers and nonces, the same on every start
+        Random random = new Random(256);
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+            // handles NoSuchAlgorithmException
+        } catch (NoSuchAlgorithmException nsa) {
+            throw new IllegalStateException("No such algorithm exception thrown " + nsa);
+        }
+        int[] hashes = new int[8 * LANES];
+
+        // the nonce at every place of the last one or two blocks, after zero or more blocks before it
+        for (int length = BlockHeader.NONCE_BYTES; length <= 3 * BLOCK_BYTES; length++) {
+            byte[] header = new byte[length];
+            random.nextBytes(header);
+            long batchNonce = random.nextLong() >>> 1;
+            hash(new Template(header), batchNonce, hashes);
+            for (int lane = 0; lane < LANES; lane++) {
+                putLong(header, length - BlockHeader.NONCE_BYTES, batchNonce + lane);
+                int[] expected = wordsOf(digest.digest(header));
+                for (int i = 0; i < 8; i++) {
+                    if (hashes[i * LANES + lane] != expected[i]) {
+                        throw new IllegalStateException("Vector SHA256 differs from MessageDigest for a " + length + " byte header");
+                    }
+                }
+            }
+        }
+    }
+
+    /** compresses the blocks of the header before its nonce once, and lays out the schedules of the blocks after */
+    private final class Template {
+        // the hash of the blocks before the nonce, repeated in every lane
+        final int[] midstate = new int[8 * LANES];
+        // the schedule of each block holding the nonce or the padding, word t of lane j at t*lanes+j
+        final int[][] schedules;
+        // the padded bytes of those blocks, the nonce of each lane written in turn
+        final byte[] scratch;
+        // the place of the nonce in those bytes
+        final int nonceOffset;
+        // the words holding the nonce, counted from the first block after the midstate
+        final int firstNonceWord;
+        final int lastNonceWord;
+
+        Template(byte[] header) {
+
+            // the blocks before the one the nonce starts in are the same for every nonce
+            int headerNonce = header.length - BlockHeader.NONCE_BYTES;
+            int tailStart = headerNonce / BLOCK_BYTES * BLOCK_BYTES;
+            int[] hash = Arrays.copyOf(INITIAL_HASH, 8);
+            for (int offset = 0; offset < tailStart; offset += BLOCK_BYTES) {
+                compressScalar(hash, header, offset);
+            }
+            for (int i = 0; i < 8; i++) {
+                Arrays.fill(midstate, i * LANES, (i + 1) * LANES, hash[i]);
+            }
+
+            // the tail, padded with a one bit, zeroes and the length in bits
+            int paddedLength = (header.length + 1 + 8 + BLOCK_BYTES - 1) / BLOCK_BYTES * BLOCK_BYTES;
+            scratch = new byte[paddedLength - tailStart];
+            System.arraycopy(header, tailStart, scratch, 0, header.length - tailStart);
+            scratch[header.length - tailStart] = (byte) 0x80;
+            putLong(scratch, scratch.length - 8, 8L * header.length);
+            nonceOffset = headerNonce - tailStart;
+            firstNonceWord = nonceOffset / 4;
+            lastNonceWord = (nonceOffset + BlockHeader.NONCE_BYTES - 1) / 4;
+
+            // every lane starts with the same words, a block without the nonce is expanded here once
+            schedules = new int[scratch.length / BLOCK_BYTES][ROUNDS * LANES];
+            for (int block = 0; block < schedules.length; block++) {
+                for (int word = 0; word < BLOCK_WORDS; word++) {
+                    Arrays.fill(schedules[block], word * LANES, (word + 1) * LANES, wordAt(scratch, block * BLOCK_BYTES + 4 * word));
+                }
+                if (!holdsNonce(block)) {
+                    expand(schedules[block]);
+                }
+            }
+        }
+
+        /** determines if a block of the tail holds a byte of the nonce */
+        boolean holdsNonce(int block) {
+            return firstNonceWord / BLOCK_WORDS <= block && block <= lastNonceWord / BLOCK_WORDS;
+        }
+    }
+
+    /** compresses the message block at the given offset into the hash, one lane */
+    private static void compressScalar(int[] hash, byte[] message, int offset) {
+
+        // the schedule of the block
+        int[] w = new int[ROUNDS];
+        for (int t = 0; t < BLOCK_WORDS; t++) {
+            w[t] = wordAt(message, offset + 4 * t);
+        }
+        for (int t = BLOCK_WORDS; t < ROUNDS; t++) {
+            int s0 = Integer.rotateRight(w[t - 15], 7) ^ Integer.rotateRight(w[t - 15], 18) ^ (w[t - 15] >>> 3);
+            int s1 = Integer.rotateRight(w[t - 2], 17) ^ Integer.rotateRight(w[t - 2], 19) ^ (w[t - 2] >>> 10);
+            w[t] = w[t - 16] + s0 + w[t - 7] + s1;
+        }
+
+        // the rounds
+        int a = hash[0], b = hash[1], c = hash[2], d = hash[3], e = hash[4], f = hash[5], g = hash[6], h = hash[7];
+        for (int t = 0; t < ROUNDS; t++) {
+            int s1 = Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25);
+            int temp1 = h + s1 + (g ^ (e & (f ^ g))) + K[t] + w[t];
+            int s0 = Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22);
+            int temp2 = s0 + ((a & b) | (c & (a | b)));
+            h = g;
+            g = f;
+            f = e;
+            e = d + temp1;
+            d = c;
+            c = b;
+            b = a;
+            a = temp1 + temp2;
+        }
+        hash[0] += a;
+        hash[1] += b;
+        hash[2] += c;
+        hash[3] += d;
+        hash[4] += e;
+        hash[5] += f;
+        hash[6] += g;
+        hash[7] += h;
+    }
+
+    /** reads the eight big endian words of a hash */
+    private static int[] wordsOf(byte[] hash) {
+        int[] words = new int[8];
+        for (int i = 0; i < 8; i++) {
+            words[i] = wordAt(hash, 4 * i);
+        }
+        return words;
+    }
+
+    /** reads the big endian word at the given offset */
+    private static int wordAt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    /** writes the big endian long at the given offset */
+    private static void putLong(byte[] bytes, int offset, long value) {
+        for (int i = 0; i < 8; i++) {
+            bytes[offset + i] = (byte) (value >>> (56 - 8 * i));
+        }
+    }
+}